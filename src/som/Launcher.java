@@ -10,6 +10,7 @@ import org.graalvm.polyglot.Value;
 import som.interpreter.SomLanguage;
 import som.interpreter.objectstorage.StorageAccessor;
 import som.vm.VmSettings;
+import tools.concurrency.TraceParser;
 import tools.concurrency.TracingActors.ReplayActor;
 import tools.concurrency.TracingBackend;
 import tools.snapshot.SnapshotBackend;
@@ -61,6 +62,10 @@ public final class Launcher {
       ReplayActor.printMissingMessages();
     }
 
+    if (VmSettings.REPLAY) {
+      TraceParser.close();
+    }
+
     if (VmSettings.MEMORY_TRACING) {
       TracingBackend.reportPeakMemoryUsage();
     }
@@ -40,6 +40,7 @@ import som.primitives.processes.ChannelPrimitives;
 import som.primitives.processes.ChannelPrimitives.ProcessThreadFactory;
 import som.primitives.threading.TaskThreads.ForkJoinThreadFactory;
 import som.primitives.threading.ThreadingModule;
+import som.vm.ManagedBlocking;
 import som.vm.NotYetImplementedException;
 import som.vm.ObjectSystem;
 import som.vm.Primitives;
@@ -54,6 +55,7 @@ import tools.concurrency.TracingBackend;
 import tools.debugger.WebDebugger;
 import tools.debugger.session.Breakpoints;
 import tools.dym.DynamicMetrics;
+import tools.sampler.StackSampler;
 import tools.snapshot.SnapshotBackend;
 import tools.superinstructions.CandidateIdentifier;
 
@@ -90,12 +92,19 @@ public final class VM {
 
     actorPool = new ForkJoinPool(VmSettings.NUM_THREADS,
         new ActorProcessingThreadFactory(this), new UncaughtExceptions(this), true);
-    processesPool = new ForkJoinPool(VmSettings.NUM_THREADS,
-        new ProcessThreadFactory(this), new UncaughtExceptions(this), true);
     forkJoinPool = new ForkJoinPool(VmSettings.NUM_THREADS,
         new ForkJoinThreadFactory(this), new UncaughtExceptions(this), false);
-    threadPool = new ForkJoinPool(MAX_THREADS,
-        new ForkJoinThreadFactory(this), new UncaughtExceptions(this), false);
+    if (VmSettings.ELASTIC_ACTIVITY_THREADS) {
+      processesPool = ManagedBlocking.createElasticPool(new ProcessThreadFactory(this),
+          new UncaughtExceptions(this), true, MAX_THREADS);
+      threadPool = ManagedBlocking.createElasticPool(new ForkJoinThreadFactory(this),
+          new UncaughtExceptions(this), false, MAX_THREADS);
+    } else {
+      processesPool = new ForkJoinPool(VmSettings.NUM_THREADS,
+          new ProcessThreadFactory(this), new UncaughtExceptions(this), true);
+      threadPool = new ForkJoinPool(MAX_THREADS,
+          new ForkJoinThreadFactory(this), new UncaughtExceptions(this), false);
+    }
   }
 
   /**
@@ -358,6 +367,11 @@ public final class VM {
       truffleProfiler.setCollecting(true);
     }
 
+    if (options.samplingEnabled) {
+      StackSampler sampler = StackSampler.find(engine);
+      assert sampler != null : "Initialization of StackSampler tool incomplete";
+    }
+
     if (VmSettings.TRUFFLE_DEBUGGER_ENABLED) {
       assert options.webDebuggerEnabled : "If debugging is enabled, we currently expect the web debugger to be used.";
       Debugger debugger = Debugger.find(env);
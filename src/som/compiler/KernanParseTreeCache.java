@@ -0,0 +1,108 @@
+package som.compiler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+
+/**
+ * Keeps the parse trees produced by Kernan on disk, so that a module, which
+ * did not change since the last run, does not need to be sent to Kernan again.
+ *
+ * <p>
+ * The cache entries are keyed by a hash of the module's path and source code.
+ * Thus, a changed module simply misses the cache, and stale entries are never
+ * used. Entries are written to a temporary file first and then moved into
+ * place, so that concurrently started VMs never read partial entries.
+ *
+ * <p>
+ * The cache is best effort. Any problem with reading or writing an entry is
+ * treated like a cache miss.
+ */
+public final class KernanParseTreeCache {
+
+  /** Needs to be changed when the format of the parse trees changes. */
+  private static final String FORMAT_VERSION = "1";
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Path directory;
+
+  public KernanParseTreeCache(final Path directory) {
+    this.directory = directory;
+  }
+
+  /** @return the cached parse tree, or null if there is none */
+  public JsonObject get(final String path, final CharSequence code) {
+    Path entry = getEntry(path, code);
+    try (Reader r = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
+      return new JsonParser().parse(r).getAsJsonObject();
+    } catch (IOException | JsonParseException | IllegalStateException e) {
+      // not cached yet, or a corrupted entry, which is simply overwritten
+      return null;
+    }
+  }
+
+  public void put(final String path, final CharSequence code, final JsonObject parseTree) {
+    Path entry = getEntry(path, code);
+    Path tmp = null;
+    try {
+      Files.createDirectories(directory);
+      tmp = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+      try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        w.write(parseTree.toString());
+      }
+
+      try {
+        Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING);
+      }
+      tmp = null;
+    } catch (IOException e) {
+      // an entry that is not written is just a cache miss in the next run
+    } finally {
+      if (tmp != null) {
+        try {
+          Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+          // ignore, the file is only garbage in the cache directory
+        }
+      }
+    }
+  }
+
+  private Path getEntry(final String path, final CharSequence code) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+
+    digest.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(path.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(code.toString().getBytes(StandardCharsets.UTF_8));
+
+    byte[] hash = digest.digest();
+    char[] name = new char[hash.length * 2];
+    for (int i = 0; i < hash.length; i++) {
+      name[2 * i] = HEX[(hash[i] >> 4) & 0xF];
+      name[2 * i + 1] = HEX[hash[i] & 0xF];
+    }
+    return directory.resolve(new String(name) + ".json");
+  }
+}
@@ -25,6 +25,7 @@
 package som.compiler;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -36,6 +37,7 @@ import bd.source.SourceCoordinate;
 import bd.tools.structure.StructuralProbe;
 import som.compiler.MixinDefinition.SlotDefinition;
 import som.interpreter.SomLanguage;
+import som.vm.VmSettings;
 import som.vmobjects.SInvokable;
 import som.vmobjects.SSymbol;
 
@@ -78,6 +80,10 @@ public class SourcecodeCompiler {
 
   private Map<String, MixinDefinition> alreadyLoaded = new HashMap<String, MixinDefinition>();
 
+  private static final KernanParseTreeCache parseTreeCache =
+      VmSettings.KERNAN_CACHE_DIRECTORY.isEmpty() ? null
+          : new KernanParseTreeCache(Paths.get(VmSettings.KERNAN_CACHE_DIRECTORY));
+
   public MixinDefinition compileGraceModule(final Source source,
       final StructuralProbe<SSymbol, MixinDefinition, SInvokable, SlotDefinition, Variable> structuralProbe)
       throws ProgramDefinitionError, IOException {
@@ -86,17 +92,23 @@ public class SourcecodeCompiler {
       return alreadyLoaded.get(filepath);
     }
 
+    JsonObject parseTree = null;
+    if (parseTreeCache != null) {
+      parseTree = parseTreeCache.get(filepath, source.getCharacters());
+    }
+    if (parseTree != null) {
+      return translateGraceModule(parseTree, source, structuralProbe);
+    }
+
     KernanClient client = new KernanClient(source, language, structuralProbe);
     JsonObject response = client.getKernanResponse();
 
     if (response.has("event") && response.get("event").getAsString().equals("parse-tree")) {
-      JsonObject parseTree = response.get("data").getAsJsonObject();
-      JsonTreeTranslator translator =
-          new JsonTreeTranslator(parseTree, source, language, structuralProbe);
-      MixinDefinition result = translator.translateModule();
-      language.getVM().reportLoadedSource(source);
-      alreadyLoaded.put(filepath, result);
-      return result;
+      parseTree = response.get("data").getAsJsonObject();
+      if (parseTreeCache != null) {
+        parseTreeCache.put(filepath, source.getCharacters(), parseTree);
+      }
+      return translateGraceModule(parseTree, source, structuralProbe);
 
     } else if (response.has("mode")
         && response.get("mode").getAsString().equals("static-error")) {
@@ -116,6 +128,16 @@ public class SourcecodeCompiler {
 
   }
 
+  private MixinDefinition translateGraceModule(final JsonObject parseTree, final Source source,
+      final StructuralProbe<SSymbol, MixinDefinition, SInvokable, SlotDefinition, Variable> structuralProbe) {
+    JsonTreeTranslator translator =
+        new JsonTreeTranslator(parseTree, source, language, structuralProbe);
+    MixinDefinition result = translator.translateModule();
+    language.getVM().reportLoadedSource(source);
+    alreadyLoaded.put(source.getURI().getPath(), result);
+    return result;
+  }
+
   /**
    * Compiles a program, which must be written in either Grace or Newspeak.
    *
@@ -96,20 +96,18 @@ public abstract class AbstractPromiseResolutionNode extends QuaternaryExpression
           promiseValue.getPromiseId(), promiseToBeResolved.getPromiseId());
     }
 
-    synchronized (promiseValue) {
-      Resolution state = promiseValue.getResolutionStateUnsync();
-      if (SPromise.isCompleted(state)) {
-        resolvePromise(state, resolver, promiseValue.getValueUnsync(),
-            haltOnResolution);
-      } else {
-        synchronized (promiseToBeResolved) { // TODO: is this really deadlock free?
-          if (haltOnResolution || promiseValue.getHaltOnResolution()) {
-            promiseToBeResolved.enableHaltOnResolution();
-          }
-          promiseValue.addChainedPromise(promiseToBeResolved);
-        }
+    Resolution state = promiseValue.getResolutionState();
+    if (!SPromise.isCompleted(state)) {
+      if (haltOnResolution || promiseValue.getHaltOnResolution()) {
+        promiseToBeResolved.enableHaltOnResolution();
       }
+      if (!promiseValue.addChainedPromise(promiseToBeResolved)) {
+        return;
+      }
+      // promiseValue got completed in the meantime
+      state = promiseValue.getResolutionState();
     }
+    resolvePromise(state, resolver, promiseValue.getValue(), haltOnResolution);
   }
 
   protected void resolvePromise(final Resolution type,
@@ -127,7 +125,7 @@ public abstract class AbstractPromiseResolutionNode extends QuaternaryExpression
       final Object result, final Actor current, final ForkJoinPool actorPool,
       final boolean haltOnResolution, final ValueProfile whenResolvedProfile) {
     Object wrapped = wrapper.execute(result, promise.owner, current);
-    SResolver.resolveAndTriggerListenersUnsynced(type, result, wrapped, promise,
+    SResolver.resolveAndTriggerListeners(type, result, wrapped, promise,
         current, actorPool, haltOnResolution, whenResolvedProfile);
   }
 }
@@ -1,10 +1,17 @@
 package som.interpreter.actors;
 
-import java.util.Map;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
 import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -19,11 +26,9 @@ import som.interpreter.objectstorage.ObjectTransitionSafepoint;
 import som.primitives.ObjectPrims.IsValue;
 import som.vm.Activity;
 import som.vm.VmSettings;
-import som.vmobjects.SAbstractObject;
 import som.vmobjects.SArray.STransferArray;
 import som.vmobjects.SObject;
 import som.vmobjects.SObjectWithClass.SObjectWithoutFields;
-import tools.ObjectBuffer;
 import tools.concurrency.KomposTrace;
 import tools.concurrency.TracingActivityThread;
 import tools.concurrency.TracingActors.ReplayActor;
@@ -47,11 +52,14 @@ import tools.snapshot.SnapshotBuffer;
  *
  * algorithmic sketch
  * - enqueue message in actor queue
+ * + - the mailbox is a lock-free multi-producer/single-consumer stack,
+ * + - senders push messages with a CAS, and the sender that flips the
+ * + - isExecuting flag from idle to executing schedules the actor
  * - execution is done by a special ExecAllMessages task
  * + - this task is submitted to the f/j pool
  * + - once it is executing, it goes to the actor,
- * + - grabs the current mailbox
- * + - and sequentially executes all messages
+ * + - grabs the current mailbox with a single atomic swap
+ * + - and sequentially executes all messages in the order they were sent
  */
 public class Actor implements Activity {
 
@@ -72,18 +80,31 @@ public class Actor implements Activity {
     }
   }
 
-  private static final int MAILBOX_EXTENSION_SIZE = 8;
+  private static final AtomicReferenceFieldUpdater<Actor, EventualMessage> MAILBOX =
+      AtomicReferenceFieldUpdater.newUpdater(Actor.class, EventualMessage.class, "mailbox");
+
+  private static final AtomicIntegerFieldUpdater<Actor> IS_EXECUTING =
+      AtomicIntegerFieldUpdater.newUpdater(Actor.class, "isExecuting");
+
+  private static final int IDLE      = 0;
+  private static final int EXECUTING = 1;
 
   /**
    * Buffer for incoming messages.
-   * Optimized for cases where the mailbox contains only one message.
-   * Further messages are stored in moreMessages, which is initialized lazily.
+   * The mailbox is the top of a stack of messages, linked via
+   * {@link EventualMessage#nextInMailbox}, i.e., the most recently sent
+   * message comes first. Senders push with a CAS, the executor takes the
+   * whole stack with {@link #takeMailbox()}.
    */
-  protected EventualMessage               firstMessage;
-  protected ObjectBuffer<EventualMessage> mailboxExtension;
+  protected volatile EventualMessage mailbox;
 
-  /** Flag to indicate whether there is currently a F/J task executing. */
-  protected boolean isExecuting;
+  /**
+   * Flag to indicate whether there is currently a F/J task executing.
+   * Only the thread that manages to change it from {@link #IDLE} to
+   * {@link #EXECUTING} is allowed to schedule the executor, which ensures
+   * that each actor has at most one active task.
+   */
+  private volatile int isExecuting;
 
   /** Is scheduled on the pool, and executes messages to this actor. */
   protected final ExecAllMessages executor;
@@ -97,7 +118,7 @@ public class Actor implements Activity {
   }
 
   protected Actor(final VM vm) {
-    isExecuting = false;
+    isExecuting = IDLE;
     executor = createExecutor(vm);
   }
 
@@ -111,7 +132,7 @@ public class Actor implements Activity {
   }
 
   public final Object wrapForUse(final Object o, final Actor owner,
-      final Map<SAbstractObject, SAbstractObject> transferedObjects) {
+      final TransferMap transferedObjects) {
     VM.thisMethodNeedsToBeOptimized("This should probably be optimized");
 
     if (this == owner) {
@@ -166,12 +187,11 @@ public class Actor implements Activity {
    * This is the main method to be used in this API.
    */
   @TruffleBoundary
-  public synchronized void send(final EventualMessage msg,
-      final ForkJoinPool actorPool) {
+  public void send(final EventualMessage msg, final ForkJoinPool actorPool) {
     doSend(msg, actorPool);
   }
 
-  public synchronized void sendInitialStartMessage(final EventualMessage msg,
+  public void sendInitialStartMessage(final EventualMessage msg,
       final ForkJoinPool pool) {
     doSend(msg, pool);
   }
@@ -180,24 +200,98 @@ public class Actor implements Activity {
       final ForkJoinPool actorPool) {
     assert msg.getTarget() == this;
 
-    if (firstMessage == null) {
-      firstMessage = msg;
-    } else {
-      appendToMailbox(msg);
+    appendToMailbox(msg);
+
+    if (tryMarkExecuting()) {
+      execute(actorPool);
     }
+  }
+
+  /**
+   * Send a batch of messages, which are appended to the mailbox at once,
+   * in the order of the list.
+   */
+  public void sendAll(final List<EventualMessage> msgs, final ForkJoinPool actorPool) {
+    appendAllToMailbox(msgs);
 
-    if (!isExecuting) {
-      isExecuting = true;
+    if (tryMarkExecuting()) {
       execute(actorPool);
     }
   }
 
   @TruffleBoundary
-  protected void appendToMailbox(final EventualMessage msg) {
-    if (mailboxExtension == null) {
-      mailboxExtension = new ObjectBuffer<>(MAILBOX_EXTENSION_SIZE);
+  private void appendAllToMailbox(final List<EventualMessage> msgs) {
+    // link the batch like the mailbox, with the last message on top
+    EventualMessage bottom = msgs.get(0);
+    EventualMessage top = bottom;
+    for (int i = 1; i < msgs.size(); i++) {
+      EventualMessage msg = msgs.get(i);
+      assert msg.getTarget() == this;
+      assert msg.nextInMailbox == null : "Message is already in a mailbox";
+      msg.nextInMailbox = top;
+      top = msg;
     }
-    mailboxExtension.append(msg);
+
+    EventualMessage old;
+    do {
+      old = mailbox;
+      bottom.nextInMailbox = old;
+    } while (!MAILBOX.compareAndSet(this, old, top));
+  }
+
+  /**
+   * Push the message onto the mailbox. Safe to be called concurrently by
+   * any number of senders.
+   */
+  @TruffleBoundary
+  protected final void appendToMailbox(final EventualMessage msg) {
+    assert msg.nextInMailbox == null : "Message is already in a mailbox";
+    EventualMessage top;
+    do {
+      top = mailbox;
+      msg.nextInMailbox = top;
+    } while (!MAILBOX.compareAndSet(this, top, msg));
+  }
+
+  /**
+   * Take all messages currently in the mailbox.
+   *
+   * @return the oldest message, further messages are linked via
+   *         {@link EventualMessage#nextInMailbox} in the order they were sent,
+   *         or {@code null} if the mailbox is empty
+   */
+  protected final EventualMessage takeMailbox() {
+    EventualMessage top = MAILBOX.getAndSet(this, null);
+
+    // the mailbox is a stack, reverse it to restore the sending order
+    EventualMessage first = null;
+    while (top != null) {
+      EventualMessage next = top.nextInMailbox;
+      top.nextInMailbox = first;
+      first = top;
+      top = next;
+    }
+    return first;
+  }
+
+  protected final boolean isMailboxEmpty() {
+    return mailbox == null;
+  }
+
+  /**
+   * @return true, if the caller is responsible for scheduling the executor
+   */
+  protected final boolean tryMarkExecuting() {
+    return isExecuting == IDLE && IS_EXECUTING.compareAndSet(this, IDLE, EXECUTING);
+  }
+
+  protected final boolean isExecuting() {
+    return isExecuting == EXECUTING;
+  }
+
+  private void markIdle() {
+    assert isExecuting == EXECUTING;
+    isExecuting = IDLE;
   }
 
   public static final class ExecutorRootNode extends RootNode {
@@ -222,10 +316,17 @@ public class Actor implements Activity {
     protected final Actor actor;
     protected final VM    vm;
 
-    protected EventualMessage               firstMessage;
-    protected ObjectBuffer<EventualMessage> mailboxExtension;
+    /**
+     * The messages currently being processed, in the order they were sent,
+     * and linked via {@link EventualMessage#nextInMailbox}.
+     */
+    protected EventualMessage firstMessage;
+
+    /** Start of the current turn, only used with a time quantum. */
+    private long turnStartNanos;
 
-    protected int size = 0;
+    /** Messages processed in the current turn. */
+    private int messagesInTurn;
 
     protected ExecAllMessages(final Actor actor, final VM vm) {
       this.actor = actor;
@@ -258,9 +359,18 @@ public class Actor implements Activity {
         KomposTrace.currentActivity(actor);
       }
 
+      startTurn();
+      t.turns += 1;
+
+      boolean yielded = false;
       try {
-        while (getCurrentMessagesOrCompleteExecution()) {
+        // messages left over from the previous turn are processed first
+        while (firstMessage != null || getCurrentMessagesOrCompleteExecution()) {
           processCurrentMessages(t, dbg);
+          if (firstMessage != null) {
+            yielded = true;
+            break;
+          }
         }
       } finally {
         ObjectTransitionSafepoint.INSTANCE.unregister();
@@ -270,27 +380,69 @@ public class Actor implements Activity {
         t.swapTracingBufferIfRequestedUnsync();
       }
       t.currentlyExecutingActor = null;
+
+      if (yielded) {
+        // the actor remains marked as executing, so no sender schedules it
+        // concurrently, we just give other actors a chance to run first
+        t.yields += 1;
+        actor.execute(vm.getActorPool());
+      }
+    }
+
+    private void startTurn() {
+      messagesInTurn = 0;
+      if (VmSettings.ACTOR_QUANTUM_NANOS > 0) {
+        turnStartNanos = System.nanoTime();
+      }
+    }
+
+    /**
+     * Each turn processes at least one message. Afterwards, it ends when
+     * either the configured number of messages or the configured time
+     * quantum is used up.
+     */
+    private boolean isQuantumUsedUp() {
+      if (messagesInTurn == 0) {
+        return false;
+      }
+      if (VmSettings.ACTOR_QUANTUM_MESSAGES > 0
+          && messagesInTurn >= VmSettings.ACTOR_QUANTUM_MESSAGES) {
+        return true;
+      }
+      return VmSettings.ACTOR_QUANTUM_NANOS > 0
+          && System.nanoTime() - turnStartNanos >= VmSettings.ACTOR_QUANTUM_NANOS;
     }
 
     protected void processCurrentMessages(final ActorProcessingThread currentThread,
         final WebDebugger dbg) {
-      assert size > 0;
+      assert firstMessage != null;
 
       if (VmSettings.SNAPSHOTS_ENABLED && !VmSettings.TEST_SNAPSHOTS) {
         SnapshotBuffer sb = currentThread.getSnapshotBuffer();
         sb.getRecord().handleTodos(sb);
-        firstMessage.serialize(sb);
       }
-      execute(firstMessage, currentThread, dbg);
 
-      if (size > 1) {
-        for (EventualMessage msg : mailboxExtension) {
-          if (VmSettings.SNAPSHOTS_ENABLED && !VmSettings.TEST_SNAPSHOTS) {
-            msg.serialize(currentThread.getSnapshotBuffer());
-          }
-          execute(msg, currentThread, dbg);
+      EventualMessage msg = firstMessage;
+      while (msg != null) {
+        if ((VmSettings.ACTOR_QUANTUM_MESSAGES > 0 || VmSettings.ACTOR_QUANTUM_NANOS > 0)
+            && isQuantumUsedUp()) {
+          // keep the remaining messages for the next turn
+          firstMessage = msg;
+          return;
+        }
+
+        EventualMessage next = msg.nextInMailbox;
+        msg.nextInMailbox = null;
+
+        if (VmSettings.SNAPSHOTS_ENABLED && !VmSettings.TEST_SNAPSHOTS) {
+          msg.serialize(currentThread.getSnapshotBuffer());
         }
+        execute(msg, currentThread, dbg);
+        messagesInTurn += 1;
+        currentThread.processedMessages += 1;
+        msg = next;
       }
+      firstMessage = null;
     }
 
     private void execute(final EventualMessage msg,
@@ -314,28 +466,28 @@ public class Actor implements Activity {
     }
 
     private boolean getCurrentMessagesOrCompleteExecution() {
-      synchronized (actor) {
-        assert actor.isExecuting;
-        firstMessage = actor.firstMessage;
-        mailboxExtension = actor.mailboxExtension;
-
-        if (firstMessage == null) {
-          assert mailboxExtension == null;
-          // complete execution after all messages are processed
-          actor.isExecuting = false;
-          if (VmSettings.KOMPOS_TRACING) {
-            KomposTrace.clearCurrentActivity(actor);
-          }
-          size = 0;
+      assert actor.isExecuting();
+      firstMessage = actor.takeMailbox();
+
+      while (firstMessage == null) {
+        // complete execution after all messages are processed
+        if (VmSettings.KOMPOS_TRACING) {
+          KomposTrace.clearCurrentActivity(actor);
+        }
+        actor.markIdle();
+
+        // a sender might have added a message after we took the mailbox,
+        // but before we marked the actor as idle, and then did not schedule
+        // the actor, because it was still executing
+        if (actor.isMailboxEmpty() || !actor.tryMarkExecuting()) {
           return false;
-        } else {
-          size = 1 + ((mailboxExtension == null) ? 0 : mailboxExtension.size());
         }
 
-        actor.firstMessage = null;
-        actor.mailboxExtension = null;
+        if (VmSettings.KOMPOS_TRACING) {
+          KomposTrace.currentActivity(actor);
+        }
+        firstMessage = actor.takeMailbox();
       }
-
       return true;
     }
   }
@@ -343,12 +495,54 @@ public class Actor implements Activity {
   @TruffleBoundary
   protected void execute(final ForkJoinPool actorPool) {
     try {
-      actorPool.execute(executor);
+      if (VmSettings.ACTOR_AFFINITY_SCHEDULING && isWorkerOf(actorPool)) {
+        new AffineExecution(executor).fork();
+      } else {
+        actorPool.execute(executor);
+      }
     } catch (RejectedExecutionException e) {
       throw new ThreadDeath();
     }
   }
 
+  private static boolean isWorkerOf(final ForkJoinPool actorPool) {
+    Thread t = Thread.currentThread();
+    return t instanceof ActorProcessingThread
+        && ((ActorProcessingThread) t).getPool() == actorPool;
+  }
+
+  /**
+   * Used by the affinity scheduler to push the executor into the run queue
+   * of the current worker, instead of the shared submission queue of the pool.
+   *
+   * <p>
+   * This means, an actor that receives a message is run on the worker of the
+   * sender, as soon as the sender finished its turn, and an actor that yields
+   * stays on its worker. Idle workers steal from the other run queues, which
+   * keeps the load balanced.
+   */
+  private static final class AffineExecution extends RecursiveAction {
+    private static final long serialVersionUID = -2532962745049412548L;
+
+    private final ExecAllMessages executor;
+
+    AffineExecution(final ExecAllMessages executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        executor.run();
+      } catch (Throwable e) {
+        // a forked task would only record the exception, so, report it
+        // like the pool does for submitted runnables
+        Thread t = Thread.currentThread();
+        t.getUncaughtExceptionHandler().uncaughtException(t, e);
+      }
+    }
+  }
+
   @Override
   public void setStepToNextTurn(final boolean val) {}
 
@@ -368,15 +562,98 @@ public class Actor implements Activity {
   }
 
   public static final class ActorProcessingThread extends TracingActivityThread {
+    private static final Set<ActorProcessingThread> liveThreads =
+        ConcurrentHashMap.newKeySet();
+
+    /** Messages and bytes of threads that terminated, guarded by liveThreads. */
+    private static long retiredMessages;
+    private static long retiredAllocatedBytes;
+    private static long retiredTurns;
+    private static long retiredYields;
+
+    /** Null if the JVM does not measure the allocation of threads. */
+    private static final com.sun.management.ThreadMXBean allocationBean =
+        getAllocationBean();
 
     public EventualMessage currentMessage;
 
     protected Actor currentlyExecutingActor;
 
+    /**
+     * Only written by this thread, and read racily by
+     * {@link #getMessageStatistics()}, which is fine for statistics.
+     */
+    private long processedMessages;
+
+    /** Number of turns, i.e., times an actor was executed on this thread. */
+    private long turns;
+
+    /** Number of turns that ended because the actor's quantum was used up. */
+    private long yields;
+
     protected ActorProcessingThread(final ForkJoinPool pool, final VM vm) {
       super(pool, vm);
     }
 
+    @Override
+    protected void onStart() {
+      super.onStart();
+      liveThreads.add(this);
+    }
+
+    @Override
+    protected void onTermination(final Throwable exception) {
+      synchronized (liveThreads) {
+        retiredMessages += processedMessages;
+        retiredAllocatedBytes += getAllocatedBytes(this);
+        retiredTurns += turns;
+        retiredYields += yields;
+        liveThreads.remove(this);
+      }
+      super.onTermination(exception);
+    }
+
+    /**
+     * @return the number of messages processed by all actor threads so far,
+     *         the number of bytes they allocated, which is -1 if the JVM
+     *         does not measure the allocation of threads, the number of
+     *         turns, and the number of turns that yielded the thread
+     */
+    @TruffleBoundary
+    public static long[] getMessageStatistics() {
+      synchronized (liveThreads) {
+        long messages = retiredMessages;
+        long bytes = retiredAllocatedBytes;
+        long turns = retiredTurns;
+        long yields = retiredYields;
+        for (ActorProcessingThread t : liveThreads) {
+          messages += t.processedMessages;
+          bytes += getAllocatedBytes(t);
+          turns += t.turns;
+          yields += t.yields;
+        }
+        return new long[] {messages, allocationBean == null ? -1 : bytes, turns, yields};
+      }
+    }
+
+    private static long getAllocatedBytes(final Thread t) {
+      if (allocationBean == null) {
+        return 0;
+      }
+      return Math.max(0, allocationBean.getThreadAllocatedBytes(t.getId()));
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean b = (com.sun.management.ThreadMXBean) bean;
+        if (b.isThreadAllocatedMemorySupported() && b.isThreadAllocatedMemoryEnabled()) {
+          return b;
+        }
+      }
+      return null;
+    }
+
     @Override
     public Activity getActivity() {
       if (currentMessage == null) {
@@ -44,6 +44,12 @@ public abstract class EventualMessage {
    */
   private final boolean haltOnResolver;
 
+  /**
+   * Link to the next message in the mailbox of the target actor.
+   * Only to be used by {@link Actor}, which publishes the link with a CAS.
+   */
+  EventualMessage nextInMailbox;
+
   protected EventualMessage(final Object[] args,
       final SResolver resolver, final RootCallTarget onReceive,
       final boolean haltOnReceive, final boolean haltOnResolver) {
@@ -464,6 +470,21 @@ public abstract class EventualMessage {
     return args;
   }
 
+  /**
+   * The next message of the batch currently taken from the mailbox.
+   */
+  public final EventualMessage getNextInMailbox() {
+    return nextInMailbox;
+  }
+
+  /**
+   * Unlink the message from the batch taken from the mailbox, before it is
+   * executed or kept for later.
+   */
+  public final void clearNextInMailbox() {
+    nextInMailbox = null;
+  }
+
   /**
    * Indicates that execution should stop and yield to the debugger,
    * before the message is processed.
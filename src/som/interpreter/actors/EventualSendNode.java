@@ -294,6 +294,13 @@ public class EventualSendNode extends ExprWithTagsNode {
       return result;
     }
 
+    /*
+     * When the value of the send is not used, which is known statically, the
+     * following specializations send the message without creating a promise
+     * and resolver. The only allocations are then the argument array, which is
+     * passed on to the receiver unchanged, and the message itself.
+     */
+
     @Specialization(guards = {"!isResultUsed()", "isFarRefRcvr(args)"})
     public final Object toFarRefWithoutResultPromise(final Object[] args) {
       Actor owner = EventualMessage.getActorCurrentMessageIsExecutionOn();
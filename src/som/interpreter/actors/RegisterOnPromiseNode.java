@@ -19,38 +19,11 @@ public abstract class RegisterOnPromiseNode {
     public void register(final SPromise promise, final PromiseMessage msg,
         final Actor current) {
 
-      Object promiseValue;
-      // LOCKING NOTE: this handling of the check for resolution and the
-      // registering of the callback/msg needs to be done in the same step
-      // otherwise, we are opening a race between completion and processing
-      // of handlers. We can split the case for a resolved promise out, because
-      // we need to schedule the callback/msg directly anyway
-      synchronized (promise) {
-        if (!promise.isResolvedUnsync()) {
-          if (promise.isErroredUnsync()) {
-            // short cut on error, this promise will never resolve successfully, so,
-            // just return promise, don't use isSomehowResolved(), because the other
-            // case are not correct
-            return;
-          }
-          promise.registerWhenResolvedUnsynced(msg);
-          return;
-        } else {
-          promiseValue = promise.value;
-          assert promiseValue != null;
-        }
-      }
-
-      // LOCKING NOTE:
-      // The schedule.execute() is moved out of the synchronized(promise) block,
-      // because it leads to wrapping of arguments, which needs to look promises
-      // and thus, could lead to a deadlock.
-      //
-      // However, we still need to wait until any other thread is done with
-      // resolving the promise, thus we lock on the promise's value, which is
-      // used to group setting the promise resolution state and processing the
-      // message.
-      synchronized (promiseValue) {
+      // the promise takes care of scheduling the message on resolution,
+      // unless it is already resolved, in which case we schedule it directly.
+      // If the promise is still scheduling earlier callbacks, it keeps the
+      // message, to preserve the order of messages
+      if (promise.registerWhenResolved(msg)) {
         if (promise.getHaltOnResolution()) {
           msg.enableHaltOnReceive();
         }
@@ -69,38 +42,8 @@ public abstract class RegisterOnPromiseNode {
     public void register(final SPromise promise, final PromiseMessage msg,
         final Actor current) {
 
-      Object promiseValue;
-      // LOCKING NOTE: this handling of the check for resolution and the
-      // registering of the callback/msg needs to be done in the same step
-      // otherwise, we are opening a race between completion and processing
-      // of handlers. We can split the case for a resolved promise out, because
-      // we need to schedule the callback/msg directly anyway
-      synchronized (promise) {
-        if (!promise.isErroredUnsync()) {
-          if (promise.isResolvedUnsync()) {
-            // short cut on resolved, this promise will never error, so,
-            // just return promise, don't use isSomehowResolved(), because the other
-            // case are not correct
-            return;
-          }
-          promise.registerOnErrorUnsynced(msg);
-          return;
-        } else {
-          promiseValue = promise.value;
-          assert promiseValue != null;
-        }
-      }
-
-      // LOCKING NOTE:
-      // The schedule.execute() is moved out of the synchronized(promise) block,
-      // because it leads to wrapping of arguments, which needs to look promises
-      // and thus, could lead to a deadlock.
-      //
-      // However, we still need to wait until any other thread is done with
-      // resolving the promise, thus we lock on the promise's value, which is
-      // used to group setting the promise resolution state and processing the
-      // message.
-      synchronized (promiseValue) {
+      // see RegisterWhenResolved
+      if (promise.registerOnError(msg)) {
         schedule.execute(promise, msg, current);
       }
     }
@@ -1,7 +1,9 @@
 package som.interpreter.actors;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -45,30 +47,79 @@ public class SPromise extends SObjectWithClass {
       final Resolution state) {
     assert VmSettings.SNAPSHOTS_ENABLED;
     SPromise prom = createPromise(owner, false, false, null);
-    prom.resolutionState = state;
-    prom.value = value;
+    prom.state = new State(state, value, null, false);
     return prom;
   }
 
-  // THREAD-SAFETY: these fields are subject to race conditions and should only
-  // be accessed when under the SPromise(this) lock
-  // currently, we minimize locking by first setting the result
-  // value and resolved flag, and then release the lock again
-  // this makes sure that the promise owner directly schedules
-  // call backs, and does not block the resolver to schedule
-  // call backs here either. After resolving the future,
-  // whenResolved and whenBroken should only be accessed by the
-  // resolver actor
-  protected PromiseMessage            whenResolved;
-  protected ArrayList<PromiseMessage> whenResolvedExt;
-  protected PromiseMessage            onError;
-  protected ArrayList<PromiseMessage> onErrorExt;
+  /**
+   * The resolution state of a promise together with the callbacks, messages,
+   * and chained promises that still need to be scheduled.
+   *
+   * <p>
+   * States are immutable and replaced atomically, which avoids locking the
+   * promise to register handlers or to resolve it. A promise goes through the
+   * following states:
+   *
+   * <ul>
+   * <li>unresolved (or chained): registrations are pushed onto the stack, and
+   * are scheduled by the resolver</li>
+   * <li>resolved and scheduling: the resolver took the registrations and
+   * schedules them. New registrations are still pushed, and taken by the
+   * resolver when it is done with the previous ones. This guarantees that
+   * registrations are scheduled in the order they were made.</li>
+   * <li>resolved: registrations are scheduled directly by the registering
+   * actor</li>
+   * </ul>
+   */
+  private static final class State {
+    private final Resolution   resolution;
+    private final Object       value;
+    private final Registration registrations;
+    private final boolean      scheduling;
+
+    State(final Resolution resolution, final Object value,
+        final Registration registrations, final boolean scheduling) {
+      this.resolution = resolution;
+      this.value = value;
+      this.registrations = registrations;
+      this.scheduling = scheduling;
+    }
+
+    boolean isCompleted() {
+      return SPromise.isCompleted(resolution);
+    }
+
+    State push(final int kind, final Object handler) {
+      return new State(resolution, value,
+          new Registration(kind, handler, registrations), scheduling);
+    }
+  }
+
+  /**
+   * An immutable stack of registered handlers, the latest registration first.
+   */
+  private static final class Registration {
+    private static final int WHEN_RESOLVED = 0;
+    private static final int ON_ERROR      = 1;
+    private static final int CHAINED       = 2;
+
+    private final int          kind;
+    private final Object       handler;
+    private final Registration next;
+
+    Registration(final int kind, final Object handler, final Registration next) {
+      this.kind = kind;
+      this.handler = handler;
+      this.next = next;
+    }
+  }
+
+  private static final State UNRESOLVED = new State(Resolution.UNRESOLVED, null, null, false);
 
-  protected SPromise            chainedPromise;
-  protected ArrayList<SPromise> chainedPromiseExt;
+  private static final AtomicReferenceFieldUpdater<SPromise, State> STATE =
+      AtomicReferenceFieldUpdater.newUpdater(SPromise.class, State.class, "state");
 
-  protected Object     value;
-  protected Resolution resolutionState;
+  private volatile State state;
 
   /** The owner of this promise, on which all call backs are scheduled. */
   protected final Actor owner;
@@ -91,15 +142,16 @@ public class SPromise extends SObjectWithClass {
     this.haltOnResolver = haltOnResolver;
     this.haltOnResolution = haltOnResolution;
 
-    resolutionState = Resolution.UNRESOLVED;
+    state = UNRESOLVED;
     assert promiseClass != null;
   }
 
   @Override
   public String toString() {
+    State s = state;
     String r = "Promise[" + owner.toString();
-    r += ", " + resolutionState.name();
-    return r + (value == null ? "" : ", " + value.toString()) + "]";
+    r += ", " + s.resolution.name();
+    return r + (s.value == null ? "" : ", " + s.value.toString()) + "]";
   }
 
   @Override
@@ -114,9 +166,10 @@ public class SPromise extends SObjectWithClass {
    */
   public final Object getValueForSnapshot() {
     assert VmSettings.SNAPSHOTS_ENABLED;
-    assert resolutionState == Resolution.SUCCESSFUL || resolutionState == Resolution.ERRONEOUS;
-    assert value != null;
-    return value;
+    State s = state;
+    assert s.isCompleted();
+    assert s.value != null;
+    return s.value;
   }
 
   /**
@@ -125,9 +178,10 @@ public class SPromise extends SObjectWithClass {
    */
   public final void setValueFromSnapshot(final Object value) {
     assert VmSettings.SNAPSHOTS_ENABLED;
-    assert resolutionState == Resolution.SUCCESSFUL || resolutionState == Resolution.ERRONEOUS;
+    State s = state;
+    assert s.isCompleted();
     assert value != null;
-    this.value = value;
+    state = new State(s.resolution, value, null, false);
   }
 
   public long getPromiseId() {
@@ -152,54 +206,71 @@ public class SPromise extends SObjectWithClass {
     return promiseClass;
   }
 
-  public final synchronized SPromise getChainedPromiseFor(final Actor target) {
+  public final SPromise getChainedPromiseFor(final Actor target) {
     SPromise remote = SPromise.createPromise(target, haltOnResolver,
         haltOnResolution, null);
     if (VmSettings.KOMPOS_TRACING) {
       KomposTrace.promiseChained(getPromiseId(), remote.getPromiseId());
     }
-    if (isCompleted()) {
-      remote.value = value;
-      remote.resolutionState = resolutionState;
-      if (VmSettings.ACTOR_TRACING || VmSettings.REPLAY) {
-        ((STracingPromise) remote).resolvingActor = ((STracingPromise) this).resolvingActor;
+
+    // remote is not yet shared, so it can be marked directly
+    remote.state = new State(Resolution.CHAINED, null, null, false);
+
+    State s;
+    do {
+      s = state;
+      if (s.isCompleted()) {
+        remote.state = new State(s.resolution, s.value, null, false);
+        if (VmSettings.ACTOR_TRACING || VmSettings.REPLAY) {
+          ((STracingPromise) remote).resolvingActor = ((STracingPromise) this).resolvingActor;
+        }
+        return remote;
       }
-    } else {
-      addChainedPromise(remote);
-    }
+    } while (!STATE.compareAndSet(this, s, s.push(Registration.CHAINED, remote)));
     return remote;
   }
 
-  public final void registerWhenResolvedUnsynced(final PromiseMessage msg) {
-    if (whenResolved == null) {
-      whenResolved = msg;
-    } else {
-      registerMoreWhenResolved(msg);
-    }
-  }
-
+  /**
+   * Register a callback or message to be scheduled on successful resolution.
+   *
+   * @return true, if the promise is already resolved and the caller needs to
+   *         schedule the message itself
+   */
   @TruffleBoundary
-  private void registerMoreWhenResolved(final PromiseMessage msg) {
-    if (whenResolvedExt == null) {
-      whenResolvedExt = new ArrayList<>(2);
-    }
-    whenResolvedExt.add(msg);
-  }
-
-  public final void registerOnErrorUnsynced(final PromiseMessage msg) {
-    if (onError == null) {
-      onError = msg;
-    } else {
-      registerMoreOnError(msg);
-    }
+  public final boolean registerWhenResolved(final PromiseMessage msg) {
+    return register(Registration.WHEN_RESOLVED, msg, Resolution.SUCCESSFUL);
   }
 
+  /**
+   * Register a callback to be scheduled when the promise is resolved with an
+   * error.
+   *
+   * @return true, if the promise is already erroneous and the caller needs to
+   *         schedule the callback itself
+   */
   @TruffleBoundary
-  private void registerMoreOnError(final PromiseMessage msg) {
-    if (onErrorExt == null) {
-      onErrorExt = new ArrayList<>(2);
-    }
-    onErrorExt.add(msg);
+  public final boolean registerOnError(final PromiseMessage msg) {
+    return register(Registration.ON_ERROR, msg, Resolution.ERRONEOUS);
+  }
+
+  private boolean register(final int kind, final PromiseMessage msg,
+      final Resolution scheduledOn) {
+    State s;
+    do {
+      s = state;
+      if (s.isCompleted()) {
+        if (s.resolution != scheduledOn) {
+          // the message is never going to be scheduled
+          return false;
+        }
+        if (!s.scheduling) {
+          return true;
+        }
+        // the resolver is still scheduling earlier registrations,
+        // and will pick this one up afterwards
+      }
+    } while (!STATE.compareAndSet(this, s, s.push(kind, msg)));
+    return false;
   }
 
   protected final void scheduleCallbacksOnResolution(final Object result,
@@ -220,95 +291,137 @@ public class SPromise extends SObjectWithClass {
     msg.getTarget().send(msg, actorPool);
   }
 
-  public final synchronized void addChainedPromise(final SPromise remote) {
+  /**
+   * Chain the given promise to this one, so that it is resolved with the
+   * same value.
+   *
+   * @return true, if this promise is already completed, and the caller needs
+   *         to resolve the remote promise itself
+   */
+  @TruffleBoundary
+  public final boolean addChainedPromise(final SPromise remote) {
     assert remote != null;
-    remote.resolutionState = Resolution.CHAINED;
-    if (chainedPromise == null) {
-      chainedPromise = remote;
-    } else {
-      addMoreChainedPromises(remote);
-    }
+    State s;
+    do {
+      s = state;
+      if (s.isCompleted()) {
+        return true;
+      }
+      remote.markChained();
+    } while (!STATE.compareAndSet(this, s, s.push(Registration.CHAINED, remote)));
+    return false;
   }
 
-  @TruffleBoundary
-  private void addMoreChainedPromises(final SPromise promise) {
-    if (chainedPromiseExt == null) {
-      chainedPromiseExt = new ArrayList<>(2);
-    }
-    chainedPromiseExt.add(promise);
+  private void markChained() {
+    State s;
+    do {
+      s = state;
+      if (s.resolution != Resolution.UNRESOLVED) {
+        return;
+      }
+    } while (!STATE.compareAndSet(this, s,
+        new State(Resolution.CHAINED, null, s.registrations, false)));
+  }
+
+  /**
+   * Set the resolution state and value, and take the registrations made so
+   * far. If there are any, the promise remains in the scheduling state until
+   * {@link #takeLateRegistrationsOrComplete()} returns null.
+   */
+  private Registration startResolution(final Resolution type, final Object wrapped) {
+    State s;
+    State resolved;
+    do {
+      s = state;
+      assert !s.isCompleted() : "Not sure yet what to do with re-resolving of promises? just ignore it? Error?";
+      resolved = new State(type, wrapped, null, s.registrations != null);
+    } while (!STATE.compareAndSet(this, s, resolved));
+    return s.registrations;
+  }
+
+  /**
+   * Take the registrations made while the resolver was scheduling, or, if
+   * there are none, leave the scheduling state.
+   */
+  private Registration takeLateRegistrationsOrComplete() {
+    State s;
+    do {
+      s = state;
+      assert s.isCompleted() && s.scheduling;
+    } while (!STATE.compareAndSet(this, s,
+        new State(s.resolution, s.value, null, s.registrations != null)));
+    return s.registrations;
   }
 
   /**
    * @return true, if it has a valid value, either successful or erroneous
    */
-  public final synchronized boolean isCompleted() {
-    return resolutionState == Resolution.SUCCESSFUL || resolutionState == Resolution.ERRONEOUS;
+  public final boolean isCompleted() {
+    return state.isCompleted();
   }
 
   public static final boolean isCompleted(final Resolution result) {
     return result == Resolution.SUCCESSFUL || result == Resolution.ERRONEOUS;
   }
 
-  /** Internal Helper, only to be used properly synchronized. */
-  public final Resolution getResolutionStateUnsync() {
-    return resolutionState;
+  public final Resolution getResolutionState() {
+    return state.resolution;
   }
 
   public final boolean assertNotCompleted() {
-    assert !isCompleted() : "Not sure yet what to do with re-resolving of promises? just ignore it? Error?";
-    assert value == null : "If it isn't resolved yet, it shouldn't have a value";
+    State s = state;
+    assert !s.isCompleted() : "Not sure yet what to do with re-resolving of promises? just ignore it? Error?";
+    assert s.value == null : "If it isn't resolved yet, it shouldn't have a value";
     return true;
   }
 
-  /** Internal Helper, only to be used properly synchronized. */
-  final boolean isResolvedUnsync() {
-    return resolutionState == Resolution.SUCCESSFUL;
-  }
-
-  /** Internal Helper, only to be used properly synchronized. */
-  public final boolean isErroredUnsync() {
-    return resolutionState == Resolution.ERRONEOUS;
+  public final boolean isErrored() {
+    return state.resolution == Resolution.ERRONEOUS;
   }
 
-  /** Internal Helper, only to be used properly synchronized. */
-  final Object getValueUnsync() {
-    return value;
+  /** @return the value of a completed promise, or null */
+  final Object getValue() {
+    return state.value;
   }
 
-  /** Do not use for things other than serializing Promises, requires synchronization. */
-  public PromiseMessage getWhenResolvedUnsync() {
-    assert VmSettings.SNAPSHOTS_ENABLED;
-    return whenResolved;
-  }
-
-  /** Do not use for things other than serializing Promises, requires synchronization. */
-  public ArrayList<PromiseMessage> getWhenResolvedExtUnsync() {
-    assert VmSettings.SNAPSHOTS_ENABLED;
-    return whenResolvedExt;
-  }
-
-  /** Do not use for things other than serializing Promises, requires synchronization. */
-  public PromiseMessage getOnError() {
-    assert VmSettings.SNAPSHOTS_ENABLED;
-    return onError;
-  }
-
-  /** Do not use for things other than serializing Promises, requires synchronization. */
-  public ArrayList<PromiseMessage> getOnErrorExtUnsync() {
-    assert VmSettings.SNAPSHOTS_ENABLED;
-    return onErrorExt;
+  /**
+   * The handlers registered on an unresolved promise, in registration order.
+   * Do not use for things other than serializing Promises.
+   */
+  public static final class PendingHandlers {
+    public final ArrayList<PromiseMessage> whenResolved = new ArrayList<>();
+    public final ArrayList<PromiseMessage> onError      = new ArrayList<>();
+    public final ArrayList<SPromise>       chained      = new ArrayList<>();
   }
 
-  /** Do not use for things other than serializing Promises, requires synchronization. */
-  public SPromise getChainedPromiseUnsync() {
+  /** Do not use for things other than serializing Promises. */
+  public final PendingHandlers getPendingHandlersForSnapshot() {
     assert VmSettings.SNAPSHOTS_ENABLED;
-    return chainedPromise;
+    PendingHandlers result = new PendingHandlers();
+    for (Registration r : inRegistrationOrder(state.registrations)) {
+      switch (r.kind) {
+        case Registration.WHEN_RESOLVED:
+          result.whenResolved.add((PromiseMessage) r.handler);
+          break;
+        case Registration.ON_ERROR:
+          result.onError.add((PromiseMessage) r.handler);
+          break;
+        default:
+          assert r.kind == Registration.CHAINED;
+          result.chained.add((SPromise) r.handler);
+          break;
+      }
+    }
+    return result;
   }
 
-  /** Do not use for things other than serializing Promises, requires synchronization. */
-  public ArrayList<SPromise> getChainedPromiseExtUnsync() {
-    assert VmSettings.SNAPSHOTS_ENABLED;
-    return chainedPromiseExt;
+  private static ArrayList<Registration> inRegistrationOrder(final Registration latest) {
+    ArrayList<Registration> result = new ArrayList<>();
+    for (Registration r = latest; r != null; r = r.next) {
+      result.add(r);
+    }
+    Collections.reverse(result);
+    return result;
   }
 
   public static class STracingPromise extends SPromise {
@@ -394,158 +507,81 @@ public class SPromise extends SObjectWithClass {
       return promise.assertNotCompleted();
     }
 
-    /**
-     * Handles the case when a promise is resolved with a proper value
-     * and previously has been chained with other promises.
-     */
-    // TODO: solve the TODO and then remove the TruffleBoundary, this might even need to go
-    // into a node
-    @TruffleBoundary
-    protected static void resolveChainedPromisesUnsync(final Resolution type,
-        final SPromise promise, final Object result, final Actor current,
-        final ForkJoinPool actorPool, final boolean haltOnResolution,
-        final ValueProfile whenResolvedProfile) {
-      // TODO: we should change the implementation of chained promises to
-      // always move all the handlers to the other promise, then we
-      // don't need to worry about traversing the chain, which can
-      // lead to a stack overflow.
-      // TODO: restore 10000 as parameter in testAsyncDeeplyChainedResolution
-      if (promise.chainedPromise != null) {
-        SPromise chainedPromise = promise.chainedPromise;
-        promise.chainedPromise = null;
-        Object wrapped = chainedPromise.owner.wrapForUse(result, current, null);
-        resolveAndTriggerListenersUnsynced(type, result, wrapped,
-            chainedPromise, current, actorPool,
-            chainedPromise.haltOnResolution, whenResolvedProfile);
-        resolveMoreChainedPromisesUnsynced(type, promise, result, current,
-            actorPool, haltOnResolution, whenResolvedProfile);
-      }
-    }
-
-    /**
-     * Resolve the other promises that has been chained to the first promise.
-     */
-    @TruffleBoundary
-    private static void resolveMoreChainedPromisesUnsynced(final Resolution type,
-        final SPromise promise, final Object result, final Actor current,
-        final ForkJoinPool actorPool, final boolean haltOnResolution,
-        final ValueProfile whenResolvedProfile) {
-      if (promise.chainedPromiseExt != null) {
-        ArrayList<SPromise> chainedPromiseExt = promise.chainedPromiseExt;
-        promise.chainedPromiseExt = null;
-
-        for (SPromise p : chainedPromiseExt) {
-          Object wrapped = p.owner.wrapForUse(result, current, null);
-          resolveAndTriggerListenersUnsynced(type, result, wrapped, p, current,
-              actorPool, haltOnResolution, whenResolvedProfile);
-        }
-      }
-    }
-
     /**
      * Resolution of a promise with a proper value.
      * All callbacks for this promise are going to be scheduled.
      * If the promise was chained with other promises, the chained promises are also resolved.
      */
-    protected static void resolveAndTriggerListenersUnsynced(final Resolution type,
+    protected static void resolveAndTriggerListeners(final Resolution type,
         final Object result, final Object wrapped, final SPromise p, final Actor current,
         final ForkJoinPool actorPool, final boolean haltOnResolution,
         final ValueProfile whenResolvedProfile) {
       assert !(result instanceof SPromise);
+      assert type == Resolution.SUCCESSFUL || type == Resolution.ERRONEOUS;
 
       if (VmSettings.ACTOR_TRACING || VmSettings.REPLAY) {
         ((STracingPromise) p).resolvingActor =
             ((TracingActor) EventualMessage.getActorCurrentMessageIsExecutionOn()).getActorId();
       } else if (VmSettings.KOMPOS_TRACING) {
-        if (type == Resolution.SUCCESSFUL && p.resolutionState != Resolution.CHAINED) {
+        if (type == Resolution.SUCCESSFUL && p.getResolutionState() != Resolution.CHAINED) {
           KomposTrace.promiseResolution(p.getPromiseId(), result);
         } else if (type == Resolution.ERRONEOUS) {
           KomposTrace.promiseError(p.getPromiseId(), result);
         }
       }
 
-      // LOCKING NOTE: we need a synchronization unit that is not the promise,
-      // because otherwise we might end up in a deadlock, but we still need to group the
-      // scheduling of messages and the propagation of the resolution state, otherwise
-      // we might see message ordering issues
-      synchronized (wrapped) {
-        // LOCKING NOTE: We can split the scheduling out of the synchronized
-        // because after resolving the promise, all clients will schedule their
-        // callbacks/msg themselves
-        synchronized (p) {
-          assert p.assertNotCompleted();
-          // TODO: is this correct? can we just resolve chained promises like this? this means,
-          // their state changes twice. I guess it is ok, not sure about synchronization
-          // thought. They are created as 'chained', and then there is the resolute propagation
-          // accross chained promisses
-          // TODO use a special constructor to create chained promises???
-          p.value = wrapped;
-          p.resolutionState = type;
-        }
-
-        if (type == Resolution.SUCCESSFUL) {
-          scheduleAllWhenResolvedUnsync(p, result, current, actorPool, haltOnResolution,
-              whenResolvedProfile);
+      // Registrations made while we schedule are left to us by the
+      // registering actors, so that all handlers are scheduled in order.
+      Registration registrations = p.startResolution(type, wrapped);
+      while (registrations != null) {
+        if (registrations.next == null && registrations.kind == Registration.WHEN_RESOLVED) {
+          if (type == Resolution.SUCCESSFUL) {
+            p.scheduleCallbacksOnResolution(result,
+                whenResolvedProfile.profile((PromiseMessage) registrations.handler), current,
+                actorPool, haltOnResolution);
+          }
         } else {
-          assert type == Resolution.ERRONEOUS;
-          scheduleAllOnErrorUnsync(p, result, current, actorPool, haltOnResolution);
+          scheduleAll(type, p, registrations, result, current, actorPool, haltOnResolution,
+              whenResolvedProfile);
         }
-        resolveChainedPromisesUnsync(type, p, result, current, actorPool, haltOnResolution,
-            whenResolvedProfile);
+        registrations = p.takeLateRegistrationsOrComplete();
       }
     }
 
     /**
-     * Schedule all whenResolved callbacks for the promise.
-     */
-    protected static void scheduleAllWhenResolvedUnsync(final SPromise promise,
-        final Object result, final Actor current, final ForkJoinPool actorPool,
-        final boolean haltOnResolution, final ValueProfile whenResolvedProfile) {
-      if (promise.whenResolved != null) {
-        PromiseMessage whenResolved = promise.whenResolved;
-        ArrayList<PromiseMessage> whenResolvedExt = promise.whenResolvedExt;
-        promise.whenResolved = null;
-        promise.whenResolvedExt = null;
-
-        promise.scheduleCallbacksOnResolution(result,
-            whenResolvedProfile.profile(whenResolved), current, actorPool, haltOnResolution);
-        scheduleExtensions(promise, whenResolvedExt, result, current, actorPool,
-            haltOnResolution);
-      }
-    }
-
-    /**
-     * Schedule callbacks from the whenResolvedExt extension array.
+     * Schedule the callbacks/msgs matching the resolution in the order they
+     * were registered, and then resolve the chained promises.
      */
+    // TODO: solve the TODO and then remove the TruffleBoundary, this might even need to go
+    // into a node
     @TruffleBoundary
-    private static void scheduleExtensions(final SPromise promise,
-        final ArrayList<PromiseMessage> extension,
-        final Object result, final Actor current,
-        final ForkJoinPool actorPool, final boolean haltOnResolution) {
-      if (extension != null) {
-        for (int i = 0; i < extension.size(); i++) {
-          PromiseMessage callbackOrMsg = extension.get(i);
-          promise.scheduleCallbacksOnResolution(result, callbackOrMsg, current,
-              actorPool, haltOnResolution);
+    private static void scheduleAll(final Resolution type, final SPromise promise,
+        final Registration latest, final Object result, final Actor current,
+        final ForkJoinPool actorPool, final boolean haltOnResolution,
+        final ValueProfile whenResolvedProfile) {
+      int scheduledKind = type == Resolution.SUCCESSFUL
+          ? Registration.WHEN_RESOLVED : Registration.ON_ERROR;
+
+      ArrayList<Registration> registrations = inRegistrationOrder(latest);
+      for (Registration r : registrations) {
+        if (r.kind == scheduledKind) {
+          promise.scheduleCallbacksOnResolution(result, (PromiseMessage) r.handler,
+              current, actorPool, haltOnResolution);
         }
       }
-    }
 
-    /**
-     * Schedule all onError callbacks for the promise.
-     */
-    protected static void scheduleAllOnErrorUnsync(final SPromise promise,
-        final Object result, final Actor current,
-        final ForkJoinPool actorPool, final boolean haltOnResolution) {
-      if (promise.onError != null) {
-        PromiseMessage onError = promise.onError;
-        ArrayList<PromiseMessage> onErrorExt = promise.onErrorExt;
-        promise.onError = null;
-        promise.onErrorExt = null;
-
-        promise.scheduleCallbacksOnResolution(result, onError, current, actorPool,
-            haltOnResolution);
-        scheduleExtensions(promise, onErrorExt, result, current, actorPool, haltOnResolution);
+      // TODO: we should change the implementation of chained promises to
+      // always move all the handlers to the other promise, then we
+      // don't need to worry about traversing the chain, which can
+      // lead to a stack overflow.
+      // TODO: restore 10000 as parameter in testAsyncDeeplyChainedResolution
+      for (Registration r : registrations) {
+        if (r.kind == Registration.CHAINED) {
+          SPromise chained = (SPromise) r.handler;
+          Object wrapped = chained.owner.wrapForUse(result, current, null);
+          resolveAndTriggerListeners(type, result, wrapped, chained, current, actorPool,
+              chained.haltOnResolution, whenResolvedProfile);
+        }
       }
     }
   }
@@ -15,8 +15,9 @@ import som.interpreter.actors.EventualMessage.PromiseSendMessage;
 
 
 /**
- * WARNING: This node needs to be used in a context that makes sure
- * that access to the promise is properly synchronized!
+ * Schedules a callback or message for a promise that is already completed.
+ * Callers need to make sure the promise is not scheduling its registered
+ * handlers anymore, see {@link SPromise#registerWhenResolved}.
  */
 public abstract class SchedulePromiseHandlerNode extends Node {
 
@@ -39,7 +40,7 @@ public abstract class SchedulePromiseHandlerNode extends Node {
     assert promise.getOwner() != null;
 
     msg.args[PromiseMessage.PROMISE_VALUE_IDX] = wrapper.execute(
-        promise.getValueUnsync(), msg.originalSender, current);
+        promise.getValue(), msg.originalSender, current);
     msg.originalSender.send(msg, actorPool);
   }
 
@@ -53,7 +54,7 @@ public abstract class SchedulePromiseHandlerNode extends Node {
 
     Actor finalTarget = promise.getOwner();
 
-    Object receiver = rcvrWrapper.execute(promise.getValueUnsync(),
+    Object receiver = rcvrWrapper.execute(promise.getValue(),
         finalTarget, current);
     assert !(receiver instanceof SPromise) : "TODO: handle this case as well?? Is it possible? didn't think about it";
 
@@ -0,0 +1,315 @@
+package som.interpreter.actors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+
+/**
+ * A hierarchical timing wheel to deliver messages to actors after a delay.
+ *
+ * <p>
+ * The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots each. A slot
+ * on level 0 covers one tick of {@value #TICK_MILLIS}ms, and a slot on level
+ * {@code n} covers all slots of level {@code n - 1}. A timeout is put into the
+ * lowest level that can represent its remaining delay. When the wheel reaches
+ * a slot on a higher level, the timeouts in it are cascaded down into the
+ * lower levels. Thus, scheduling and cancellation are O(1), and each timeout
+ * is moved at most {@value #LEVELS} times before it expires.
+ *
+ * <p>
+ * The wheel is owned by a single daemon thread. Other threads only append
+ * new and cancelled timeouts to lock-free queues, which the wheel thread
+ * drains on every tick. Timeouts that expire on the same tick are delivered
+ * to their target actor as one batch.
+ */
+public final class TimerWheel {
+  public static final int TICK_MILLIS = 1;
+
+  private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+
+  private static final int LEVELS    = 4;
+  private static final int SLOT_BITS = 8;
+  private static final int SLOTS     = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+
+  /** Number of ticks the wheel can represent, longer delays are cascaded again. */
+  private static final long MAX_DELAY_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+  public static final class Timeout {
+    private static final int PENDING   = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED   = 2;
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final TimerWheel wheel;
+    private final long       deadline;
+
+    /** The message to be sent on expiration, built by the wheel thread. */
+    private final Function<Timeout, EventualMessage> message;
+
+    private volatile int state;
+
+    // the following fields are only accessed by the wheel thread
+    private Timeout prev;
+    private Timeout next;
+    private int     slot = -1;
+
+    private Timeout(final TimerWheel wheel, final long deadline,
+        final Function<Timeout, EventualMessage> message) {
+      this.wheel = wheel;
+      this.deadline = deadline;
+      this.message = message;
+    }
+
+    /**
+     * Cancel the timeout.
+     *
+     * @return true, if the timeout was still pending and is not going to
+     *         expire, false otherwise
+     */
+    public boolean cancel() {
+      if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+        return false;
+      }
+      wheel.pending.decrementAndGet();
+      wheel.cancelledTimeouts.add(this);
+      return true;
+    }
+
+    public boolean isPending() {
+      return state == PENDING;
+    }
+
+    private boolean expire() {
+      if (!STATE.compareAndSet(this, PENDING, EXPIRED)) {
+        return false;
+      }
+      wheel.pending.decrementAndGet();
+      return true;
+    }
+  }
+
+  private final ForkJoinPool actorPool;
+  private final long         startNanos;
+
+  private final Timeout[] slots = new Timeout[LEVELS * SLOTS];
+
+  private final ConcurrentLinkedQueue<Timeout> newTimeouts       =
+      new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<Timeout> cancelledTimeouts =
+      new ConcurrentLinkedQueue<>();
+
+  private final AtomicLong pending = new AtomicLong();
+
+  private final Thread thread;
+
+  private volatile boolean shutdown;
+
+  /** The last tick that was processed, only accessed by the wheel thread. */
+  private long currentTick;
+
+  /** Expired timeouts of the current tick, grouped by target actor. */
+  private final HashMap<Actor, ArrayList<EventualMessage>> expired = new HashMap<>();
+
+  public TimerWheel(final ForkJoinPool actorPool) {
+    this.actorPool = actorPool;
+    this.startNanos = System.nanoTime();
+
+    thread = new Thread(this::run, "TimerWheel");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Schedule a message to be sent after the given delay. The message is
+   * created only on expiration.
+   */
+  public Timeout schedule(final long delayMillis,
+      final Function<Timeout, EventualMessage> message) {
+    long delayTicks = (Math.max(0, delayMillis) + TICK_MILLIS - 1) / TICK_MILLIS;
+    Timeout t = new Timeout(this, ticksNow() + delayTicks, message);
+
+    newTimeouts.add(t);
+    if (pending.getAndIncrement() == 0) {
+      // the wheel thread parks indefinitely when there is nothing to do
+      LockSupport.unpark(thread);
+    }
+    return t;
+  }
+
+  /** @return the number of timeouts that neither expired nor were cancelled */
+  public long getNumberOfPendingTimeouts() {
+    return pending.get();
+  }
+
+  public void shutdown() {
+    shutdown = true;
+    LockSupport.unpark(thread);
+  }
+
+  private long ticksNow() {
+    return (System.nanoTime() - startNanos) / TICK_NANOS;
+  }
+
+  private void run() {
+    while (!shutdown) {
+      long now = ticksNow();
+
+      if (pending.get() == 0 && newTimeouts.isEmpty()) {
+        // nothing scheduled, the slots only contain cancelled timeouts
+        removeCancelled();
+        currentTick = now;
+        LockSupport.park(this);
+        continue;
+      }
+
+      while (currentTick < now) {
+        // cancel first, so that the slots of the next tick do not contain them
+        removeCancelled();
+        insertNew();
+
+        currentTick += 1;
+        cascade();
+        expireSlot((int) (currentTick & SLOT_MASK));
+        deliverExpired();
+      }
+      insertNew();
+      deliverExpired();
+
+      long nextTickNanos = startNanos + (currentTick + 1) * TICK_NANOS;
+      LockSupport.parkNanos(this, nextTickNanos - System.nanoTime());
+    }
+  }
+
+  private void insertNew() {
+    Timeout t;
+    while ((t = newTimeouts.poll()) != null) {
+      if (t.isPending()) {
+        insert(t);
+      }
+    }
+  }
+
+  private void removeCancelled() {
+    Timeout t;
+    while ((t = cancelledTimeouts.poll()) != null) {
+      if (t.slot >= 0) {
+        unlink(t);
+      }
+    }
+  }
+
+  private void insert(final Timeout t) {
+    long delta = t.deadline - currentTick;
+    if (delta <= 0) {
+      if (t.expire()) {
+        addExpired(t);
+      }
+      return;
+    }
+
+    long deadline = delta > MAX_DELAY_TICKS ? currentTick + MAX_DELAY_TICKS : t.deadline;
+    delta = deadline - currentTick;
+
+    int level = 0;
+    while (delta >= (1L << (SLOT_BITS * (level + 1)))) {
+      level += 1;
+    }
+
+    int slot = level * SLOTS + (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+    t.slot = slot;
+    t.prev = null;
+    t.next = slots[slot];
+    if (t.next != null) {
+      t.next.prev = t;
+    }
+    slots[slot] = t;
+  }
+
+  private void unlink(final Timeout t) {
+    if (t.prev == null) {
+      slots[t.slot] = t.next;
+    } else {
+      t.prev.next = t.next;
+    }
+    if (t.next != null) {
+      t.next.prev = t.prev;
+    }
+    t.prev = null;
+    t.next = null;
+    t.slot = -1;
+  }
+
+  /** Empty the slot, and return the first of its linked timeouts. */
+  private Timeout takeSlot(final int slot) {
+    Timeout t = slots[slot];
+    slots[slot] = null;
+    return t;
+  }
+
+  /** Move the timeouts of the higher levels that start at the current tick down. */
+  private void cascade() {
+    for (int level = 1; level < LEVELS; level++) {
+      long lowerBits = currentTick & ((1L << (SLOT_BITS * level)) - 1);
+      if (lowerBits != 0) {
+        return;
+      }
+
+      int slot = level * SLOTS + (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+      Timeout t = takeSlot(slot);
+      while (t != null) {
+        Timeout next = t.next;
+        t.prev = null;
+        t.next = null;
+        t.slot = -1;
+        if (t.isPending()) {
+          insert(t);
+        }
+        t = next;
+      }
+    }
+  }
+
+  private void expireSlot(final int slot) {
+    Timeout t = takeSlot(slot);
+    while (t != null) {
+      Timeout next = t.next;
+      t.prev = null;
+      t.next = null;
+      t.slot = -1;
+
+      if (t.deadline > currentTick) {
+        // it was cascaded early, because its delay exceeded the wheel
+        insert(t);
+      } else if (t.expire()) {
+        addExpired(t);
+      }
+      t = next;
+    }
+  }
+
+  private void addExpired(final Timeout t) {
+    EventualMessage msg = t.message.apply(t);
+    expired.computeIfAbsent(msg.getTarget(), a -> new ArrayList<>()).add(msg);
+  }
+
+  private void deliverExpired() {
+    if (expired.isEmpty()) {
+      return;
+    }
+    for (Entry<Actor, ArrayList<EventualMessage>> e : expired.entrySet()) {
+      e.getKey().sendAll(e.getValue(), actorPool);
+    }
+    expired.clear();
+  }
+}
@@ -0,0 +1,133 @@
+package som.interpreter.actors;
+
+import java.util.Arrays;
+
+import som.vmobjects.SAbstractObject;
+
+
+/**
+ * Maps the objects of a transferred object graph to their copies, so that
+ * shared objects and cycles are copied only once.
+ *
+ * <p>
+ * The map compares objects by identity, and uses open addressing with linear
+ * probing. Since it is needed for every message that contains transfer
+ * objects, each thread keeps one map, which is cleared after a transfer
+ * instead of being reallocated. See {@link #acquire()} and {@link #release()}.
+ */
+public final class TransferMap {
+  private static final int INITIAL_CAPACITY = 32;
+
+  /** Maps that grew larger than this are not kept for the next transfer. */
+  private static final int MAX_RETAINED_CAPACITY = 4096;
+
+  private static final ThreadLocal<TransferMap> perThread =
+      ThreadLocal.withInitial(TransferMap::new);
+
+  private Object[] keys;
+  private Object[] values;
+  private int      size;
+
+  private boolean inUse;
+
+  TransferMap() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * @return the thread's map, or a new one, if the thread's map is in use
+   *         already
+   */
+  public static TransferMap acquire() {
+    TransferMap map = perThread.get();
+    if (map.inUse) {
+      return new TransferMap();
+    }
+    map.inUse = true;
+    return map;
+  }
+
+  /** Clear the map, so that it can be reused for the next transfer. */
+  public void release() {
+    inUse = false;
+    if (size == 0) {
+      return;
+    }
+
+    if (keys.length > MAX_RETAINED_CAPACITY) {
+      allocate(INITIAL_CAPACITY);
+    } else {
+      Arrays.fill(keys, null);
+      Arrays.fill(values, null);
+      size = 0;
+    }
+  }
+
+  private void allocate(final int capacity) {
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    size = 0;
+  }
+
+  private static int slotFor(final Object key, final int mask) {
+    int h = System.identityHashCode(key);
+    // identity hashes are not multiples of the capacity, but spread anyway
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /** @return the copy of the object, or null, if it was not transferred */
+  public Object get(final Object key) {
+    int mask = keys.length - 1;
+    for (int i = slotFor(key, mask);; i = (i + 1) & mask) {
+      Object k = keys[i];
+      if (k == key) {
+        return values[i];
+      } else if (k == null) {
+        return null;
+      }
+    }
+  }
+
+  public boolean containsKey(final Object key) {
+    return get(key) != null;
+  }
+
+  public void put(final SAbstractObject key, final SAbstractObject value) {
+    assert value != null;
+    if ((size + 1) * 2 > keys.length) {
+      grow();
+    }
+
+    int mask = keys.length - 1;
+    int i = slotFor(key, mask);
+    while (keys[i] != null && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+
+    if (keys[i] == null) {
+      size += 1;
+    }
+    keys[i] = key;
+    values[i] = value;
+  }
+
+  private void grow() {
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(oldKeys.length * 2);
+
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      Object key = oldKeys[j];
+      if (key != null) {
+        int i = slotFor(key, mask);
+        while (keys[i] != null) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = oldValues[j];
+        size += 1;
+      }
+    }
+  }
+}
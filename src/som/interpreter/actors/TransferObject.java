@@ -1,19 +1,11 @@
 package som.interpreter.actors;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import org.graalvm.collections.EconomicMap;
-
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
-import som.compiler.MixinDefinition.SlotDefinition;
-import som.interpreter.objectstorage.ObjectLayout;
 import som.interpreter.objectstorage.StorageLocation;
 import som.vm.NotYetImplementedException;
 import som.vm.constants.Nil;
-import som.vmobjects.SAbstractObject;
 import som.vmobjects.SArray.PartiallyEmptyArray;
 import som.vmobjects.SArray.STransferArray;
 import som.vmobjects.SObject;
@@ -37,7 +29,7 @@ public final class TransferObject {
   @TruffleBoundary
   public static SObjectWithoutFields transfer(final SObjectWithoutFields obj,
       final Actor orgin, final Actor target,
-      final Map<SAbstractObject, SAbstractObject> transferedObjects) {
+      final TransferMap transferedObjects) {
     SObjectWithoutFields newObj = obj.cloneBasics();
     if (transferedObjects != null) {
       transferedObjects.put(obj, newObj);
@@ -47,108 +39,116 @@ public final class TransferObject {
 
   @TruffleBoundary
   public static SObject transfer(final SObject obj, final Actor origin,
-      final Actor target,
-      final Map<SAbstractObject, SAbstractObject> transferedObjects) {
+      final Actor target, final TransferMap transferedObjects) {
     assert obj.getSOMClass()
               .isTransferObject() : "only TransferObjects should be handled here";
     assert !obj.isValue() : "TransferObjects can't be Values";
 
-    ObjectLayout layout = obj.getObjectLayout();
-    EconomicMap<SlotDefinition, StorageLocation> fields = layout.getStorageLocations();
+    // primitive fields are copied with the basics, only objects need a transfer
+    StorageLocation[] locations = obj.getObjectLayout().getObjectStorageLocations();
     SObject newObj = obj.cloneBasics();
 
-    Map<SAbstractObject, SAbstractObject> transferMap =
-        takeOrCreateTransferMap(transferedObjects);
+    if (locations.length == 0) {
+      if (transferedObjects != null) {
+        transferedObjects.put(obj, newObj);
+      }
+      return newObj;
+    }
 
-    assert !transferMap.containsKey(
-        obj) : "The algorithm should not transfer an object twice.";
-    transferMap.put(obj, newObj);
+    TransferMap transferMap = takeOrAcquireTransferMap(transferedObjects);
+    try {
+      assert !transferMap.containsKey(
+          obj) : "The algorithm should not transfer an object twice.";
+      transferMap.put(obj, newObj);
 
-    for (StorageLocation location : fields.getValues()) {
-      if (location.isObjectLocation()) {
+      for (StorageLocation location : locations) {
         Object orgObj = location.read(obj);
-
-        // if it was already transfered, take it from the map, otherwise, handle it
-        Object trnfObj = transferMap.get(orgObj);
-        if (trnfObj == null) {
-          trnfObj = target.wrapForUse(orgObj, origin, transferMap);
-        }
-        location.write(newObj, trnfObj);
+        location.write(newObj, transferElement(orgObj, origin, target, transferMap));
       }
+    } finally {
+      releaseIfAcquired(transferMap, transferedObjects);
     }
     return newObj;
   }
 
+  /**
+   * Arrays with primitive storage share it with the copy, until one of them
+   * writes to it. See {@link STransferArray#cloneBasics()}.
+   */
   @TruffleBoundary
   public static STransferArray transfer(final STransferArray arr,
       final Actor origin, final Actor target,
-      final Map<SAbstractObject, SAbstractObject> transferedObjects) {
+      final TransferMap transferedObjects) {
     STransferArray newObj = arr.cloneBasics();
 
     if (newObj.isSomePrimitiveType() || newObj.isEmptyType()) {
+      if (transferedObjects != null) {
+        transferedObjects.put(arr, newObj);
+      }
       return newObj; // we are done in this case
     }
 
     assert newObj.isPartiallyEmptyType() || newObj.isObjectType();
 
-    Map<SAbstractObject, SAbstractObject> transferMap =
-        takeOrCreateTransferMap(transferedObjects);
-
-    assert !transferMap.containsKey(
-        arr) : "The algorithm should not transfer an object twice.";
-    transferMap.put(arr, newObj);
-
-    if (newObj.isObjectType()) {
-      Object[] storage = newObj.getObjectStorage();
-
-      for (int i = 0; i < storage.length; i++) {
-        Object orgObj = storage[i];
-
-        // if it was already transfered, take it from the map, otherwise, handle it
-        Object trnfObj = transferMap.get(orgObj);
-        if (trnfObj == null) {
-          trnfObj = target.wrapForUse(orgObj, origin, transferMap);
-        }
-
-        storage[i] = trnfObj;
-      }
-    } else if (newObj.isPartiallyEmptyType()) {
-      PartiallyEmptyArray parr =
-          newObj.getPartiallyEmptyStorage();
-      Object[] storage = parr.getStorage();
+    TransferMap transferMap = takeOrAcquireTransferMap(transferedObjects);
+    try {
+      assert !transferMap.containsKey(
+          arr) : "The algorithm should not transfer an object twice.";
+      transferMap.put(arr, newObj);
 
-      for (int i = 0; i < storage.length; i++) {
-        Object orgObj = storage[i];
+      if (newObj.isObjectType()) {
+        Object[] storage = newObj.getObjectStorage();
 
-        if (orgObj == Nil.nilObject) {
-          continue;
+        for (int i = 0; i < storage.length; i++) {
+          storage[i] = transferElement(storage[i], origin, target, transferMap);
         }
-
-        // if it was already transfered, take it from the map, otherwise, handle it
-        Object trnfObj = transferMap.get(orgObj);
-        if (trnfObj == null) {
-          trnfObj = target.wrapForUse(orgObj, origin, transferMap);
+      } else if (newObj.isPartiallyEmptyType()) {
+        PartiallyEmptyArray parr =
+            newObj.getPartiallyEmptyStorage();
+        Object[] storage = parr.getStorage();
+
+        for (int i = 0; i < storage.length; i++) {
+          Object orgObj = storage[i];
+
+          if (orgObj == Nil.nilObject) {
+            continue;
+          }
+          storage[i] = transferElement(orgObj, origin, target, transferMap);
         }
-
-        storage[i] = trnfObj;
+      } else {
+        CompilerDirectives.transferToInterpreter();
+        assert false : "Missing support for some storage type";
+        throw new NotYetImplementedException();
       }
-    } else {
-      CompilerDirectives.transferToInterpreter();
-      assert false : "Missing support for some storage type";
-      throw new NotYetImplementedException();
+    } finally {
+      releaseIfAcquired(transferMap, transferedObjects);
     }
 
     return newObj;
   }
 
-  protected static Map<SAbstractObject, SAbstractObject> takeOrCreateTransferMap(
-      final Map<SAbstractObject, SAbstractObject> transferedObjects) {
-    Map<SAbstractObject, SAbstractObject> transferMap;
+  private static Object transferElement(final Object orgObj, final Actor origin,
+      final Actor target, final TransferMap transferMap) {
+    // if it was already transfered, take it from the map, otherwise, handle it
+    Object trnfObj = transferMap.get(orgObj);
+    if (trnfObj == null) {
+      trnfObj = target.wrapForUse(orgObj, origin, transferMap);
+    }
+    return trnfObj;
+  }
+
+  private static TransferMap takeOrAcquireTransferMap(
+      final TransferMap transferedObjects) {
     if (transferedObjects != null) {
-      transferMap = transferedObjects;
-    } else {
-      transferMap = new HashMap<SAbstractObject, SAbstractObject>();
+      return transferedObjects;
+    }
+    return TransferMap.acquire();
+  }
+
+  private static void releaseIfAcquired(final TransferMap transferMap,
+      final TransferMap transferedObjects) {
+    if (transferedObjects == null) {
+      transferMap.release();
     }
-    return transferMap;
   }
 }
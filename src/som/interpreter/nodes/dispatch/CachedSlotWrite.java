@@ -14,6 +14,7 @@ import som.interpreter.nodes.dispatch.DispatchGuard.CheckSObject;
 import som.interpreter.objectstorage.ObjectTransitionSafepoint;
 import som.interpreter.objectstorage.StorageAccessor.AbstractObjectAccessor;
 import som.interpreter.objectstorage.StorageAccessor.AbstractPrimitiveAccessor;
+import som.vm.VmSettings;
 import som.vmobjects.SObject;
 import som.vmobjects.SObject.SMutableObject;
 import tools.dym.Tags.FieldWrite;
@@ -57,7 +58,11 @@ public abstract class CachedSlotWrite extends AbstractDispatchNode {
         if (typeCheck != null) {
           typeCheck.executeTypeCheck(arguments[1]);
         }
-        doWrite((SMutableObject) arguments[0], arguments[1]);
+        SMutableObject rcvr = (SMutableObject) arguments[0];
+        if (VmSettings.SNAPSHOTS_INCREMENTAL) {
+          rcvr.markModified();
+        }
+        doWrite(rcvr, arguments[1]);
         return arguments[1];
       } else {
         return nextInCache.executeDispatch(frame, arguments);
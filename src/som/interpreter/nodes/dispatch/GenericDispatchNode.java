@@ -1,6 +1,5 @@
 package som.interpreter.nodes.dispatch;
 
-import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.source.SourceSection;
 
 import som.compiler.AccessModifier;
@@ -19,15 +18,11 @@ public final class GenericDispatchNode extends AbstractGenericDispatchNode {
     assert minimalAccess.ordinal() >= AccessModifier.PROTECTED.ordinal() || mixinId != null;
     this.minimalVisibility = minimalAccess;
     this.mixinId = mixinId;
+    MegamorphicCache.reportMegamorphicSite();
   }
 
   @Override
-  @TruffleBoundary
   protected Dispatchable doLookup(final SClass rcvrClass) {
-    if (mixinId != null) {
-      return rcvrClass.lookupPrivate(selector, mixinId);
-    } else {
-      return rcvrClass.lookupMessage(selector, minimalVisibility);
-    }
+    return MegamorphicCache.lookup(rcvrClass, selector, minimalVisibility, mixinId);
   }
 }
@@ -0,0 +1,141 @@
+package som.interpreter.nodes.dispatch;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import som.compiler.AccessModifier;
+import som.compiler.MixinBuilder.MixinDefinitionId;
+import som.vm.VmSettings;
+import som.vmobjects.SClass;
+import som.vmobjects.SSymbol;
+
+
+/**
+ * A global lookup cache for megamorphic send sites.
+ *
+ * <p>
+ * Once a send site exceeded its inline cache, it is replaced by a
+ * {@link GenericDispatchNode}, which needs to do a full lookup through the
+ * class hierarchy for every send. This cache remembers the result of such
+ * lookups, keyed by receiver class, selector, and the visibility or mixin used
+ * for the lookup.
+ *
+ * <p>
+ * The cache is direct mapped, i.e., a new entry simply overwrites the one in
+ * its slot. Entries are immutable, so that the cache can be shared between
+ * threads without synchronization. When a class is redefined, the whole cache
+ * is invalidated by incrementing its epoch.
+ */
+public final class MegamorphicCache {
+  private static final int SIZE = 4096;
+  private static final int MASK = SIZE - 1;
+
+  private static final class Entry {
+    private final SClass            rcvrClass;
+    private final SSymbol           selector;
+    private final AccessModifier    minimalVisibility;
+    private final MixinDefinitionId mixinId;
+    private final Dispatchable      result;
+    private final int               epoch;
+
+    Entry(final SClass rcvrClass, final SSymbol selector,
+        final AccessModifier minimalVisibility, final MixinDefinitionId mixinId,
+        final Dispatchable result, final int epoch) {
+      this.rcvrClass = rcvrClass;
+      this.selector = selector;
+      this.minimalVisibility = minimalVisibility;
+      this.mixinId = mixinId;
+      this.result = result;
+      this.epoch = epoch;
+    }
+  }
+
+  private static final Entry[] entries = new Entry[SIZE];
+
+  private static volatile int epoch;
+
+  private static final LongAdder megamorphicSites = new LongAdder();
+  private static final LongAdder hits             = new LongAdder();
+  private static final LongAdder misses           = new LongAdder();
+
+  private MegamorphicCache() {}
+
+  /**
+   * Lookup a method or slot accessor, either for a normal send with the given
+   * minimal visibility, or for a send that also sees the private methods of
+   * the given mixin.
+   *
+   * @return the dispatchable, or null, if the class does not understand the
+   *         selector
+   */
+  @TruffleBoundary
+  public static Dispatchable lookup(final SClass rcvrClass, final SSymbol selector,
+      final AccessModifier minimalVisibility, final MixinDefinitionId mixinId) {
+    int currentEpoch = epoch;
+    int idx = hash(rcvrClass, selector, minimalVisibility, mixinId) & MASK;
+
+    Entry e = entries[idx];
+    if (e != null && e.epoch == currentEpoch && e.rcvrClass == rcvrClass
+        && e.selector == selector && e.minimalVisibility == minimalVisibility
+        && e.mixinId == mixinId) {
+      if (VmSettings.DYNAMIC_METRICS) {
+        hits.increment();
+      }
+      return e.result;
+    }
+
+    if (VmSettings.DYNAMIC_METRICS) {
+      misses.increment();
+    }
+
+    Dispatchable result;
+    if (mixinId != null) {
+      result = rcvrClass.lookupPrivate(selector, mixinId);
+    } else {
+      result = rcvrClass.lookupMessage(selector, minimalVisibility);
+    }
+
+    entries[idx] = new Entry(
+        rcvrClass, selector, minimalVisibility, mixinId, result, currentEpoch);
+    return result;
+  }
+
+  private static int hash(final SClass rcvrClass, final SSymbol selector,
+      final AccessModifier minimalVisibility, final MixinDefinitionId mixinId) {
+    int h = System.identityHashCode(rcvrClass);
+    h = 31 * h + System.identityHashCode(selector);
+    if (mixinId != null) {
+      h = 31 * h + System.identityHashCode(mixinId);
+    } else {
+      h = 31 * h + minimalVisibility.ordinal();
+    }
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Invalidate all cached lookups, because the methods of a class changed.
+   */
+  public static synchronized void invalidate() {
+    epoch += 1;
+  }
+
+  /** Record that a send site became megamorphic. */
+  public static void reportMegamorphicSite() {
+    if (VmSettings.DYNAMIC_METRICS) {
+      megamorphicSites.increment();
+    }
+  }
+
+  public static long getNumberOfMegamorphicSites() {
+    return megamorphicSites.sum();
+  }
+
+  public static long getNumberOfHits() {
+    return hits.sum();
+  }
+
+  public static long getNumberOfMisses() {
+    return misses.sum();
+  }
+}
@@ -30,6 +30,9 @@ public final class ObjectLayout {
   private final EconomicMap<SlotDefinition, StorageLocation> storageLocations;
   private final EconomicMap<SlotDefinition, Class<?>>        storageTypes;
 
+  /** The locations holding objects, only for transfer objects, which copy them. */
+  private final StorageLocation[] objectStorageLocations;
+
   public ObjectLayout(final EconomicSet<SlotDefinition> slots,
       final ClassFactory forClasses, final boolean isTransferObject) {
     this(getInitialStorageTypes(slots), slots.size(), forClasses,
@@ -85,6 +88,19 @@ public final class ObjectLayout {
     primitiveStorageLocationsUsed = nextFreePrimIdx;
     objectStorageLocationsUsed = nextFreeObjIdx;
     onlyImmutableFields = onlyImmutable;
+
+    if (isTransferObject) {
+      objectStorageLocations = new StorageLocation[nextFreeObjIdx];
+      int i = 0;
+      for (StorageLocation location : storageLocations.getValues()) {
+        if (location.isObjectLocation()) {
+          objectStorageLocations[i] = location;
+          i += 1;
+        }
+      }
+    } else {
+      objectStorageLocations = null;
+    }
   }
 
   public boolean isValid() {
@@ -115,6 +131,11 @@ public final class ObjectLayout {
     return storageLocations;
   }
 
+  public StorageLocation[] getObjectStorageLocations() {
+    assert isTransferObject : "Only transfer objects cache their object locations";
+    return objectStorageLocations;
+  }
+
   public ObjectLayout withGeneralizedField(final SlotDefinition slot) {
     Class<?> type = storageTypes.get(slot);
     if (type == Object.class) {
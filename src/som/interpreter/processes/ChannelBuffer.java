@@ -0,0 +1,204 @@
+package som.interpreter.processes;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * The storage shared between the two ends of a {@link SChannel}.
+ *
+ * <p>
+ * A channel without capacity is a rendezvous: a writer blocks until a reader
+ * took the value. A channel with capacity is backed by a ring buffer, and
+ * writers only block when the buffer is full, and readers when it is empty.
+ */
+public abstract class ChannelBuffer {
+
+  /** Largest capacity supported for buffered channels. */
+  public static final int MAX_CAPACITY = 1 << 24;
+
+  public static ChannelBuffer create(final int capacity) {
+    assert 0 <= capacity && capacity <= MAX_CAPACITY;
+    if (capacity == 0) {
+      return new Rendezvous();
+    } else {
+      return new RingBuffer(capacity);
+    }
+  }
+
+  public abstract int getCapacity();
+
+  public abstract void put(Object value) throws InterruptedException;
+
+  public abstract Object take() throws InterruptedException;
+
+  /** Put all values in order, blocking as often as necessary. */
+  public void putAll(final Object[] values) throws InterruptedException {
+    for (Object v : values) {
+      put(v);
+    }
+  }
+
+  /** Fill the given array with values, blocking as often as necessary. */
+  public void takeAll(final Object[] result) throws InterruptedException {
+    for (int i = 0; i < result.length; i++) {
+      result[i] = take();
+    }
+  }
+
+  private static final class Rendezvous extends ChannelBuffer {
+    private final SynchronousQueue<Object> cell = new SynchronousQueue<>();
+
+    @Override
+    public int getCapacity() {
+      return 0;
+    }
+
+    @Override
+    public void put(final Object value) throws InterruptedException {
+      cell.put(value);
+    }
+
+    @Override
+    public Object take() throws InterruptedException {
+      return cell.take();
+    }
+  }
+
+  /**
+   * A bounded multi-producer/multi-consumer ring buffer.
+   *
+   * <p>
+   * Producers and consumers claim slots by incrementing {@link #tail} and
+   * {@link #head}, respectively, and a slot's sequence number tells whether
+   * it is ready to be written or read. The two semaphores only count free and
+   * filled slots, so that a thread that claims a slot knows it is going to
+   * become available, and they take care of parking threads when the buffer
+   * is full or empty. In the common case, a transfer costs two uncontended
+   * CAS operations and an atomic increment, and no lock is acquired.
+   */
+  private static final class RingBuffer extends ChannelBuffer {
+    private final int capacity;
+    private final int mask;
+
+    private final Object[]        slots;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final Semaphore free;
+    private final Semaphore filled;
+
+    RingBuffer(final int capacity) {
+      this.capacity = capacity;
+
+      int size = Integer.highestOneBit(capacity);
+      if (size < capacity) {
+        size <<= 1;
+      }
+      mask = size - 1;
+
+      slots = new Object[size];
+      sequences = new AtomicLongArray(size);
+      for (int i = 0; i < size; i++) {
+        sequences.set(i, i);
+      }
+
+      free = new Semaphore(capacity);
+      filled = new Semaphore(0);
+    }
+
+    @Override
+    public int getCapacity() {
+      return capacity;
+    }
+
+    @Override
+    public void put(final Object value) throws InterruptedException {
+      free.acquire();
+      enqueue(value);
+      filled.release();
+    }
+
+    @Override
+    public Object take() throws InterruptedException {
+      filled.acquire();
+      Object value = dequeue();
+      free.release();
+      return value;
+    }
+
+    @Override
+    public void putAll(final Object[] values) throws InterruptedException {
+      int i = 0;
+      while (i < values.length) {
+        int n = acquireUpTo(free, values.length - i);
+        for (int j = 0; j < n; j++) {
+          enqueue(values[i + j]);
+        }
+        filled.release(n);
+        i += n;
+      }
+    }
+
+    @Override
+    public void takeAll(final Object[] result) throws InterruptedException {
+      int i = 0;
+      while (i < result.length) {
+        int n = acquireUpTo(filled, result.length - i);
+        for (int j = 0; j < n; j++) {
+          result[i + j] = dequeue();
+        }
+        free.release(n);
+        i += n;
+      }
+    }
+
+    /**
+     * Block for the first permit, but take further ones only if they are
+     * available immediately.
+     */
+    private static int acquireUpTo(final Semaphore semaphore, final int max)
+        throws InterruptedException {
+      semaphore.acquire();
+      int n = 1;
+      while (n < max && semaphore.tryAcquire()) {
+        n += 1;
+      }
+      return n;
+    }
+
+    private void enqueue(final Object value) {
+      long pos = tail.getAndIncrement();
+      int idx = (int) (pos & mask);
+
+      // the permit guarantees the slot is free, but the consumer that
+      // claimed it in the previous round might still be reading it
+      while (sequences.get(idx) != pos) {
+        Thread.yield();
+      }
+
+      slots[idx] = value;
+      sequences.set(idx, pos + 1);
+    }
+
+    private Object dequeue() {
+      long pos = head.getAndIncrement();
+      int idx = (int) (pos & mask);
+
+      // the permit guarantees the slot gets filled, but the producer might
+      // not have published the value yet
+      while (sequences.get(idx) != pos + 1) {
+        Thread.yield();
+      }
+
+      Object value = slots[idx];
+      slots[idx] = null;
+      sequences.set(idx, pos + mask + 1);
+      return value;
+    }
+  }
+}
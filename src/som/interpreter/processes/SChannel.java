@@ -1,11 +1,10 @@
 package som.interpreter.processes;
 
-import java.util.concurrent.SynchronousQueue;
-
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
 import som.interpreter.objectstorage.ObjectTransitionSafepoint;
 import som.primitives.processes.ChannelPrimitives;
+import som.vm.ManagedBlocking;
 import som.vm.VmSettings;
 import som.vmobjects.SAbstractObject;
 import som.vmobjects.SClass;
@@ -17,10 +16,18 @@ import tools.concurrency.TracingChannel.TracingChannelOutput;
 public class SChannel extends SAbstractObject {
 
   public static SChannel create() {
+    return create(0);
+  }
+
+  /**
+   * Create a channel that buffers up to {@code capacity} values.
+   * With a capacity of 0, the channel is a rendezvous between reader and writer.
+   */
+  public static SChannel create(final int capacity) {
     if (VmSettings.KOMPOS_TRACING) {
-      return new TracingChannel();
+      return new TracingChannel(capacity);
     } else {
-      return new SChannel();
+      return new SChannel(capacity);
     }
   }
 
@@ -33,16 +40,20 @@ public class SChannel extends SAbstractObject {
   /** Indicate that a breakpoint on the reader requested a suspension on write. */
   private volatile boolean breakAfterWrite;
 
-  protected SChannel() {
+  protected SChannel(final int capacity) {
     breakAfterRead = false;
     breakAfterWrite = false;
 
-    SynchronousQueue<Object> cell = new SynchronousQueue<>();
+    ChannelBuffer cell = ChannelBuffer.create(capacity);
 
     out = SChannelOutput.create(cell, this);
     in = SChannelInput.create(cell, this);
   }
 
+  public int getCapacity() {
+    return in.cell.getCapacity();
+  }
+
   @Override
   public SClass getSOMClass() {
     assert ChannelPrimitives.Channel != null;
@@ -59,7 +70,7 @@ public class SChannel extends SAbstractObject {
   }
 
   public static class SChannelInput extends SAbstractObject {
-    public static SChannelInput create(final SynchronousQueue<Object> cell,
+    public static SChannelInput create(final ChannelBuffer cell,
         final SChannel channel) {
       if (VmSettings.KOMPOS_TRACING) {
         return new TracingChannelInput(cell, channel);
@@ -68,10 +79,10 @@ public class SChannel extends SAbstractObject {
       }
     }
 
-    private final SynchronousQueue<Object> cell;
+    private final ChannelBuffer cell;
     protected final SChannel               channel;
 
-    public SChannelInput(final SynchronousQueue<Object> cell,
+    public SChannelInput(final ChannelBuffer cell,
         final SChannel channel) {
       this.cell = cell;
       this.channel = channel;
@@ -81,18 +92,40 @@ public class SChannel extends SAbstractObject {
     public Object read() throws InterruptedException {
       ObjectTransitionSafepoint.INSTANCE.unregister();
       try {
-        return cell.take();
+        return ManagedBlocking.block(cell::take);
       } finally {
         ObjectTransitionSafepoint.INSTANCE.register();
       }
     }
 
+    /** Read {@code n} values, blocking until all of them are available. */
+    @TruffleBoundary
+    public Object[] readAll(final int n) throws InterruptedException {
+      Object[] result = new Object[n];
+      ObjectTransitionSafepoint.INSTANCE.unregister();
+      try {
+        ManagedBlocking.block(() -> {
+          cell.takeAll(result);
+          return null;
+        });
+      } finally {
+        ObjectTransitionSafepoint.INSTANCE.register();
+      }
+      return result;
+    }
+
     public final Object readAndSuspendWriter(final boolean doSuspend)
         throws InterruptedException {
       channel.breakAfterWrite = doSuspend;
       return read();
     }
 
+    public final Object[] readAllAndSuspendWriter(final int n,
+        final boolean doSuspend) throws InterruptedException {
+      channel.breakAfterWrite = doSuspend;
+      return readAll(n);
+    }
+
     public final boolean shouldBreakAfterRead() {
       return channel.breakAfterRead;
     }
@@ -110,7 +143,7 @@ public class SChannel extends SAbstractObject {
   }
 
   public static class SChannelOutput extends SAbstractObject {
-    public static SChannelOutput create(final SynchronousQueue<Object> cell,
+    public static SChannelOutput create(final ChannelBuffer cell,
         final SChannel channel) {
       if (VmSettings.KOMPOS_TRACING) {
         return new TracingChannelOutput(cell, channel);
@@ -119,10 +152,10 @@ public class SChannel extends SAbstractObject {
       }
     }
 
-    private final SynchronousQueue<Object> cell;
+    private final ChannelBuffer cell;
     protected final SChannel               channel;
 
-    protected SChannelOutput(final SynchronousQueue<Object> cell, final SChannel channel) {
+    protected SChannelOutput(final ChannelBuffer cell, final SChannel channel) {
       this.cell = cell;
       this.channel = channel;
     }
@@ -131,7 +164,24 @@ public class SChannel extends SAbstractObject {
     public void write(final Object value) throws InterruptedException {
       ObjectTransitionSafepoint.INSTANCE.unregister();
       try {
-        cell.put(value);
+        ManagedBlocking.block(() -> {
+          cell.put(value);
+          return null;
+        });
+      } finally {
+        ObjectTransitionSafepoint.INSTANCE.register();
+      }
+    }
+
+    /** Write all values in order, blocking until the channel accepted them. */
+    @TruffleBoundary
+    public void writeAll(final Object[] values) throws InterruptedException {
+      ObjectTransitionSafepoint.INSTANCE.unregister();
+      try {
+        ManagedBlocking.block(() -> {
+          cell.putAll(values);
+          return null;
+        });
       } finally {
         ObjectTransitionSafepoint.INSTANCE.register();
       }
@@ -143,6 +193,12 @@ public class SChannel extends SAbstractObject {
       write(value);
     }
 
+    public final void writeAllAndSuspendReader(final Object[] values,
+        final boolean doSuspend) throws InterruptedException {
+      channel.breakAfterRead = doSuspend;
+      writeAll(values);
+    }
+
     public final boolean shouldBreakAfterWrite() {
       return channel.breakAfterWrite;
     }
@@ -1,9 +1,13 @@
 package som.interpreter.transactions;
 
+import java.util.Arrays;
 import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
+import som.vm.VmSettings;
 import som.vmobjects.SArray.SMutableArray;
 import som.vmobjects.SObject.SMutableObject;
 
@@ -15,37 +19,92 @@ import som.vmobjects.SObject.SMutableObject;
  * The general idea is that all accesses to objects and arrays are mediated
  * via {@link Change} objects. These keep a copy of the initial state, and a
  * working copy on which the transactions perform their accesses.
- * On commit, we simply compare the initial state with the publicly visible
- * objects, if any change (conflict) is seen the transaction retries. If no
- * conflict was determined, the new state is copied into the publicly visible
- * object.
+ * If no conflict was determined on commit, the new state is copied into the
+ * publicly visible object.
  *
  * <p>
  * Transactions always succeed, this implementation automatically retries.
  *
  * <p>
+ * Conflicts are detected with striped ownership records, similar to TL2.
+ * Each object and array maps to one ownership record, which holds a version
+ * number, and a lock bit. When a {@link Change} is created, it remembers the
+ * version of its ownership record. On commit, a transaction locks the
+ * ownership records of the objects it changed, in a global order to avoid
+ * deadlocks, and then validates that none of the versions it saw has changed
+ * since. Thus, transactions that do not touch the same ownership records
+ * commit in parallel. Changes done outside of transactions do not change
+ * versions. To detect them, a commit also compares the publicly visible
+ * state with the state the transaction started from.
+ *
+ * <p>
+ * Arrays with at least {@link VmSettings#TX_SPARSE_ARRAY_LENGTH} elements are
+ * not copied. Instead, a {@link SparseArrayChange} logs only the indexes
+ * that were read, with the value seen, and buffers the writes. On commit,
+ * the reads are validated per index against the public array, which avoids
+ * conflicts between transactions that access disjoint parts of an array.
+ *
+ * <p>
  * The initial creation of a {@link Change} object accesses the public object
  * while holding its lock. Similarly, on writing back changes, the lock is
- * acquired. Transaction commits are globally sequentialized on a single lock.
+ * acquired.
  *
  * <p>
  * Inspired by: Transactional Memory for Smalltalk
  * L. Renggli, and O. Nierstrasz. In Proc. of ICDL, 2007.
  * DOI: 10.1145/1352678.1352692
+ *
+ * <p>
+ * and: Transactional Locking II
+ * D. Dice, O. Shalev, and N. Shavit. In Proc. of DISC, 2006.
+ * DOI: 10.1007/11864219_14
  */
 public final class Transactions {
 
-  private IdentityHashMap<SMutableObject, ObjectChange> objects;
-  private IdentityHashMap<SMutableArray, ArrayChange>   arrays;
+  /** Number of ownership records, a power of two. */
+  private static final int NUM_ORECS = 1 << 12;
+
+  /**
+   * The ownership records. An even value is the version,
+   * an odd value indicates that the record is locked by a committing transaction.
+   */
+  private static final AtomicLongArray orecs = new AtomicLongArray(NUM_ORECS);
+
+  private static final LongAdder numCommits = new LongAdder();
+  private static final LongAdder numAborts  = new LongAdder();
 
-  private static Object globalCommitLock = new Object();
+  private IdentityHashMap<SMutableObject, ObjectChange>    objects;
+  private IdentityHashMap<SMutableArray, ArrayChange>      arrays;
+  private IdentityHashMap<SMutableArray, SparseArrayChange> sparseArrays;
+
+  /** Ownership records locked by the current commit, sorted. */
+  private int[] lockedOrecs = new int[16];
+  private int   numLockedOrecs;
 
   private Transactions() {}
 
+  private static int orecFor(final Object o) {
+    int h = System.identityHashCode(o);
+    return (h ^ (h >>> 16)) & (NUM_ORECS - 1);
+  }
+
   private abstract static class Change {
+    protected final int orec;
+
+    /** Version of the ownership record at the time of copying. */
+    protected long version;
+
+    /** Determined on commit, whether the working copy differs from the initial state. */
+    protected boolean changed;
+
+    Change(final int orec) {
+      this.orec = orec;
+    }
+
     abstract boolean hasChange();
 
-    abstract boolean hasConflict();
+    /** @return true, if the public object differs from the initial state */
+    abstract boolean hasPublicChange();
 
     abstract void applyChanges();
   }
@@ -56,7 +115,9 @@ public final class Transactions {
     private final SMutableObject workingCopy;
 
     ObjectChange(final SMutableObject o) {
+      super(orecFor(o));
       synchronized (o) {
+        version = orecs.get(orec);
         publicObj = o;
         initialState = o.shallowCopy();
         workingCopy = o.shallowCopy();
@@ -69,7 +130,7 @@ public final class Transactions {
     }
 
     @Override
-    boolean hasConflict() {
+    boolean hasPublicChange() {
       return !publicObj.txEquals(initialState);
     }
 
@@ -87,7 +148,9 @@ public final class Transactions {
     private final SMutableArray workingCopy;
 
     ArrayChange(final SMutableArray a) {
+      super(orecFor(a));
       synchronized (a) {
+        version = orecs.get(orec);
         publicArr = a;
         initialState = a.shallowCopy();
         workingCopy = a.shallowCopy();
@@ -100,7 +163,7 @@ public final class Transactions {
     }
 
     @Override
-    boolean hasConflict() {
+    boolean hasPublicChange() {
       return !publicArr.txEquals(initialState);
     }
 
@@ -112,9 +175,179 @@ public final class Transactions {
     }
   }
 
+  /**
+   * A map from zero-based array indexes to values, with open addressing.
+   */
+  private static final class IndexMap {
+    private int[]    keys   = new int[8]; // index + 1, 0 marks a free slot
+    private Object[] values = new Object[8];
+    private int      size;
+
+    private int slot(final int idx) {
+      int mask = keys.length - 1;
+      int i = (idx * 0x9E3779B9) & mask;
+      while (keys[i] != 0 && keys[i] != idx + 1) {
+        i = (i + 1) & mask;
+      }
+      return i;
+    }
+
+    Object get(final int idx) {
+      int i = slot(idx);
+      return keys[i] == 0 ? null : values[i];
+    }
+
+    void put(final int idx, final Object value) {
+      int i = slot(idx);
+      if (keys[i] == 0) {
+        if ((size + 1) * 2 > keys.length) {
+          grow();
+          i = slot(idx);
+        }
+        keys[i] = idx + 1;
+        size += 1;
+      }
+      values[i] = value;
+    }
+
+    private void grow() {
+      int[] oldKeys = keys;
+      Object[] oldValues = values;
+      keys = new int[oldKeys.length * 2];
+      values = new Object[oldKeys.length * 2];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != 0) {
+          int s = slot(oldKeys[i] - 1);
+          keys[s] = oldKeys[i];
+          values[s] = oldValues[i];
+        }
+      }
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+  }
+
+  /**
+   * Logs accesses to a large array, without copying it.
+   */
+  public static final class SparseArrayChange extends Change {
+    private final SMutableArray publicArr;
+    private final int           length;
+
+    /** The indexes read, with the value seen in the public array. */
+    private final IndexMap reads;
+
+    /** The buffered writes. */
+    private final IndexMap writes;
+
+    /** The version of the ownership record seen during value validation. */
+    private long validatedVersion;
+
+    SparseArrayChange(final SMutableArray a, final int length) {
+      super(orecFor(a));
+      this.publicArr = a;
+      this.length = length;
+      this.version = orecs.get(orec);
+      this.reads = new IndexMap();
+      this.writes = new IndexMap();
+    }
+
+    /**
+     * @param idx one-based index, in bounds
+     * @return the value written, or read before, or null
+     */
+    @TruffleBoundary
+    public Object lookup(final long idx) {
+      assert isInBounds(idx);
+      Object value = writes.get((int) idx - 1);
+      if (value != null) {
+        return value;
+      }
+      return reads.get((int) idx - 1);
+    }
+
+    /**
+     * Read an element of the public array, and record it for validation.
+     * The read is done under the lock a commit takes, because a commit can
+     * change the storage strategy of the array.
+     *
+     * @param idx one-based index, in bounds
+     */
+    @TruffleBoundary
+    public Object readPublic(final long idx) {
+      assert isInBounds(idx);
+      Object value;
+      synchronized (publicArr) {
+        value = publicArr.txGetElement((int) idx - 1);
+      }
+      reads.put((int) idx - 1, value);
+      return value;
+    }
+
+    /** @param idx one-based index, in bounds */
+    @TruffleBoundary
+    public void recordWrite(final long idx, final Object value) {
+      assert isInBounds(idx);
+      writes.put((int) idx - 1, value);
+    }
+
+    public boolean isInBounds(final long idx) {
+      return 1 <= idx && idx <= length;
+    }
+
+    @Override
+    boolean hasChange() {
+      return !writes.isEmpty();
+    }
+
+    @Override
+    boolean hasPublicChange() {
+      return !readsAreValid();
+    }
+
+    /**
+     * @return true, if all read values are still the same in the public array.
+     */
+    boolean readsAreValid() {
+      synchronized (publicArr) {
+        for (int i = 0; i < reads.keys.length; i++) {
+          if (reads.keys[i] != 0) {
+            Object current = publicArr.txGetElement(reads.keys[i] - 1);
+            if (!sameValue(current, reads.values[i])) {
+              return false;
+            }
+          }
+        }
+      }
+      return true;
+    }
+
+    @Override
+    void applyChanges() {
+      synchronized (publicArr) {
+        for (int i = 0; i < writes.keys.length; i++) {
+          if (writes.keys[i] != 0) {
+            publicArr.txSetElement(writes.keys[i] - 1, writes.values[i]);
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean sameValue(final Object a, final Object b) {
+    if (a == b) {
+      return true;
+    }
+    // primitive values are boxed, and thus, need to be compared by value
+    return (a instanceof Long || a instanceof Double || a instanceof Boolean) && a.equals(b);
+  }
+
   private void start() {
     objects = new IdentityHashMap<>();
     arrays = new IdentityHashMap<>();
+    sparseArrays = new IdentityHashMap<>();
   }
 
   private SMutableObject getWorkingCopy(final SMutableObject o) {
@@ -135,6 +368,15 @@ public final class Transactions {
     return change.workingCopy;
   }
 
+  private SparseArrayChange getSparseChange(final SMutableArray a, final int length) {
+    SparseArrayChange change = sparseArrays.get(a);
+    if (change == null) {
+      change = new SparseArrayChange(a, length);
+      sparseArrays.put(a, change);
+    }
+    return change;
+  }
+
   private static final ThreadLocal<Transactions> transactions =
       new ThreadLocal<Transactions>() {
         @Override
@@ -155,25 +397,162 @@ public final class Transactions {
    */
   @TruffleBoundary
   public boolean commit() {
-    synchronized (globalCommitLock) {
+    collectOrecsToLock();
+    lockOrecs();
+    try {
       if (hasConflicts()) {
+        numAborts.increment();
         return false;
       }
+
+      applyChanges();
+    } finally {
+      unlockOrecs();
     }
 
-    applyChanges();
+    numCommits.increment();
     return true;
   }
 
+  private void addOrecToLock(final int orec) {
+    if (numLockedOrecs == lockedOrecs.length) {
+      lockedOrecs = Arrays.copyOf(lockedOrecs, numLockedOrecs * 2);
+    }
+    lockedOrecs[numLockedOrecs] = orec;
+    numLockedOrecs += 1;
+  }
+
+  private void collectOrecsToLock() {
+    numLockedOrecs = 0;
+    for (ObjectChange c : objects.values()) {
+      c.changed = c.hasChange();
+      if (c.changed) {
+        addOrecToLock(c.orec);
+      }
+    }
+
+    for (ArrayChange c : arrays.values()) {
+      c.changed = c.hasChange();
+      if (c.changed) {
+        addOrecToLock(c.orec);
+      }
+    }
+
+    for (SparseArrayChange c : sparseArrays.values()) {
+      c.changed = c.hasChange();
+      if (c.changed) {
+        addOrecToLock(c.orec);
+      }
+    }
+
+    // sort and remove duplicates, locking in order avoids deadlocks
+    Arrays.sort(lockedOrecs, 0, numLockedOrecs);
+    int unique = 0;
+    for (int i = 0; i < numLockedOrecs; i++) {
+      if (unique == 0 || lockedOrecs[unique - 1] != lockedOrecs[i]) {
+        lockedOrecs[unique] = lockedOrecs[i];
+        unique += 1;
+      }
+    }
+    numLockedOrecs = unique;
+  }
+
+  private void lockOrecs() {
+    for (int i = 0; i < numLockedOrecs; i++) {
+      int orec = lockedOrecs[i];
+      while (true) {
+        long v = orecs.get(orec);
+        if ((v & 1) == 0 && orecs.compareAndSet(orec, v, v + 1)) {
+          break;
+        }
+        Thread.yield();
+      }
+    }
+  }
+
+  private void unlockOrecs() {
+    for (int i = 0; i < numLockedOrecs; i++) {
+      // increment to the next even number, i.e., the next version
+      orecs.getAndIncrement(lockedOrecs[i]);
+    }
+    numLockedOrecs = 0;
+  }
+
+  private boolean isLockedByMe(final int orec) {
+    return Arrays.binarySearch(lockedOrecs, 0, numLockedOrecs, orec) >= 0;
+  }
+
+  private long currentVersion(final int orec) {
+    long current = orecs.get(orec);
+    if (isLockedByMe(orec)) {
+      current -= 1;
+    }
+    return current;
+  }
+
+  private boolean hasConflict(final Change c) {
+    // a version seen while another transaction was committing is odd,
+    // and thus, never valid
+    return currentVersion(c.orec) != c.version;
+  }
+
   private boolean hasConflicts() {
+    if (hasVersionConflicts()) {
+      return true;
+    }
+
+    // writes outside of transactions do not change versions, so, compare
+    // the public state with what the transaction saw. For large arrays, this
+    // compares only the read indexes, thus, a changed version alone is not a
+    // conflict.
+    for (SparseArrayChange c : sparseArrays.values()) {
+      c.validatedVersion = currentVersion(c.orec);
+      if ((c.validatedVersion & 1) == 1 || c.hasPublicChange()) {
+        return true;
+      }
+    }
+    if (hasPublicChanges()) {
+      return true;
+    }
+
+    // the values are only valid at the time they were compared,
+    // so, make sure nothing changed during the validation
+    if (hasVersionConflicts()) {
+      return true;
+    }
+    for (SparseArrayChange c : sparseArrays.values()) {
+      if (currentVersion(c.orec) != c.validatedVersion) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean hasPublicChanges() {
+    for (ObjectChange c : objects.values()) {
+      if (c.hasPublicChange()) {
+        return true;
+      }
+    }
+
+    for (ArrayChange c : arrays.values()) {
+      if (c.hasPublicChange()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private boolean hasVersionConflicts() {
     for (ObjectChange c : objects.values()) {
-      if (c.hasConflict()) {
+      if (hasConflict(c)) {
         return true;
       }
     }
 
     for (ArrayChange c : arrays.values()) {
-      if (c.hasConflict()) {
+      if (hasConflict(c)) {
         return true;
       }
     }
@@ -183,18 +562,31 @@ public final class Transactions {
 
   private void applyChanges() {
     for (ObjectChange c : objects.values()) {
-      if (c.hasChange()) {
+      if (c.changed) {
         c.applyChanges();
       }
     }
 
     for (ArrayChange c : arrays.values()) {
-      if (c.hasChange()) {
+      if (c.changed) {
+        c.applyChanges();
+      }
+    }
+
+    for (SparseArrayChange c : sparseArrays.values()) {
+      if (c.changed) {
         c.applyChanges();
       }
     }
   }
 
+  /**
+   * @return the number of committed and the number of aborted transactions
+   */
+  public static long[] getStatistics() {
+    return new long[] {numCommits.sum(), numAborts.sum()};
+  }
+
   @TruffleBoundary
   public static SMutableObject workingCopy(final SMutableObject rcvr) {
     Transactions t = transactions.get();
@@ -206,4 +598,19 @@ public final class Transactions {
     Transactions t = transactions.get();
     return t.getWorkingCopy(rcvr);
   }
+
+  /**
+   * @return the change logging the accesses to the given array, or null if
+   *         the array is small enough to use a working copy
+   */
+  @TruffleBoundary
+  public static SparseArrayChange sparseChange(final SMutableArray rcvr) {
+    int length = rcvr.txLength();
+    if (length < VmSettings.TX_SPARSE_ARRAY_LENGTH) {
+      return null;
+    }
+
+    Transactions t = transactions.get();
+    return t.getSparseChange(rcvr, length);
+  }
 }
@@ -5,6 +5,7 @@ import com.oracle.truffle.api.frame.VirtualFrame;
 
 import som.interpreter.nodes.nary.BinaryBasicOperation;
 import som.interpreter.nodes.nary.TernaryExpressionNode;
+import som.interpreter.transactions.Transactions.SparseArrayChange;
 import som.vmobjects.SArray.SImmutableArray;
 import som.vmobjects.SArray.SMutableArray;
 
@@ -22,6 +23,19 @@ public abstract class TxArrayAccess {
     @Specialization
     public final Object doSArray(final VirtualFrame frame,
         final SMutableArray rcvr, final long idx) {
+      SparseArrayChange change = Transactions.sparseChange(rcvr);
+      if (change != null) {
+        if (!change.isInBounds(idx)) {
+          // signals the index error
+          return arrayOp.executeEvaluated(frame, rcvr, idx);
+        }
+        Object value = change.lookup(idx);
+        if (value == null) {
+          value = change.readPublic(idx);
+        }
+        return value;
+      }
+
       SMutableArray workingCopy = Transactions.workingCopy(rcvr);
       return arrayOp.executeEvaluated(frame, workingCopy, idx);
     }
@@ -42,6 +56,16 @@ public abstract class TxArrayAccess {
     @Specialization
     public final Object doSArray(final VirtualFrame frame,
         final SMutableArray rcvr, final long idx, final Object val) {
+      SparseArrayChange change = Transactions.sparseChange(rcvr);
+      if (change != null) {
+        if (!change.isInBounds(idx)) {
+          // signals the index error, without writing to the public array
+          return arrayOp.executeEvaluated(frame, rcvr, idx, val);
+        }
+        change.recordWrite(idx, val);
+        return val;
+      }
+
       SMutableArray workingCopy = Transactions.workingCopy(rcvr);
       return arrayOp.executeEvaluated(frame, workingCopy, idx, val);
     }
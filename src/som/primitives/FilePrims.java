@@ -23,6 +23,7 @@ import som.interpreter.nodes.nary.UnaryExpressionNode.UnarySystemOperation;
 import som.primitives.PathPrims.FileModule;
 import som.primitives.actors.PromisePrims;
 import som.vm.Symbols;
+import som.vm.constants.KernelObj;
 import som.vmobjects.SArray;
 import som.vmobjects.SBlock;
 import som.vmobjects.SClass;
@@ -222,4 +223,79 @@ public final class FilePrims {
       return file;
     }
   }
+
+  /**
+   * Common superclass of the primitives that read directly from a file in
+   * {@code #mapped} mode, without going through the file's buffer.
+   */
+  public abstract static class MappedReadPrim extends BinaryExpressionNode {
+    protected final BranchProfile errorCases = BranchProfile.create();
+
+    @Child protected ExceptionSignalingNode ioException;
+    @Child protected ExceptionSignalingNode indexOutOfBounds;
+
+    @Override
+    public ExpressionNode initialize(final SourceSection sourceSection,
+        final boolean eagerlyWrapped) {
+      super.initialize(sourceSection, eagerlyWrapped);
+      ioException = insert(ExceptionSignalingNode.createNode(new FileModule(),
+          Symbols.IOException, Symbols.SIGNAL_WITH, sourceSection));
+      indexOutOfBounds = insert(ExceptionSignalingNode.createNode(KernelObj.kernel,
+          Symbols.IndexOutOfBounds, Symbols.SIGNAL_WITH_IDX, sourceSection));
+      return this;
+    }
+
+    /** @return null, if the access is valid, otherwise the result of the signal */
+    protected final Object checkAccess(final SFileDescriptor file, final long position,
+        final int size) {
+      if (!file.isMapped()) {
+        errorCases.enter();
+        return ioException.signal("File is closed or not opened in #mapped mode");
+      }
+      if (!file.isInMappedRange(position, size)) {
+        errorCases.enter();
+        return indexOutOfBounds.signal(file, position);
+      }
+      return null;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "file:byteAt:")
+  public abstract static class MappedByteAtPrim extends MappedReadPrim {
+    @Specialization
+    public final Object byteAt(final SFileDescriptor file, final long position) {
+      Object error = checkAccess(file, position, Byte.BYTES);
+      if (error != null) {
+        return error;
+      }
+      return (long) file.getMappedByte(position);
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "file:longAt:")
+  public abstract static class MappedLongAtPrim extends MappedReadPrim {
+    @Specialization
+    public final Object longAt(final SFileDescriptor file, final long position) {
+      Object error = checkAccess(file, position, Long.BYTES);
+      if (error != null) {
+        return error;
+      }
+      return file.getMappedLong(position);
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "file:doubleAt:")
+  public abstract static class MappedDoubleAtPrim extends MappedReadPrim {
+    @Specialization
+    public final Object doubleAt(final SFileDescriptor file, final long position) {
+      Object error = checkAccess(file, position, Double.BYTES);
+      if (error != null) {
+        return error;
+      }
+      return file.getMappedDouble(position);
+    }
+  }
 }
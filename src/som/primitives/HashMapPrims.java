@@ -0,0 +1,167 @@
+package som.primitives;
+
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.nodes.IndirectCallNode;
+
+import bd.primitives.Primitive;
+import som.interpreter.nodes.dispatch.BlockDispatchNode;
+import som.interpreter.nodes.dispatch.BlockDispatchNodeGen;
+import som.interpreter.nodes.nary.BinaryExpressionNode;
+import som.interpreter.nodes.nary.TernaryExpressionNode;
+import som.interpreter.nodes.nary.UnaryExpressionNode;
+import som.vm.constants.Nil;
+import som.vmobjects.SBlock;
+import som.vmobjects.SHashMap;
+import som.vmobjects.SHashSet;
+
+
+/**
+ * Primitives for the {@link SHashMap} and {@link SHashSet} objects, which
+ * implement the dictionaries and sets of Collections.ns.
+ *
+ * <p>
+ * The {@link IndirectCallNode}s are used when the map needs to send
+ * {@code #hashcode} or {@code #=} to a key.
+ */
+public final class HashMapPrims {
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashMapNew:identity:")
+  public abstract static class HashMapNewPrim extends BinaryExpressionNode {
+    @Specialization
+    public final SHashMap doNew(final long capacity, final boolean identity) {
+      return new SHashMap(capacity, identity);
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashSetNew:identity:")
+  public abstract static class HashSetNewPrim extends BinaryExpressionNode {
+    @Specialization
+    public final SHashSet doNew(final long capacity, final boolean identity) {
+      return new SHashSet(capacity, identity);
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashMap:at:ifAbsent:")
+  public abstract static class HashMapAtPrim extends TernaryExpressionNode {
+    @Child protected IndirectCallNode  call  = Truffle.getRuntime().createIndirectCallNode();
+    @Child protected BlockDispatchNode block = BlockDispatchNodeGen.create();
+
+    @Specialization
+    public final Object doBlock(final SHashMap map, final Object key, final SBlock ifAbsent) {
+      Object result = map.get(key, call);
+      if (result == null) {
+        return block.executeDispatch(new Object[] {ifAbsent});
+      }
+      return result;
+    }
+
+    /** Like {@code #value} for objects other than blocks, e.g., nil. */
+    @Specialization
+    public final Object doObject(final SHashMap map, final Object key, final Object ifAbsent) {
+      Object result = map.get(key, call);
+      if (result == null) {
+        return ifAbsent;
+      }
+      return result;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashMap:containsKey:")
+  public abstract static class HashMapContainsKeyPrim extends BinaryExpressionNode {
+    @Child protected IndirectCallNode call = Truffle.getRuntime().createIndirectCallNode();
+
+    @Specialization
+    public final boolean doContains(final SHashMap map, final Object key) {
+      return map.containsKey(key, call);
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashMap:at:put:")
+  public abstract static class HashMapAtPutPrim extends TernaryExpressionNode {
+    @Child protected IndirectCallNode call = Truffle.getRuntime().createIndirectCallNode();
+
+    @Specialization
+    public final Object doPut(final SHashMap map, final Object key, final Object value) {
+      map.put(key, value, call);
+      return value;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashSet:add:")
+  public abstract static class HashSetAddPrim extends BinaryExpressionNode {
+    @Child protected IndirectCallNode call = Truffle.getRuntime().createIndirectCallNode();
+
+    @Specialization
+    public final Object doAdd(final SHashSet set, final Object element) {
+      set.put(element, null, call);
+      return element;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashMap:remove:")
+  public abstract static class HashMapRemovePrim extends BinaryExpressionNode {
+    @Child protected IndirectCallNode call = Truffle.getRuntime().createIndirectCallNode();
+
+    @Specialization
+    public final Object doRemove(final SHashMap map, final Object key) {
+      Object result = map.remove(key, call);
+      return result == null ? Nil.nilObject : result;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashMap:keysDo:")
+  public abstract static class HashMapKeysDoPrim extends BinaryExpressionNode {
+    @Child protected BlockDispatchNode block = BlockDispatchNodeGen.create();
+
+    @Specialization
+    public final SHashMap doKeys(final SHashMap map, final SBlock b) {
+      for (Object key : map.getKeys()) {
+        block.executeDispatch(new Object[] {b, key});
+      }
+      return map;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashMap:valuesDo:")
+  public abstract static class HashMapValuesDoPrim extends BinaryExpressionNode {
+    @Child protected BlockDispatchNode block = BlockDispatchNodeGen.create();
+
+    @Specialization
+    public final SHashMap doValues(final SHashMap map, final SBlock b) {
+      for (Object value : map.getValues()) {
+        block.executeDispatch(new Object[] {b, value});
+      }
+      return map;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashMapSize:")
+  public abstract static class HashMapSizePrim extends UnaryExpressionNode {
+    @Specialization
+    public final long doSize(final SHashMap map) {
+      return map.size();
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "hashMapRemoveAll:")
+  public abstract static class HashMapRemoveAllPrim extends UnaryExpressionNode {
+    @Specialization
+    public final SHashMap doRemoveAll(final SHashMap map) {
+      map.removeAll();
+      return map;
+    }
+  }
+}
@@ -29,6 +29,7 @@ import som.vmobjects.SArray.SImmutableArray;
 import som.vmobjects.SArray.SMutableArray;
 import som.vmobjects.SBlock;
 import som.vmobjects.SClass;
+import som.vmobjects.SConcatString;
 import som.vmobjects.SObject.SImmutableObject;
 import som.vmobjects.SObject.SMutableObject;
 import som.vmobjects.SObjectWithClass.SObjectWithoutFields;
@@ -258,7 +259,8 @@ public final class ObjectPrims {
           obj instanceof Long ||
           obj instanceof BigInteger ||
           obj instanceof Double ||
-          obj instanceof String) {
+          obj instanceof String ||
+          obj instanceof SConcatString) {
         return true;
       }
 
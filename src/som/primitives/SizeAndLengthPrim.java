@@ -7,6 +7,7 @@ import com.oracle.truffle.api.instrumentation.Tag;
 import bd.primitives.Primitive;
 import som.interpreter.nodes.nary.UnaryBasicOperation;
 import som.vmobjects.SArray;
+import som.vmobjects.SConcatString;
 import som.vmobjects.SSymbol;
 import tools.dym.Tags.OpLength;
 
@@ -57,10 +58,21 @@ public abstract class SizeAndLengthPrim extends UnaryBasicOperation {
     return receiver.getBooleanStorage().length;
   }
 
+  @Specialization(guards = "receiver.isByteType()")
+  public final long doByteSArray(final SArray receiver) {
+    return receiver.getByteStorage().length;
+  }
+
   public abstract long executeEvaluated(Object receiver);
 
   public abstract long executeEvaluated(SArray receiver);
 
+  /** Needs to come before the String case, to avoid the implicit flattening. */
+  @Specialization
+  public final long doSConcatString(final SConcatString receiver) {
+    return receiver.length();
+  }
+
   @Specialization
   public final long doString(final String receiver) {
     return receiver.length();
@@ -20,6 +20,7 @@ import som.interpreter.nodes.nary.UnaryExpressionNode;
 import som.vm.Symbols;
 import som.vmobjects.SAbstractObject;
 import som.vmobjects.SArray;
+import som.vmobjects.SConcatString;
 import som.vmobjects.SSymbol;
 import tools.dym.Tags.ComplexPrimitiveOperation;
 import tools.dym.Tags.StringAccess;
@@ -40,27 +41,35 @@ public class StringPrims {
     }
 
     @Specialization
-    @TruffleBoundary
-    public final String doString(final String receiver, final String argument) {
-      return receiver + argument;
+    public final SConcatString doConcatString(final SConcatString receiver,
+        final String argument) {
+      return receiver.append(argument);
     }
 
     @Specialization
-    @TruffleBoundary
-    public final String doString(final String receiver, final SSymbol argument) {
-      return receiver + argument.getString();
+    public final SConcatString doConcatString(final SConcatString receiver,
+        final SSymbol argument) {
+      return receiver.append(argument.getString());
     }
 
     @Specialization
-    @TruffleBoundary
-    public final String doSSymbol(final SSymbol receiver, final String argument) {
-      return receiver.getString() + argument;
+    public final Object doString(final String receiver, final String argument) {
+      return SConcatString.concat(receiver, argument);
     }
 
     @Specialization
-    @TruffleBoundary
-    public final String doSSymbol(final SSymbol receiver, final SSymbol argument) {
-      return receiver.getString() + argument.getString();
+    public final Object doString(final String receiver, final SSymbol argument) {
+      return SConcatString.concat(receiver, argument.getString());
+    }
+
+    @Specialization
+    public final Object doSSymbol(final SSymbol receiver, final String argument) {
+      return SConcatString.concat(receiver.getString(), argument);
+    }
+
+    @Specialization
+    public final Object doSSymbol(final SSymbol receiver, final SSymbol argument) {
+      return SConcatString.concat(receiver.getString(), argument.getString());
     }
   }
 
@@ -190,6 +199,8 @@ public class StringPrims {
       for (Object o : storage) {
         if (o instanceof String) {
           sb.append((String) o);
+        } else if (o instanceof SConcatString) {
+          sb.append((SConcatString) o);
         } else if (o instanceof SSymbol) {
           sb.append(((SSymbol) o).getString());
         } else {
@@ -71,6 +71,7 @@ import tools.replay.actors.ActorExecutionTrace;
 import tools.replay.nodes.TraceActorContextNode;
 import tools.snapshot.SnapshotBackend;
 import tools.snapshot.SnapshotBuffer;
+import tools.snapshot.SnapshotRecord;
 import tools.snapshot.deserialization.DeserializationBuffer;
 
 
@@ -102,6 +103,17 @@ public final class SystemPrims {
     }
   }
 
+  @GenerateNodeFactory
+  @Primitive(primitive = "actorStatistics:")
+  public abstract static class ActorStatisticsPrim extends UnarySystemOperation {
+    @Specialization
+    @TruffleBoundary
+    public final Object doSObject(final Object module) {
+      long[] stats = ActorProcessingThread.getMessageStatistics();
+      return new SImmutableArray(stats, Classes.valueArrayClass);
+    }
+  }
+
   public static Object loadModule(final VM vm, final String path,
       final ExceptionSignalingNode ioException) {
     // TODO: a single node for the different exceptions?
@@ -402,15 +414,23 @@ public final class SystemPrims {
         ActorProcessingThread atp =
             (ActorProcessingThread) ActorProcessingThread.currentThread();
         TracingActor ta = (TracingActor) EventualMessage.getActorCurrentMessageIsExecutionOn();
-        SnapshotBuffer sb = new SnapshotBuffer(atp);
-        ta.replaceSnapshotRecord();
+        SnapshotBuffer sb;
+        if (VmSettings.SNAPSHOTS_INCREMENTAL) {
+          // keep the record, which tracks the objects modified since the
+          // previous snapshot, and serialize into the current version
+          sb = atp.getSnapshotBuffer();
+        } else {
+          sb = new SnapshotBuffer(atp);
+          ta.replaceSnapshotRecord();
+        }
 
-        if (!sb.getRecord().containsObject(receiver)) {
+        SnapshotRecord record = sb.getRecord();
+        if (!record.containsObject(receiver)) {
           SClass clazz = Types.getClassOf(receiver);
           clazz.serialize(receiver, sb);
           DeserializationBuffer bb = sb.getBuffer();
 
-          long ref = sb.getRecord().getObjectPointer(receiver);
+          long ref = record.getObjectPointer(receiver);
 
           Object o = bb.deserialize(ref);
           assert Types.getClassOf(o) == clazz;
@@ -500,6 +520,12 @@ public final class SystemPrims {
         for (int i = 0; i < arr.length; i++) {
           arguments[i] = arr[i];
         }
+      } else if (args.isByteType()) {
+        byte[] arr = args.getByteStorage();
+        arguments = new Object[arr.length];
+        for (int i = 0; i < arr.length; i++) {
+          arguments[i] = (long) arr[i];
+        }
       } else if (args.isObjectType()) {
         arguments = args.getObjectStorage();
       } else {
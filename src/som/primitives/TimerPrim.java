@@ -3,8 +3,6 @@ package som.primitives;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
@@ -22,10 +20,12 @@ import som.interpreter.actors.Actor;
 import som.interpreter.actors.EventualMessage.DirectMessage;
 import som.interpreter.actors.EventualSendNode;
 import som.interpreter.actors.SFarReference;
+import som.interpreter.actors.TimerWheel;
 import som.interpreter.nodes.nary.BinaryComplexOperation.BinarySystemOperation;
 import som.vm.Symbols;
 import som.vm.VmSettings;
 import som.vm.constants.Classes;
+import som.vm.constants.Nil;
 import som.vmobjects.SBlock;
 import som.vmobjects.SInvokable;
 import som.vmobjects.SSymbol;
@@ -39,7 +39,7 @@ import tools.replay.nodes.TraceActorContextNode;
 @GenerateNodeFactory
 @Primitive(primitive = "actorDo:after:")
 public abstract class TimerPrim extends BinarySystemOperation {
-  @CompilationFinal private static Timer        timer;
+  @CompilationFinal private static TimerWheel   timerWheel;
   @CompilationFinal private static ForkJoinPool actorPool;
 
   @CompilationFinal private static Actor          timerActor;
@@ -54,8 +54,11 @@ public abstract class TimerPrim extends BinarySystemOperation {
   @CompilationFinal private static HashMap<Integer, SFarReference> replayTargetMap;
 
   public static void initializeTimer(final VM vm) {
-    timer = new Timer();
     actorPool = vm.getActorPool();
+    if (timerWheel != null) {
+      timerWheel.shutdown();
+    }
+    timerWheel = new TimerWheel(actorPool);
     timerActor = vm.getMainActor();
 
     SInvokable s = (SInvokable) Classes.blockClass.lookupMessage(
@@ -70,6 +73,10 @@ public abstract class TimerPrim extends BinarySystemOperation {
     }
   }
 
+  public static TimerWheel getTimerWheel() {
+    return timerWheel;
+  }
+
   @Child protected TraceActorContextNode tracer = new TraceActorContextNode();
 
   @Specialization
@@ -86,8 +93,9 @@ public abstract class TimerPrim extends BinarySystemOperation {
   protected final Object perform(final Object target, final Actor targetActor,
       final long timeout) {
     if (VmSettings.REPLAY) {
+      // the timeouts are triggered by the trace, and cannot be cancelled
       performOnReplay(target, targetActor);
-      return true;
+      return Nil.nilObject;
     }
 
     int id = nextTimerTaskId.getAndIncrement();
@@ -95,16 +103,9 @@ public abstract class TimerPrim extends BinarySystemOperation {
       ActorExecutionTrace.intSystemCall(id, tracer);
     }
 
-    timer.schedule(new TimerTask() {
-      @Override
-      public void run() {
-        ExternalDirectMessage msg = new ExternalDirectMessage(targetActor,
-            VALUE_SELECTOR, new Object[] {target}, timerActor, null, valueCallTarget,
-            (short) 0, id);
-        targetActor.send(msg, actorPool);
-      }
-    }, timeout);
-    return true;
+    return timerWheel.schedule(timeout, t -> new ExternalDirectMessage(targetActor,
+        VALUE_SELECTOR, new Object[] {target}, timerActor, null, valueCallTarget,
+        (short) 0, id));
   }
 
   private void performOnReplay(final Object target, final Actor targetActor) {
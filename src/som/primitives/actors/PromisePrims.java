@@ -326,10 +326,8 @@ public final class PromisePrims {
             rcvr.getPromiseId());
       }
 
-      synchronized (rcvr) {
-        registerWhenResolved.register(rcvr, onResolved, current);
-        registerOnError.register(rcvr, onError, current);
-      }
+      registerWhenResolved.register(rcvr, onResolved, current);
+      registerOnError.register(rcvr, onError, current);
       return promise;
     }
 
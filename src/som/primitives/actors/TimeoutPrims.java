@@ -0,0 +1,58 @@
+package som.primitives.actors;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+import bd.primitives.Primitive;
+import som.interpreter.actors.TimerWheel.Timeout;
+import som.interpreter.nodes.nary.UnaryExpressionNode;
+import som.primitives.TimerPrim;
+import som.vm.constants.Nil;
+import som.vmobjects.SObjectWithClass.SObjectWithoutFields;
+
+
+public final class TimeoutPrims {
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "actorCancelTimeout:")
+  public abstract static class CancelTimeoutPrim extends UnaryExpressionNode {
+    @Specialization
+    @TruffleBoundary
+    public static final boolean cancel(final Timeout timeout) {
+      return timeout.cancel();
+    }
+
+    /** During replay, timeouts are triggered by the trace and cannot be cancelled. */
+    @Specialization
+    public static final boolean cancel(final SObjectWithoutFields nil) {
+      assert nil == Nil.nilObject;
+      return false;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "actorIsTimeoutPending:")
+  public abstract static class IsTimeoutPendingPrim extends UnaryExpressionNode {
+    @Specialization
+    public static final boolean isPending(final Timeout timeout) {
+      return timeout.isPending();
+    }
+
+    @Specialization
+    public static final boolean isPending(final SObjectWithoutFields nil) {
+      assert nil == Nil.nilObject;
+      return false;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "actorPendingTimeouts:")
+  public abstract static class PendingTimeoutsPrim extends UnaryExpressionNode {
+    @Specialization
+    @TruffleBoundary
+    public static final long pending(final Object module) {
+      return TimerPrim.getTimerWheel().getNumberOfPendingTimeouts();
+    }
+  }
+}
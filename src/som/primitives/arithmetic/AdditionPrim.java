@@ -8,6 +8,7 @@ import com.oracle.truffle.api.dsl.Specialization;
 
 import bd.primitives.Primitive;
 import som.vmobjects.SClass;
+import som.vmobjects.SConcatString;
 import som.vmobjects.SSymbol;
 
 
@@ -40,9 +41,13 @@ public abstract class AdditionPrim extends ArithmeticPrim {
   }
 
   @Specialization
-  @TruffleBoundary
-  public final String doString(final String left, final String right) {
-    return left + right;
+  public final SConcatString doConcatString(final SConcatString left, final String right) {
+    return left.append(right);
+  }
+
+  @Specialization
+  public final Object doString(final String left, final String right) {
+    return SConcatString.concat(left, right);
   }
 
   @Specialization
@@ -81,8 +86,14 @@ public abstract class AdditionPrim extends ArithmeticPrim {
 
   @Specialization
   @TruffleBoundary
-  public final String doString(final String left, final long right) {
-    return left + right;
+  public final SConcatString doConcatString(final SConcatString left, final long right) {
+    return left.append(Long.toString(right));
+  }
+
+  @Specialization
+  @TruffleBoundary
+  public final Object doString(final String left, final long right) {
+    return SConcatString.concat(left, Long.toString(right));
   }
 
   @Specialization
@@ -92,8 +103,12 @@ public abstract class AdditionPrim extends ArithmeticPrim {
   }
 
   @Specialization
-  @TruffleBoundary
-  public final String doString(final String left, final SSymbol right) {
-    return left + right.getString();
+  public final SConcatString doConcatString(final SConcatString left, final SSymbol right) {
+    return left.append(right.getString());
+  }
+
+  @Specialization
+  public final Object doString(final String left, final SSymbol right) {
+    return SConcatString.concat(left, right.getString());
   }
 }
@@ -143,4 +143,13 @@ public abstract class AtPrim extends BinaryBasicOperation {
       return (boolean) triggerException(receiver, idx);
     }
   }
+
+  @Specialization(guards = "receiver.isByteType()")
+  public final long doByteSArray(final SArray receiver, final long idx) {
+    try {
+      return receiver.getByteStorage()[(int) idx - 1];
+    } catch (IndexOutOfBoundsException e) {
+      return (long) triggerException(receiver, idx);
+    }
+  }
 }
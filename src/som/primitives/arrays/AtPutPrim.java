@@ -102,6 +102,10 @@ public abstract class AtPutPrim extends TernaryExpressionNode {
     return !(value instanceof Boolean);
   }
 
+  protected static final boolean valueIsByte(final long value) {
+    return SArray.isByte(value);
+  }
+
   protected static final boolean valueNotLongDoubleBoolean(final Object value) {
     return !(value instanceof Long) &&
         !(value instanceof Double) &&
@@ -131,6 +135,7 @@ public abstract class AtPutPrim extends TernaryExpressionNode {
 
   private void setAndPossiblyTransition(final SMutableArray receiver,
       final long index, final Object value, final PartiallyEmptyArray.Type expectedType) {
+    receiver.markModified();
     PartiallyEmptyArray storage = receiver.getPartiallyEmptyStorage();
     setValue(index - 1, value, storage);
     if (storage.getType() != expectedType) {
@@ -242,6 +247,7 @@ public abstract class AtPutPrim extends TernaryExpressionNode {
 
     try {
       if (storage.get(idx) != Nil.nilObject) {
+        receiver.markModified();
         storage.incEmptyElements();
         storage.set(idx, Nil.nilObject);
       }
@@ -267,6 +273,7 @@ public abstract class AtPutPrim extends TernaryExpressionNode {
       final Object value) {
     try {
       receiver.getObjectStorage()[(int) index - 1] = value;
+      receiver.markModified();
       return value;
     } catch (IndexOutOfBoundsException e) {
       return triggerException(receiver, index);
@@ -277,7 +284,9 @@ public abstract class AtPutPrim extends TernaryExpressionNode {
   public final long doObjectSArray(final SMutableArray receiver, final long index,
       final long value) {
     try {
+      receiver.ensureUnsharedStorage();
       receiver.getLongStorage()[(int) index - 1] = value;
+      receiver.markModified();
       return value;
     } catch (IndexOutOfBoundsException e) {
       return (long) triggerException(receiver, index);
@@ -304,7 +313,9 @@ public abstract class AtPutPrim extends TernaryExpressionNode {
   public final double doDoubleSArray(final SMutableArray receiver, final long index,
       final double value) {
     try {
+      receiver.ensureUnsharedStorage();
       receiver.getDoubleStorage()[(int) index - 1] = value;
+      receiver.markModified();
       return value;
     } catch (IndexOutOfBoundsException e) {
       return (double) triggerException(receiver, index);
@@ -330,7 +341,9 @@ public abstract class AtPutPrim extends TernaryExpressionNode {
   public final boolean doBooleanSArray(final SMutableArray receiver, final long index,
       final boolean value) {
     try {
+      receiver.ensureUnsharedStorage();
       receiver.getBooleanStorage()[(int) index - 1] = value;
+      receiver.markModified();
       return value;
     } catch (IndexOutOfBoundsException e) {
       return (boolean) triggerException(receiver, index);
@@ -351,4 +364,42 @@ public abstract class AtPutPrim extends TernaryExpressionNode {
       return triggerException(receiver, index);
     }
   }
+
+  @Specialization(guards = {"receiver.isByteType()", "valueIsByte(value)"})
+  public final long doByteSArray(final SMutableArray receiver, final long index,
+      final long value) {
+    try {
+      receiver.ensureUnsharedStorage();
+      receiver.getByteStorage()[(int) index - 1] = (byte) value;
+      receiver.markModified();
+      return value;
+    } catch (IndexOutOfBoundsException e) {
+      return (long) triggerException(receiver, index);
+    }
+  }
+
+  @Specialization(guards = {"receiver.isByteType()", "!valueIsByte(value)"})
+  public final long doByteSArrayWithLong(final SMutableArray receiver, final long index,
+      final long value) {
+    if (index < 1 || index > receiver.getByteStorage().length) {
+      return (long) triggerException(receiver, index);
+    }
+    receiver.transitionFromByteToLong()[(int) index - 1] = value;
+    return value;
+  }
+
+  @Specialization(guards = {"receiver.isByteType()", "valueIsNotLong(value)"})
+  public final Object doByteSArray(final SMutableArray receiver, final long index,
+      final Object value) {
+    byte[] storage = receiver.getByteStorage();
+    Object[] newStorage = new Object[storage.length];
+    for (int i = 0; i < storage.length; i++) {
+      newStorage[i] = (long) storage[i];
+    }
+    try {
+      return transitionAndSet(receiver, index, value, newStorage);
+    } catch (IndexOutOfBoundsException e) {
+      return triggerException(receiver, index);
+    }
+  }
 }
@@ -59,4 +59,12 @@ public abstract class CopyPrim extends UnaryExpressionNode {
     return new SMutableArray(receiver.getBooleanStorage().clone(),
         receiver.getSOMClass());
   }
+
+  @Specialization(guards = "receiver.isByteType()")
+  public final SMutableArray doByteArray(final SMutableArray receiver) {
+    assert !receiver.getSOMClass()
+                    .isTransferObject() : "Not yet supported, need to instantiate another class";
+    return new SMutableArray(receiver.getByteStorage().clone(),
+        receiver.getSOMClass());
+  }
 }
@@ -140,6 +140,25 @@ public abstract class DoPrim extends BinaryComplexOperation {
     return arr;
   }
 
+  @Specialization(guards = "arr.isByteType()")
+  public final SArray doByteArray(final SArray arr, final SBlock block) {
+    byte[] storage = arr.getByteStorage();
+    int length = storage.length;
+    try {
+      if (SArray.FIRST_IDX < length) {
+        execBlock(block, (long) storage[SArray.FIRST_IDX]);
+      }
+      for (long i = SArray.FIRST_IDX + 1; i < length; i++) {
+        execBlock(block, (long) storage[(int) i]);
+      }
+    } finally {
+      if (CompilerDirectives.inInterpreter()) {
+        SomLoop.reportLoopCount(length, this);
+      }
+    }
+    return arr;
+  }
+
   @Override
   public boolean isResultUsed(final ExpressionNode child) {
     return false;
@@ -0,0 +1,331 @@
+package som.primitives.arrays;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+import bd.primitives.Primitive;
+import som.VM;
+import som.interpreter.nodes.nary.BinaryComplexOperation.BinarySystemOperation;
+import som.interpreter.nodes.nary.TernaryExpressionNode;
+import som.interpreter.nodes.nary.TernaryExpressionNode.TernarySystemOperation;
+import som.interpreter.objectstorage.ObjectTransitionSafepoint;
+import som.primitives.threading.TaskThreads.SomForkJoinTask;
+import som.vm.VmSettings;
+import som.vm.constants.Classes;
+import som.vm.constants.Nil;
+import som.vmobjects.SArray;
+import som.vmobjects.SArray.PartiallyEmptyArray;
+import som.vmobjects.SArray.SMutableArray;
+import som.vmobjects.SBlock;
+
+
+/**
+ * Bulk operations on arrays, which split the array into chunks and process
+ * the chunks as tasks on the fork/join pool.
+ *
+ * <p>
+ * The blocks are executed concurrently, and need to be safe to run in
+ * parallel. Arrays below {@link VmSettings#PARALLEL_ARRAY_THRESHOLD} are
+ * processed sequentially on the current thread. With Kompos tracing, all
+ * arrays are processed sequentially, because the chunks are not traced as
+ * activities.
+ */
+public final class ParallelArrayPrims {
+
+  /** Number of chunks per worker, to balance chunks that take differently long. */
+  private static final int CHUNKS_PER_WORKER = 4;
+
+  private interface ChunkOperation {
+    Object apply(RootCallTarget target, SBlock block, Object storage, int from, int to);
+  }
+
+  private static final class ArrayChunkTask extends SomForkJoinTask {
+    private static final long serialVersionUID = 2541350924402813521L;
+
+    private final ChunkOperation operation;
+    private final Object         storage;
+    private final int            from;
+    private final int            to;
+
+    ArrayChunkTask(final SBlock block, final ChunkOperation operation, final Object storage,
+        final int from, final int to) {
+      super(new Object[] {block}, false);
+      this.operation = operation;
+      this.storage = storage;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Object execute(final RootCallTarget target) {
+      return operation.apply(target, (SBlock) argArray[0], storage, from, to);
+    }
+  }
+
+  private static int getLength(final Object storage) {
+    if (storage instanceof Integer) {
+      return (int) storage;
+    } else if (storage instanceof PartiallyEmptyArray) {
+      return ((PartiallyEmptyArray) storage).getLength();
+    } else if (storage instanceof Object[]) {
+      return ((Object[]) storage).length;
+    } else if (storage instanceof long[]) {
+      return ((long[]) storage).length;
+    } else if (storage instanceof double[]) {
+      return ((double[]) storage).length;
+    } else if (storage instanceof boolean[]) {
+      return ((boolean[]) storage).length;
+    } else {
+      return ((byte[]) storage).length;
+    }
+  }
+
+  private static Object getElement(final Object storage, final int idx) {
+    if (storage instanceof Object[]) {
+      return ((Object[]) storage)[idx];
+    } else if (storage instanceof long[]) {
+      return ((long[]) storage)[idx];
+    } else if (storage instanceof double[]) {
+      return ((double[]) storage)[idx];
+    } else if (storage instanceof Integer) {
+      return Nil.nilObject;
+    } else if (storage instanceof PartiallyEmptyArray) {
+      return ((PartiallyEmptyArray) storage).get(idx);
+    } else if (storage instanceof boolean[]) {
+      return ((boolean[]) storage)[idx];
+    } else {
+      return (long) ((byte[]) storage)[idx];
+    }
+  }
+
+  /**
+   * Apply the operation to chunks of the array, in parallel if the array is
+   * large enough.
+   *
+   * @return the results of the chunks, in order
+   */
+  private static Object[] processChunks(final ForkJoinPool pool, final SArray arr,
+      final SBlock block, final ChunkOperation operation) {
+    // the storage is read once, a concurrent transition is not observed by the chunks
+    Object storage = arr.getStoragePlain();
+    int length = getLength(storage);
+
+    int numChunks = Math.min(
+        (length + VmSettings.PARALLEL_ARRAY_THRESHOLD - 1) / VmSettings.PARALLEL_ARRAY_THRESHOLD,
+        pool.getParallelism() * CHUNKS_PER_WORKER);
+
+    if (numChunks <= 1 || VmSettings.KOMPOS_TRACING) {
+      RootCallTarget target = block.getMethod().getCallTarget();
+      if (length == 0) {
+        return new Object[0];
+      }
+      return new Object[] {operation.apply(target, block, storage, 0, length)};
+    }
+
+    ArrayChunkTask[] tasks = new ArrayChunkTask[numChunks];
+    for (int i = 0; i < numChunks; i++) {
+      int from = (int) ((long) length * i / numChunks);
+      int to = (int) ((long) length * (i + 1) / numChunks);
+      tasks[i] = new ArrayChunkTask(block, operation, storage, from, to);
+      pool.execute(tasks[i]);
+    }
+
+    Object[] results = new Object[numChunks];
+    try {
+      ObjectTransitionSafepoint.INSTANCE.unregister();
+      for (int i = 0; i < numChunks; i++) {
+        results[i] = tasks[i].join();
+      }
+    } finally {
+      ObjectTransitionSafepoint.INSTANCE.register();
+    }
+    return results;
+  }
+
+  /** Use a specialized storage if all elements are longs or doubles. */
+  private static Object toStorage(final Object[] elements) {
+    if (elements.length == 0) {
+      return 0;
+    }
+
+    boolean allLongs = true;
+    boolean allDoubles = true;
+    for (Object e : elements) {
+      allLongs &= e instanceof Long;
+      allDoubles &= e instanceof Double;
+    }
+
+    if (allLongs) {
+      long[] storage = new long[elements.length];
+      for (int i = 0; i < elements.length; i++) {
+        storage[i] = (long) elements[i];
+      }
+      return storage;
+    } else if (allDoubles) {
+      double[] storage = new double[elements.length];
+      for (int i = 0; i < elements.length; i++) {
+        storage[i] = (double) elements[i];
+      }
+      return storage;
+    }
+    return elements;
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "array:parallelDo:")
+  public abstract static class ParallelDoPrim extends BinarySystemOperation {
+    @CompilationFinal private ForkJoinPool forkJoinPool;
+
+    @Override
+    public final ParallelDoPrim initialize(final VM vm) {
+      super.initialize(vm);
+      forkJoinPool = vm.getForkJoinPool();
+      return this;
+    }
+
+    private static Object doChunk(final RootCallTarget target, final SBlock block,
+        final Object storage, final int from, final int to) {
+      for (int i = from; i < to; i++) {
+        target.call(new Object[] {block, getElement(storage, i)});
+      }
+      return Nil.nilObject;
+    }
+
+    @Specialization
+    @TruffleBoundary
+    public final SArray doArray(final SArray arr, final SBlock block) {
+      processChunks(forkJoinPool, arr, block, ParallelDoPrim::doChunk);
+      return arr;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "array:parallelCollect:")
+  public abstract static class ParallelCollectPrim extends BinarySystemOperation {
+    @CompilationFinal private ForkJoinPool forkJoinPool;
+
+    @Override
+    public final ParallelCollectPrim initialize(final VM vm) {
+      super.initialize(vm);
+      forkJoinPool = vm.getForkJoinPool();
+      return this;
+    }
+
+    private static Object collectChunk(final RootCallTarget target, final SBlock block,
+        final Object storage, final int from, final int to) {
+      Object[] results = new Object[to - from];
+      for (int i = from; i < to; i++) {
+        results[i - from] = target.call(new Object[] {block, getElement(storage, i)});
+      }
+      return results;
+    }
+
+    @Specialization
+    @TruffleBoundary
+    public final SArray doArray(final SArray arr, final SBlock block) {
+      Object[] chunks = processChunks(forkJoinPool, arr, block,
+          ParallelCollectPrim::collectChunk);
+
+      int length = 0;
+      for (Object c : chunks) {
+        length += ((Object[]) c).length;
+      }
+
+      Object[] result = new Object[length];
+      int offset = 0;
+      for (Object c : chunks) {
+        Object[] chunk = (Object[]) c;
+        System.arraycopy(chunk, 0, result, offset, chunk.length);
+        offset += chunk.length;
+      }
+      return new SMutableArray(toStorage(result), Classes.arrayClass);
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(primitive = "array:parallelSelect:")
+  public abstract static class ParallelSelectPrim extends BinarySystemOperation {
+    @CompilationFinal private ForkJoinPool forkJoinPool;
+
+    @Override
+    public final ParallelSelectPrim initialize(final VM vm) {
+      super.initialize(vm);
+      forkJoinPool = vm.getForkJoinPool();
+      return this;
+    }
+
+    private static Object selectChunk(final RootCallTarget target, final SBlock block,
+        final Object storage, final int from, final int to) {
+      ArrayList<Object> selected = new ArrayList<>();
+      for (int i = from; i < to; i++) {
+        Object e = getElement(storage, i);
+        if (target.call(new Object[] {block, e}) == Boolean.TRUE) {
+          selected.add(e);
+        }
+      }
+      return selected;
+    }
+
+    @Specialization
+    @TruffleBoundary
+    @SuppressWarnings("unchecked")
+    public final SArray doArray(final SArray arr, final SBlock block) {
+      Object[] chunks = processChunks(forkJoinPool, arr, block,
+          ParallelSelectPrim::selectChunk);
+
+      ArrayList<Object> result = new ArrayList<>();
+      for (Object c : chunks) {
+        result.addAll((ArrayList<Object>) c);
+      }
+      return new SMutableArray(toStorage(result.toArray()), Classes.arrayClass);
+    }
+  }
+
+  /**
+   * Each chunk is reduced starting with its first element, and the results of
+   * the chunks are then combined with the initial value, in order. Thus, the
+   * result is the same as for a sequential {@code inject:into:} only if the
+   * block is associative.
+   */
+  @GenerateNodeFactory
+  @Primitive(primitive = "array:parallelInject:into:")
+  public abstract static class ParallelInjectPrim extends TernarySystemOperation {
+    @CompilationFinal private ForkJoinPool forkJoinPool;
+
+    @Override
+    public final TernaryExpressionNode initialize(final VM vm) {
+      super.initialize(vm);
+      forkJoinPool = vm.getForkJoinPool();
+      return this;
+    }
+
+    private static Object reduceChunk(final RootCallTarget target, final SBlock block,
+        final Object storage, final int from, final int to) {
+      Object result = getElement(storage, from);
+      for (int i = from + 1; i < to; i++) {
+        result = target.call(new Object[] {block, result, getElement(storage, i)});
+      }
+      return result;
+    }
+
+    @Specialization
+    @TruffleBoundary
+    public final Object doArray(final SArray arr, final Object initial, final SBlock block) {
+      Object[] chunks = processChunks(forkJoinPool, arr, block,
+          ParallelInjectPrim::reduceChunk);
+
+      RootCallTarget target = block.getMethod().getCallTarget();
+      Object result = initial;
+      for (Object c : chunks) {
+        result = target.call(new Object[] {block, result, c});
+      }
+      return result;
+    }
+  }
+}
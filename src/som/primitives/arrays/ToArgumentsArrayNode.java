@@ -97,4 +97,16 @@ public abstract class ToArgumentsArrayNode extends ExprWithTagsNode {
     }
     return args;
   }
+
+  @Specialization(guards = "somArray.isByteType()")
+  public final Object[] doByteArray(final SArray somArray,
+      final Object rcvr) {
+    byte[] arr = somArray.getByteStorage();
+    Object[] args = new Object[arr.length + 1];
+    args[0] = rcvr;
+    for (int i = 0; i < arr.length; i++) {
+      args[i + 1] = (long) arr[i];
+    }
+    return args;
+  }
 }
@@ -1,5 +1,6 @@
 package som.primitives.processes;
 
+import java.util.Arrays;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
 import java.util.concurrent.ForkJoinWorkerThread;
@@ -10,6 +11,7 @@ import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.instrumentation.Tag;
+import com.oracle.truffle.api.source.SourceSection;
 
 import bd.primitives.Primitive;
 import som.VM;
@@ -18,11 +20,14 @@ import som.compiler.MixinBuilder.MixinDefinitionId;
 import som.interpreter.SomLanguage;
 import som.interpreter.actors.SuspendExecutionNodeGen;
 import som.interpreter.nodes.ExceptionSignalingNode;
+import som.interpreter.nodes.ExpressionNode;
 import som.interpreter.nodes.nary.BinaryComplexOperation.BinarySystemOperation;
+import som.interpreter.nodes.nary.BinaryExpressionNode;
 import som.interpreter.nodes.nary.TernaryExpressionNode;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
 import som.interpreter.nodes.nary.UnaryExpressionNode.UnarySystemOperation;
 import som.interpreter.objectstorage.ObjectTransitionSafepoint;
+import som.interpreter.processes.ChannelBuffer;
 import som.interpreter.processes.SChannel;
 import som.interpreter.processes.SChannel.SChannelInput;
 import som.interpreter.processes.SChannel.SChannelOutput;
@@ -30,6 +35,10 @@ import som.primitives.ObjectPrims.IsValue;
 import som.vm.Activity;
 import som.vm.Symbols;
 import som.vm.VmSettings;
+import som.vm.constants.Classes;
+import som.vm.constants.Nil;
+import som.vmobjects.SArray;
+import som.vmobjects.SArray.SMutableArray;
 import som.vmobjects.SClass;
 import som.vmobjects.SInvokable;
 import som.vmobjects.SObject.SImmutableObject;
@@ -294,6 +303,179 @@ public abstract class ChannelPrimitives {
     }
   }
 
+  @Primitive(primitive = "procRead:all:")
+  @GenerateNodeFactory
+  public abstract static class ReadAllPrim extends BinarySystemOperation {
+    /** Halt execution when triggered by breakpoint on write end. */
+    @Child protected UnaryExpressionNode haltNode;
+
+    /** Breakpoint info for triggering suspension after write. */
+    @Child protected AbstractBreakpointNode afterWrite;
+
+    @Child protected ExceptionSignalingNode argumentError;
+
+    @Override
+    public final ReadAllPrim initialize(final VM vm) {
+      super.initialize(vm);
+      haltNode = insert(SuspendExecutionNodeGen.create(0, null).initialize(sourceSection));
+      afterWrite = insert(
+          Breakpoints.create(sourceSection, BreakpointType.CHANNEL_AFTER_SEND, vm));
+      argumentError = insert(ExceptionSignalingNode.createArgumentErrorNode(sourceSection));
+      return this;
+    }
+
+    @Specialization
+    public final SMutableArray readAll(final VirtualFrame frame, final SChannelInput in,
+        final long n) {
+      if (n < 0 || n > Integer.MAX_VALUE) {
+        argumentError.signal(n);
+      }
+      try {
+        SMutableArray result = new SMutableArray(
+            in.readAllAndSuspendWriter((int) n, afterWrite.executeShouldHalt()),
+            Classes.arrayClass);
+        if (in.shouldBreakAfterRead()) {
+          haltNode.executeEvaluated(frame, result);
+        }
+        return result;
+      } catch (InterruptedException e) {
+        CompilerDirectives.transferToInterpreter();
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    protected boolean hasTagIgnoringEagerness(final Class<? extends Tag> tag) {
+      if (tag == ChannelRead.class || tag == ExpressionBreakpoint.class) {
+        return true;
+      } else {
+        return super.hasTagIgnoringEagerness(tag);
+      }
+    }
+  }
+
+  @Primitive(primitive = "procWrite:all:")
+  @GenerateNodeFactory
+  public abstract static class WriteAllPrim extends BinarySystemOperation {
+    @Child protected IsValue isVal = IsValue.createSubNode();
+
+    /** Halt execution when triggered by breakpoint on write end. */
+    @Child protected UnaryExpressionNode haltNode;
+
+    /** Breakpoint info for triggering suspension after read. */
+    @Child protected AbstractBreakpointNode afterRead;
+
+    @Child protected ExceptionSignalingNode notAValue;
+
+    @Override
+    public final WriteAllPrim initialize(final VM vm) {
+      super.initialize(vm);
+      haltNode = insert(SuspendExecutionNodeGen.create(0, null).initialize(sourceSection));
+      afterRead =
+          insert(Breakpoints.create(sourceSection, BreakpointType.CHANNEL_AFTER_RCV, vm));
+      notAValue = insert(ExceptionSignalingNode.createNotAValueNode(sourceSection));
+      return this;
+    }
+
+    @Specialization(guards = "arr.isEmptyType()")
+    public final SArray writeEmpty(final VirtualFrame frame, final SChannelOutput out,
+        final SArray arr) {
+      Object[] values = new Object[arr.getEmptyStorage()];
+      Arrays.fill(values, Nil.nilObject);
+      return write(frame, out, arr, values);
+    }
+
+    @Specialization(guards = "arr.isPartiallyEmptyType()")
+    public final SArray writePartiallyEmpty(final VirtualFrame frame,
+        final SChannelOutput out, final SArray arr) {
+      Object[] values = arr.getPartiallyEmptyStorage().getStorage().clone();
+      return writeChecked(frame, out, arr, values);
+    }
+
+    @Specialization(guards = "arr.isObjectType()")
+    public final SArray writeObjects(final VirtualFrame frame, final SChannelOutput out,
+        final SArray arr) {
+      return writeChecked(frame, out, arr, arr.getObjectStorage().clone());
+    }
+
+    @Specialization(guards = "arr.isLongType()")
+    public final SArray writeLongs(final VirtualFrame frame, final SChannelOutput out,
+        final SArray arr) {
+      long[] storage = arr.getLongStorage();
+      Object[] values = new Object[storage.length];
+      for (int i = 0; i < storage.length; i++) {
+        values[i] = storage[i];
+      }
+      return write(frame, out, arr, values);
+    }
+
+    @Specialization(guards = "arr.isDoubleType()")
+    public final SArray writeDoubles(final VirtualFrame frame, final SChannelOutput out,
+        final SArray arr) {
+      double[] storage = arr.getDoubleStorage();
+      Object[] values = new Object[storage.length];
+      for (int i = 0; i < storage.length; i++) {
+        values[i] = storage[i];
+      }
+      return write(frame, out, arr, values);
+    }
+
+    @Specialization(guards = "arr.isBooleanType()")
+    public final SArray writeBooleans(final VirtualFrame frame, final SChannelOutput out,
+        final SArray arr) {
+      boolean[] storage = arr.getBooleanStorage();
+      Object[] values = new Object[storage.length];
+      for (int i = 0; i < storage.length; i++) {
+        values[i] = storage[i];
+      }
+      return write(frame, out, arr, values);
+    }
+
+    @Specialization(guards = "arr.isByteType()")
+    public final SArray writeBytes(final VirtualFrame frame, final SChannelOutput out,
+        final SArray arr) {
+      byte[] storage = arr.getByteStorage();
+      Object[] values = new Object[storage.length];
+      for (int i = 0; i < storage.length; i++) {
+        values[i] = (long) storage[i];
+      }
+      return write(frame, out, arr, values);
+    }
+
+    private SArray writeChecked(final VirtualFrame frame, final SChannelOutput out,
+        final SArray arr, final Object[] values) {
+      for (Object v : values) {
+        if (!isVal.executeBoolean(frame, v)) {
+          notAValue.signal(v);
+        }
+      }
+      return write(frame, out, arr, values);
+    }
+
+    private SArray write(final VirtualFrame frame, final SChannelOutput out,
+        final SArray arr, final Object[] values) {
+      try {
+        out.writeAllAndSuspendReader(values, afterRead.executeShouldHalt());
+        if (out.shouldBreakAfterWrite()) {
+          haltNode.executeEvaluated(frame, arr);
+        }
+      } catch (InterruptedException e) {
+        CompilerDirectives.transferToInterpreter();
+        throw new RuntimeException(e);
+      }
+      return arr;
+    }
+
+    @Override
+    protected boolean hasTagIgnoringEagerness(final Class<? extends Tag> tag) {
+      if (tag == ChannelWrite.class || tag == ExpressionBreakpoint.class) {
+        return true;
+      } else {
+        return super.hasTagIgnoringEagerness(tag);
+      }
+    }
+  }
+
   @Primitive(primitive = "procIn:")
   @GenerateNodeFactory
   public abstract static class InPrim extends UnaryExpressionNode {
@@ -318,6 +500,34 @@ public abstract class ChannelPrimitives {
     }
   }
 
+  @Primitive(primitive = "procChannelNew:capacity:")
+  @GenerateNodeFactory
+  public abstract static class BufferedChannelNewPrim extends BinaryExpressionNode {
+    @Child protected ExceptionSignalingNode argumentError;
+
+    @Override
+    public ExpressionNode initialize(final SourceSection sourceSection,
+        final boolean eagerlyWrapped) {
+      super.initialize(sourceSection, eagerlyWrapped);
+      argumentError = insert(ExceptionSignalingNode.createArgumentErrorNode(sourceSection));
+      return this;
+    }
+
+    @Specialization
+    public final SChannel newChannel(final Object module, final long capacity) {
+      if (capacity < 0 || capacity > ChannelBuffer.MAX_CAPACITY) {
+        argumentError.signal(capacity);
+      }
+      SChannel result = SChannel.create((int) capacity);
+
+      if (VmSettings.KOMPOS_TRACING) {
+        KomposTrace.passiveEntityCreation(PassiveEntityType.CHANNEL,
+            result.getId(), KomposTrace.getPrimitiveCaller(sourceSection));
+      }
+      return result;
+    }
+  }
+
   @Primitive(primitive = "procClassChannel:in:out:")
   @GenerateNodeFactory
   public abstract static class SetChannelClasses extends TernaryExpressionNode {
@@ -11,6 +11,7 @@ import bd.primitives.Primitive;
 import som.interpreter.nodes.nary.BinaryExpressionNode;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
 import som.interpreter.objectstorage.ObjectTransitionSafepoint;
+import som.vm.ManagedBlocking;
 
 
 public final class ConditionPrimitives {
@@ -44,7 +45,10 @@ public final class ConditionPrimitives {
     public final Condition doCondition(final Condition cond) {
       try {
         ObjectTransitionSafepoint.INSTANCE.unregister();
-        cond.await();
+        ManagedBlocking.block(() -> {
+          cond.await();
+          return null;
+        });
       } catch (InterruptedException e) {
         /* doesn't tell us a lot at the moment, so it is ignored */
       }
@@ -63,7 +67,8 @@ public final class ConditionPrimitives {
       try {
         ObjectTransitionSafepoint.INSTANCE.unregister();
         try {
-          return cond.await(milliseconds, TimeUnit.MILLISECONDS);
+          return ManagedBlocking.block(
+              () -> cond.await(milliseconds, TimeUnit.MILLISECONDS));
         } catch (InterruptedException e) {
           return false;
         }
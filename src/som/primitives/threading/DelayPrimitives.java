@@ -7,6 +7,7 @@ import com.oracle.truffle.api.dsl.Specialization;
 import bd.primitives.Primitive;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
 import som.interpreter.objectstorage.ObjectTransitionSafepoint;
+import som.vm.ManagedBlocking;
 import som.vm.constants.Nil;
 import som.vmobjects.SObjectWithClass.SObjectWithoutFields;
 
@@ -20,7 +21,10 @@ public final class DelayPrimitives {
     public final SObjectWithoutFields doLong(final long milliseconds) {
       try {
         ObjectTransitionSafepoint.INSTANCE.unregister();
-        Thread.sleep(milliseconds);
+        ManagedBlocking.block(() -> {
+          Thread.sleep(milliseconds);
+          return null;
+        });
       } catch (InterruptedException e) {
         /* Not relevant for the moment */
       }
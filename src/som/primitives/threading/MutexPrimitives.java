@@ -14,6 +14,7 @@ import som.interpreter.nodes.dispatch.BlockDispatchNodeGen;
 import som.interpreter.nodes.nary.BinaryExpressionNode;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
 import som.interpreter.objectstorage.ObjectTransitionSafepoint;
+import som.vm.ManagedBlocking;
 import som.vmobjects.SBlock;
 import som.vmobjects.SClass;
 import tools.concurrency.Tags.AcquireLock;
@@ -30,7 +31,14 @@ public final class MutexPrimitives {
     public static final ReentrantLock lock(final ReentrantLock lock) {
       try {
         ObjectTransitionSafepoint.INSTANCE.unregister();
-        lock.lock();
+        if (!lock.tryLock()) {
+          ManagedBlocking.block(() -> {
+            lock.lock();
+            return null;
+          });
+        }
+      } catch (InterruptedException e) {
+        /* lock() itself is not interruptible */
       } finally {
         ObjectTransitionSafepoint.INSTANCE.register();
       }
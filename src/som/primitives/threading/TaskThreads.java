@@ -67,12 +67,20 @@ public final class TaskThreads {
 
         ForkJoinThread thread = (ForkJoinThread) Thread.currentThread();
         thread.task = this;
-        return target.call(argArray);
+        return execute(target);
       } finally {
         ObjectTransitionSafepoint.INSTANCE.unregister();
       }
     }
 
+    /**
+     * Execute the code of this activity. By default, this is the block with
+     * the given arguments.
+     */
+    protected Object execute(final RootCallTarget target) {
+      return target.call(argArray);
+    }
+
     @Override
     public void setStepToNextTurn(final boolean val) {
       throw new UnsupportedOperationException(
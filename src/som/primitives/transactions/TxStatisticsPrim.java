@@ -0,0 +1,23 @@
+package som.primitives.transactions;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+import bd.primitives.Primitive;
+import som.interpreter.nodes.nary.UnaryExpressionNode.UnarySystemOperation;
+import som.interpreter.transactions.Transactions;
+import som.vm.constants.Classes;
+import som.vmobjects.SArray.SImmutableArray;
+
+
+@GenerateNodeFactory
+@Primitive(primitive = "txStatistics:")
+public abstract class TxStatisticsPrim extends UnarySystemOperation {
+  @Specialization
+  @TruffleBoundary
+  public final Object doSObject(final Object module) {
+    long[] stats = Transactions.getStatistics();
+    return new SImmutableArray(stats, Classes.valueArrayClass);
+  }
+}
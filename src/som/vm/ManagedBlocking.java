@@ -0,0 +1,94 @@
+package som.vm;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+
+/**
+ * Blocking operations of processes and threads, i.e., channel reads and
+ * writes, locks, conditions, and delays.
+ *
+ * <p>
+ * With elastic activity threads, the pools for processes and threads run
+ * only {@link VmSettings#NUM_THREADS} threads at a time, and a blocking
+ * operation is executed as {@link ManagedBlocker}. This way, the pool starts
+ * a spare thread only while a worker is blocked, and stops it once it was
+ * idle for a while. Otherwise, the operation simply blocks the worker.
+ */
+public final class ManagedBlocking {
+
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  /**
+   * Create a pool that runs {@link VmSettings#NUM_THREADS} threads, and adds
+   * spare threads for blocked workers up to the given maximum.
+   *
+   * <p>
+   * Since Java 9, the pool has an explicit maximum, and blocking beyond it
+   * fails with a {@link java.util.concurrent.RejectedExecutionException}.
+   * We compile for Java 8, so the constructor that sets the maximum is looked
+   * up reflectively, instead of depending on the default of the plain one.
+   */
+  public static ForkJoinPool createElasticPool(final ForkJoinWorkerThreadFactory factory,
+      final UncaughtExceptionHandler handler, final boolean asyncMode,
+      final int maxThreads) {
+    try {
+      Constructor<ForkJoinPool> withMaximum = ForkJoinPool.class.getConstructor(int.class,
+          ForkJoinWorkerThreadFactory.class, UncaughtExceptionHandler.class, boolean.class,
+          int.class, int.class, int.class, Predicate.class, long.class, TimeUnit.class);
+      return withMaximum.newInstance(VmSettings.NUM_THREADS, factory, handler, asyncMode,
+          VmSettings.NUM_THREADS, maxThreads, 1, null, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    } catch (NoSuchMethodException e) {
+      return new ForkJoinPool(VmSettings.NUM_THREADS, factory, handler, asyncMode);
+    } catch (InstantiationException | IllegalAccessException
+        | InvocationTargetException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @FunctionalInterface
+  public interface BlockingOperation<T> {
+    T block() throws InterruptedException;
+  }
+
+  public static <T> T block(final BlockingOperation<T> op) throws InterruptedException {
+    if (VmSettings.ELASTIC_ACTIVITY_THREADS && ForkJoinTask.inForkJoinPool()) {
+      Blocker<T> blocker = new Blocker<>(op);
+      ForkJoinPool.managedBlock(blocker);
+      return blocker.result;
+    }
+    return op.block();
+  }
+
+  private static final class Blocker<T> implements ManagedBlocker {
+    private final BlockingOperation<T> op;
+
+    private T       result;
+    private boolean done;
+
+    Blocker(final BlockingOperation<T> op) {
+      this.op = op;
+    }
+
+    @Override
+    public boolean block() throws InterruptedException {
+      result = op.block();
+      done = true;
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return done;
+    }
+  }
+
+  private ManagedBlocking() {}
+}
@@ -52,6 +52,7 @@ import tools.snapshot.nodes.AbstractArraySerializationNodeGen.TransferArraySeria
 import tools.snapshot.nodes.AbstractArraySerializationNodeGen.ValueArraySerializationNodeFactory;
 import tools.snapshot.nodes.AbstractSerializationNode;
 import tools.snapshot.nodes.BlockSerializationNodeFactory;
+import tools.snapshot.nodes.HashMapSerializationNodeFactory;
 import tools.snapshot.nodes.MessageSerializationNodeFactory;
 import tools.snapshot.nodes.ObjectSerializationNodesFactory.SObjectWithoutFieldsSerializationNodeFactory;
 import tools.snapshot.nodes.PrimitiveSerializationNodesFactory.BooleanSerializationNodeFactory;
@@ -418,6 +419,8 @@ public final class ObjectSystem {
     setDummyClassFactory(Classes.messageClass, MessageSerializationNodeFactory.getInstance());
     setDummyClassFactory(Classes.methodClass,
         SInvokableSerializationNodeFactory.getInstance());
+    setDummyClassFactory(Classes.hashMapClass, HashMapSerializationNodeFactory.getInstance());
+    setDummyClassFactory(Classes.hashSetClass, HashMapSerializationNodeFactory.getInstance());
 
     SClass kernelClass = kernelModule.instantiateClass(Nil.nilObject, Classes.objectClass);
     KernelObj.kernel.setClass(kernelClass);
@@ -499,7 +502,7 @@ public final class ObjectSystem {
     int emptyFJPool = 0;
     while (emptyFJPool < 120) {
       if (promise.isCompleted()) {
-        if (promise.isErroredUnsync()) {
+        if (promise.isErrored()) {
           return Launcher.EXIT_WITH_ERROR;
         }
         return vm.lastExitCode();
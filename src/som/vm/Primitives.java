@@ -52,6 +52,7 @@ import som.primitives.DoublePrimsFactory;
 import som.primitives.EqualsEqualsPrimFactory;
 import som.primitives.ExceptionsPrimsFactory;
 import som.primitives.FilePrimsFactory;
+import som.primitives.HashMapPrimsFactory;
 import som.primitives.HashPrimFactory;
 import som.primitives.IntegerPrimsFactory;
 import som.primitives.MethodPrimsFactory;
@@ -67,6 +68,7 @@ import som.primitives.UnequalsPrimFactory;
 import som.primitives.actors.ActorClassesFactory;
 import som.primitives.actors.CreateActorPrimFactory;
 import som.primitives.actors.PromisePrimsFactory;
+import som.primitives.actors.TimeoutPrimsFactory;
 import som.primitives.arithmetic.AdditionPrimFactory;
 import som.primitives.arithmetic.DoubleDivPrimFactory;
 import som.primitives.arithmetic.ExpPrimFactory;
@@ -89,6 +91,7 @@ import som.primitives.arrays.DoIndexesPrimFactory;
 import som.primitives.arrays.DoPrimFactory;
 import som.primitives.arrays.NewImmutableArrayNodeFactory;
 import som.primitives.arrays.NewPrimFactory;
+import som.primitives.arrays.ParallelArrayPrimsFactory;
 import som.primitives.arrays.PutAllNodeFactory;
 import som.primitives.bitops.BitAndPrimFactory;
 import som.primitives.bitops.BitOrPrimFactory;
@@ -100,6 +103,7 @@ import som.primitives.threading.MutexPrimitivesFactory;
 import som.primitives.threading.ThreadPrimitivesFactory;
 import som.primitives.threading.ThreadingModuleFactory;
 import som.primitives.transactions.AtomicPrimFactory;
+import som.primitives.transactions.TxStatisticsPrimFactory;
 import som.vmobjects.SInvokable;
 import som.vmobjects.SSymbol;
 
@@ -184,6 +188,7 @@ public class Primitives extends PrimitiveLoader<VM, ExpressionNode, SSymbol> {
     addAll(allFactories, DoublePrimsFactory.getFactories());
     addAll(allFactories, ExceptionsPrimsFactory.getFactories());
     addAll(allFactories, FilePrimsFactory.getFactories());
+    addAll(allFactories, HashMapPrimsFactory.getFactories());
     addAll(allFactories, IfMessageNodeGen.getFactories());
     addAll(allFactories, IntegerPrimsFactory.getFactories());
     addAll(allFactories, MethodPrimsFactory.getFactories());
@@ -194,6 +199,7 @@ public class Primitives extends PrimitiveLoader<VM, ExpressionNode, SSymbol> {
     addAll(allFactories, PromisePrimsFactory.getFactories());
     addAll(allFactories, StringPrimsFactory.getFactories());
     addAll(allFactories, SystemPrimsFactory.getFactories());
+    addAll(allFactories, TimeoutPrimsFactory.getFactories());
 
     addAll(allFactories, ActivitySpawnFactory.getFactories());
     addAll(allFactories, ThreadingModuleFactory.getFactories());
@@ -201,6 +207,7 @@ public class Primitives extends PrimitiveLoader<VM, ExpressionNode, SSymbol> {
     addAll(allFactories, DelayPrimitivesFactory.getFactories());
     addAll(allFactories, MutexPrimitivesFactory.getFactories());
     addAll(allFactories, ActivityJoinFactory.getFactories());
+    addAll(allFactories, ParallelArrayPrimsFactory.getFactories());
     addAll(allFactories, ThreadPrimitivesFactory.getFactories());
     addAll(allFactories, ChannelPrimitivesFactory.getFactories());
 
@@ -248,6 +255,7 @@ public class Primitives extends PrimitiveLoader<VM, ExpressionNode, SSymbol> {
     add(allFactories, UnequalsPrimFactory.getInstance());
     add(allFactories, new WhileWithStaticBlocksNodeFactory());
     add(allFactories, TimerPrimFactory.getInstance());
+    add(allFactories, TxStatisticsPrimFactory.getInstance());
 
     add(allFactories, CreateActorPrimFactory.getInstance());
     add(allFactories, ResolvePromiseNodeFactory.getInstance());
@@ -1,6 +1,7 @@
 package som.vm;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
@@ -10,18 +11,45 @@ import som.vmobjects.SSymbol;
 
 public final class Symbols implements IdProvider<SSymbol> {
 
+  /**
+   * Get the unique symbol for the given string.
+   *
+   * <p>
+   * This is safe to be used concurrently from all activities.
+   * Looking up an existing symbol does not take any locks. Only the creation
+   * of a new symbol synchronizes on the table entry, which ensures that
+   * a symbol is created and registered only once.
+   */
   @TruffleBoundary
   public static SSymbol symbolFor(final String string) {
-    String interned = string.intern();
+    lookups.increment();
 
-    SSymbol result = symbolTable.get(interned);
+    SSymbol result = symbolTable.get(string);
     if (result != null) {
       return result;
     }
 
-    result = new SSymbol(interned);
-    symbolTable.put(string, result);
-    return result;
+    return symbolTable.computeIfAbsent(string, Symbols::createSymbol);
+  }
+
+  private static SSymbol createSymbol(final String string) {
+    created.increment();
+    return new SSymbol(string);
+  }
+
+  /** Number of symbols in the table. */
+  public static int getNumberOfSymbols() {
+    return symbolTable.size();
+  }
+
+  /** Number of calls to {@link #symbolFor(String)}. */
+  public static long getNumberOfLookups() {
+    return lookups.sum();
+  }
+
+  /** Number of calls to {@link #symbolFor(String)} that created a new symbol. */
+  public static long getNumberOfCreatedSymbols() {
+    return created.sum();
   }
 
   private Symbols() {}
@@ -31,7 +59,11 @@ public final class Symbols implements IdProvider<SSymbol> {
     return symbolFor(id);
   }
 
-  private static final HashMap<String, SSymbol> symbolTable = new HashMap<>();
+  private static final ConcurrentHashMap<String, SSymbol> symbolTable =
+      new ConcurrentHashMap<>();
+
+  private static final LongAdder lookups = new LongAdder();
+  private static final LongAdder created = new LongAdder();
 
   public static final SSymbol NEW             = symbolFor("new");
   public static final SSymbol DEF_CLASS       = symbolFor("`define`cls");
@@ -24,6 +24,7 @@ public class VmOptions {
 
   @CompilationFinal public boolean webDebuggerEnabled;
   @CompilationFinal public boolean profilingEnabled;
+  @CompilationFinal public boolean samplingEnabled;
   @CompilationFinal public boolean dynamicMetricsEnabled;
   @CompilationFinal public boolean siCandidateIdentifierEnabled;
   @CompilationFinal public boolean coverageEnabled;
@@ -38,7 +39,7 @@ public class VmOptions {
     this.args = processVmArguments(args);
     showUsage = args.length == 0;
     if (!VmSettings.INSTRUMENTATION &&
-        (webDebuggerEnabled || profilingEnabled ||
+        (webDebuggerEnabled || profilingEnabled || samplingEnabled ||
             dynamicMetricsEnabled || coverageEnabled || siCandidateIdentifierEnabled)) {
       throw new IllegalStateException(
           "Instrumentation is not enabled, but one of the tools is used. " +
@@ -72,6 +73,9 @@ public class VmOptions {
         } else if (arguments[currentArg].equals("--profile")) {
           profilingEnabled = true;
           currentArg += 1;
+        } else if (arguments[currentArg].equals("--sample")) {
+          samplingEnabled = true;
+          currentArg += 1;
         } else if (arguments[currentArg].equals("--dynamic-metrics")) {
           dynamicMetricsEnabled = true;
           currentArg += 1;
@@ -114,6 +118,7 @@ public class VmOptions {
     Output.println("  --web-debug            Start web debugger");
     Output.println("");
     Output.println("  --profile              Enable the TruffleProfiler");
+    Output.println("  --sample               Enable the sampling profiler for all activities");
     Output.println("  --dynamic-metrics      Enable the DynamicMetrics tool");
     Output.println("  --si-candidates        Enable the Super-instruction candidate tool");
     Output.println(
@@ -20,6 +20,7 @@ public class VmSettings implements Settings {
   public static final boolean KOMPOS_TRACING;
   public static final boolean TRACE_SMALL_IDS;
   public static final boolean SNAPSHOTS_ENABLED;
+  public static final boolean SNAPSHOTS_INCREMENTAL;
   public static final boolean TRACK_SNAPSHOT_ENTITIES;
   public static final boolean TEST_SNAPSHOTS;
   public static final boolean TEST_SERIALIZE_ALL;
@@ -43,6 +44,19 @@ public class VmSettings implements Settings {
 
   public static final String BASE_DIRECTORY;
 
+  public static final String KERNAN_CACHE_DIRECTORY;
+
+  public static final int  ACTOR_QUANTUM_MESSAGES;
+  public static final long ACTOR_QUANTUM_NANOS;
+
+  public static final boolean ACTOR_AFFINITY_SCHEDULING;
+
+  public static final boolean ELASTIC_ACTIVITY_THREADS;
+
+  public static final int TX_SPARSE_ARRAY_LENGTH;
+
+  public static final int PARALLEL_ARRAY_THRESHOLD;
+
   static {
     String prop = System.getProperty("som.threads");
     if (prop == null) {
@@ -68,6 +82,7 @@ public class VmSettings implements Settings {
     TEST_SNAPSHOTS = getBool("som.snapshotTest", false);
     TEST_SERIALIZE_ALL = getBool("som.actorSnapshotAll", false);
     SNAPSHOTS_ENABLED = getBool("som.actorSnapshot", false) || TEST_SNAPSHOTS;
+    SNAPSHOTS_INCREMENTAL = SNAPSHOTS_ENABLED && getBool("som.snapshotIncremental", false);
     TRACK_SNAPSHOT_ENTITIES = (REPLAY && SNAPSHOTS_ENABLED) || TEST_SNAPSHOTS;
 
     boolean dm = getBool("som.dynamicMetrics", false);
@@ -85,6 +100,39 @@ public class VmSettings implements Settings {
 
     BASE_DIRECTORY = System.getProperty("som.baseDir", System.getProperty("user.dir"));
 
+    // an empty directory disables the cache of Kernan parse trees
+    KERNAN_CACHE_DIRECTORY =
+        System.getProperty("som.kernanCache", BASE_DIRECTORY + "/.kernan-cache");
+
+    // 0 means an actor processes its mailbox until it is empty
+    ACTOR_QUANTUM_MESSAGES = getInteger("som.actorQuantumMessages", 0);
+    ACTOR_QUANTUM_NANOS = getInteger("som.actorQuantumMicros", 0) * 1000L;
+
+    String scheduler = System.getProperty("som.actorScheduler", "default");
+    if ("affinity".equals(scheduler)) {
+      ACTOR_AFFINITY_SCHEDULING = true;
+    } else if ("default".equals(scheduler)) {
+      ACTOR_AFFINITY_SCHEDULING = false;
+    } else {
+      throw new IllegalArgumentException("Unknown actor scheduler: " + scheduler
+          + ". Supported are: default, affinity");
+    }
+
+    String activityThreads = System.getProperty("som.activityThreads", "dedicated");
+    if ("elastic".equals(activityThreads)) {
+      ELASTIC_ACTIVITY_THREADS = true;
+    } else if ("dedicated".equals(activityThreads)) {
+      ELASTIC_ACTIVITY_THREADS = false;
+    } else {
+      throw new IllegalArgumentException("Unknown activity threads: " + activityThreads
+          + ". Supported are: dedicated, elastic");
+    }
+
+    TX_SPARSE_ARRAY_LENGTH = getInteger("som.txSparseArrayLength", 1024);
+
+    // arrays smaller than this are processed sequentially by the parallel primitives
+    PARALLEL_ARRAY_THRESHOLD = getInteger("som.parallelArrayThreshold", 1024);
+
     USE_TYPE_CHECKING = getBool("som.useTypeChecking", false);
     MUST_BE_FULLY_TYPED = getBool("som.ensureFullyTyped", false);
   }
@@ -33,6 +33,10 @@ public final class Classes {
   // dummy class for message deserialization
   public static final SClass messageClass;
 
+  // dummy classes for the storage of dictionaries and sets
+  public static final SClass hashMapClass;
+  public static final SClass hashSetClass;
+
   // These classes can be statically preinitialized.
   static {
     // Allocate the Metaclass classes
@@ -65,5 +69,8 @@ public final class Classes {
     blockClass = ObjectSystem.newEmptyClassWithItsClass("Block");
 
     messageClass = ObjectSystem.newEmptyClassWithItsClass("Message");
+
+    hashMapClass = ObjectSystem.newEmptyClassWithItsClass("HashMap");
+    hashSetClass = ObjectSystem.newEmptyClassWithItsClass("HashSet");
   }
 }
@@ -6,7 +6,9 @@ import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
 
 import som.vm.NotYetImplementedException;
+import som.vm.VmSettings;
 import som.vm.constants.Nil;
+import tools.snapshot.SnapshotRecord;
 
 
 /**
@@ -72,6 +74,11 @@ public abstract class SArray extends SAbstractObject {
     return (boolean[]) storage;
   }
 
+  public byte[] getByteStorage() {
+    assert isByteType();
+    return (byte[]) storage;
+  }
+
   public boolean isEmptyType() {
     return storage instanceof Integer;
   }
@@ -96,8 +103,69 @@ public abstract class SArray extends SAbstractObject {
     return storage.getClass() == boolean[].class;
   }
 
+  /**
+   * Byte storage holds integers in the range of a signed byte. It is not
+   * created by the generic array operations, but only used for buffers that
+   * are read from or written to files directly.
+   */
+  public boolean isByteType() {
+    return storage.getClass() == byte[].class;
+  }
+
+  public static boolean isByte(final long value) {
+    return Byte.MIN_VALUE <= value && value <= Byte.MAX_VALUE;
+  }
+
   public boolean isSomePrimitiveType() {
-    return isLongType() || isDoubleType() || isBooleanType();
+    return isLongType() || isDoubleType() || isBooleanType() || isByteType();
+  }
+
+  /**
+   * Generic, unoptimized access to the length, used for transactions.
+   */
+  public int txLength() {
+    CompilerAsserts.neverPartOfCompilation();
+    if (isEmptyType()) {
+      return (int) storage;
+    } else if (isPartiallyEmptyType()) {
+      return ((PartiallyEmptyArray) storage).getLength();
+    } else if (isBooleanType()) {
+      return ((boolean[]) storage).length;
+    } else if (isDoubleType()) {
+      return ((double[]) storage).length;
+    } else if (isLongType()) {
+      return ((long[]) storage).length;
+    } else if (isByteType()) {
+      return ((byte[]) storage).length;
+    } else {
+      assert isObjectType();
+      return ((Object[]) storage).length;
+    }
+  }
+
+  /**
+   * Generic, unoptimized read of an element, used for transactions.
+   *
+   * @param idx zero-based index
+   */
+  public Object txGetElement(final int idx) {
+    CompilerAsserts.neverPartOfCompilation();
+    if (isEmptyType()) {
+      return Nil.nilObject;
+    } else if (isPartiallyEmptyType()) {
+      return ((PartiallyEmptyArray) storage).get(idx);
+    } else if (isBooleanType()) {
+      return ((boolean[]) storage)[idx];
+    } else if (isDoubleType()) {
+      return ((double[]) storage)[idx];
+    } else if (isLongType()) {
+      return ((long[]) storage)[idx];
+    } else if (isByteType()) {
+      return (long) ((byte[]) storage)[idx];
+    } else {
+      assert isObjectType();
+      return ((Object[]) storage)[idx];
+    }
   }
 
   private static long[] createLong(final Object[] arr) {
@@ -193,6 +261,18 @@ public abstract class SArray extends SAbstractObject {
 
   public static class SMutableArray extends SArray {
 
+    /**
+     * For incremental snapshots, the record of the actor that serialized the
+     * array, or null, if the array was written since then.
+     */
+    private SnapshotRecord unmodifiedInSnapshot;
+
+    /**
+     * Whether the primitive storage is shared with a transferred copy of the
+     * array, and needs to be copied before writing to it.
+     */
+    private boolean sharedStorage;
+
     /**
      * Creates and empty array, using the EMPTY strategy.
      *
@@ -218,6 +298,8 @@ public abstract class SArray extends SAbstractObject {
         storageClone = ((double[]) storage).clone();
       } else if (isLongType()) {
         storageClone = ((long[]) storage).clone();
+      } else if (isByteType()) {
+        storageClone = ((byte[]) storage).clone();
       } else {
         assert isObjectType();
         storageClone = ((Object[]) storage).clone();
@@ -245,16 +327,109 @@ public abstract class SArray extends SAbstractObject {
         return Arrays.equals((double[]) storage, (double[]) a.storage);
       } else if (isLongType()) {
         return Arrays.equals((long[]) storage, (long[]) a.storage);
+      } else if (isByteType()) {
+        return Arrays.equals((byte[]) storage, (byte[]) a.storage);
       } else {
         assert isObjectType();
         return Arrays.equals((Object[]) storage, (Object[]) a.storage);
       }
     }
 
+    /**
+     * Write barrier for incremental snapshots, needs to be called on every
+     * write to the storage.
+     */
+    public final void markModified() {
+      if (VmSettings.SNAPSHOTS_INCREMENTAL) {
+        SnapshotRecord record = unmodifiedInSnapshot;
+        if (record != null) {
+          unmodifiedInSnapshot = null;
+          record.objectModified(this);
+        }
+      }
+    }
+
+    public final void markUnmodified(final SnapshotRecord record) {
+      unmodifiedInSnapshot = record;
+    }
+
+    /**
+     * Copy-on-write barrier for transferred arrays, needs to be called before
+     * writing directly into a primitive storage.
+     */
+    public final void ensureUnsharedStorage() {
+      if (sharedStorage) {
+        unshareStorage();
+      }
+    }
+
+    private void unshareStorage() {
+      if (isBooleanType()) {
+        storage = ((boolean[]) storage).clone();
+      } else if (isDoubleType()) {
+        storage = ((double[]) storage).clone();
+      } else if (isLongType()) {
+        storage = ((long[]) storage).clone();
+      } else if (isByteType()) {
+        storage = ((byte[]) storage).clone();
+      }
+      sharedStorage = false;
+    }
+
+    protected final void shareStorage() {
+      assert isSomePrimitiveType();
+      sharedStorage = true;
+    }
+
     public void txSet(final SMutableArray a) {
+      markModified();
       storage = a.storage;
     }
 
+    /**
+     * Generic, unoptimized write of an element, used for transactions.
+     * If the value does not fit the current storage strategy,
+     * the storage is generalized to an {@code Object[]}.
+     *
+     * @param idx zero-based index
+     */
+    public void txSetElement(final int idx, final Object value) {
+      CompilerAsserts.neverPartOfCompilation();
+      markModified();
+      ensureUnsharedStorage();
+      if (isLongType() && value instanceof Long) {
+        ((long[]) storage)[idx] = (long) value;
+      } else if (isDoubleType() && value instanceof Double) {
+        ((double[]) storage)[idx] = (double) value;
+      } else if (isBooleanType() && value instanceof Boolean) {
+        ((boolean[]) storage)[idx] = (boolean) value;
+      } else if (isByteType() && value instanceof Long && isByte((long) value)) {
+        ((byte[]) storage)[idx] = (byte) (long) value;
+      } else {
+        Object[] arr = txGeneralizeToObjectStorage();
+        arr[idx] = value;
+      }
+    }
+
+    private Object[] txGeneralizeToObjectStorage() {
+      if (isObjectType()) {
+        return (Object[]) storage;
+      }
+
+      Object[] arr;
+      if (isPartiallyEmptyType()) {
+        arr = ((PartiallyEmptyArray) storage).getStorage();
+      } else {
+        int length = txLength();
+        arr = new Object[length];
+        for (int i = 0; i < length; i++) {
+          arr[i] = txGetElement(i);
+        }
+      }
+      storage = arr;
+      return arr;
+    }
+
     /**
      * For internal use only, specifically, for SClass.
      * There we now, it is either empty, or of OBJECT type.
@@ -285,6 +460,7 @@ public abstract class SArray extends SAbstractObject {
         final long idx, final Object val) {
       assert type != PartiallyEmptyArray.Type.OBJECT;
       assert isEmptyType();
+      markModified();
       this.storage = new PartiallyEmptyArray(type, (int) storage, idx, val);
     }
 
@@ -307,15 +483,33 @@ public abstract class SArray extends SAbstractObject {
       fromEmptyToParticalWithType(PartiallyEmptyArray.Type.BOOLEAN, idx, val);
     }
 
+    /**
+     * Transition from byte storage to long storage, because a value outside
+     * of the byte range is stored.
+     */
+    public final long[] transitionFromByteToLong() {
+      byte[] bytes = getByteStorage();
+      long[] longs = new long[bytes.length];
+      for (int i = 0; i < bytes.length; i++) {
+        longs[i] = bytes[i];
+      }
+      markModified();
+      this.storage = longs;
+      return longs;
+    }
+
     public final void transitionToEmpty(final long length) {
+      markModified();
       this.storage = (int) length;
     }
 
     public final void transitionTo(final Object newStorage) {
+      markModified();
       this.storage = newStorage;
     }
 
     public final void transitionToObjectWithAll(final long length, final Object val) {
+      markModified();
       Object[] arr = new Object[(int) length];
       Arrays.fill(arr, val);
       final Object storage = arr;
@@ -323,6 +517,7 @@ public abstract class SArray extends SAbstractObject {
     }
 
     public final void transitionToLongWithAll(final long length, final long val) {
+      markModified();
       long[] arr = new long[(int) length];
       Arrays.fill(arr, val);
       final Object storage = arr;
@@ -330,6 +525,7 @@ public abstract class SArray extends SAbstractObject {
     }
 
     public final void transitionToDoubleWithAll(final long length, final double val) {
+      markModified();
       double[] arr = new double[(int) length];
       Arrays.fill(arr, val);
       final Object storage = arr;
@@ -337,6 +533,7 @@ public abstract class SArray extends SAbstractObject {
     }
 
     public final void transitionToBooleanWithAll(final long length, final boolean val) {
+      markModified();
       boolean[] arr = new boolean[(int) length];
       if (val) {
         Arrays.fill(arr, true);
@@ -404,6 +601,8 @@ public abstract class SArray extends SAbstractObject {
         return ((double[]) old.storage).clone();
       } else if (old.isLongType()) {
         return ((long[]) old.storage).clone();
+      } else if (old.isByteType()) {
+        return ((byte[]) old.storage).clone();
       } else if (old.isObjectType()) {
         return ((Object[]) old.storage).clone();
       } else if (old.isPartiallyEmptyType()) {
@@ -415,7 +614,17 @@ public abstract class SArray extends SAbstractObject {
       }
     }
 
+    /**
+     * Primitive storage is not copied, but shared copy-on-write between the
+     * array and its copy, see {@link #ensureUnsharedStorage()}.
+     */
     public STransferArray cloneBasics() {
+      if (isSomePrimitiveType()) {
+        STransferArray copy = new STransferArray(storage, clazz);
+        shareStorage();
+        copy.shareStorage();
+        return copy;
+      }
       return new STransferArray(this, clazz);
     }
   }
@@ -42,6 +42,7 @@ import som.compiler.MixinDefinition;
 import som.compiler.MixinDefinition.ClassSlotDefinition;
 import som.compiler.MixinDefinition.SlotDefinition;
 import som.interpreter.nodes.dispatch.Dispatchable;
+import som.interpreter.nodes.dispatch.MegamorphicCache;
 import som.interpreter.objectstorage.ClassFactory;
 import som.interpreter.objectstorage.ObjectLayout;
 import som.vm.VmSettings;
@@ -185,6 +186,8 @@ public final class SClass extends SObjectWithClass {
       final ClassFactory classFactory) {
     assert slots == null || slots.size() > 0;
 
+    boolean isRedefinition = this.dispatchables != null;
+
     this.mixinDef = mixinDef;
     this.slots = slots;
     this.dispatchables = dispatchables;
@@ -201,6 +204,13 @@ public final class SClass extends SObjectWithClass {
         SnapshotBackend.registerClass(classFactory.getClassName(), this);
       }
     }
+
+    if (isRedefinition) {
+      // cached lookups might be stale. The new structure needs to be
+      // published first, otherwise, a concurrent lookup could cache the old
+      // dispatchables under the new epoch.
+      MegamorphicCache.invalidate();
+    }
   }
 
   /**
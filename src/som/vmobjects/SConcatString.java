@@ -0,0 +1,95 @@
+package som.vmobjects;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import som.interpreter.Types;
+
+
+/**
+ * A string that is the result of concatenations. It is used instead of a
+ * {@link String} for results of {@code string:concat:} and {@code +} that are
+ * at least {@link #MIN_LENGTH} characters long, to avoid copying the string
+ * for each append in loops that build up a string.
+ *
+ * <p>
+ * The characters are kept in a {@link StringBuilder}, which is shared by
+ * all strings of an append chain. Each string knows its own length. The
+ * builder is only extended in place when appending to the longest string of
+ * the chain, otherwise, the characters are copied into a new builder. Since
+ * the characters before a string's length never change, all strings of the
+ * chain remain immutable values.
+ *
+ * <p>
+ * Primitives that need a {@link String} get the flattened string via the
+ * implicit cast in {@link Types}. The flattened string is cached.
+ */
+public final class SConcatString implements CharSequence {
+  /** Shorter results of concatenations remain plain strings. */
+  public static final int MIN_LENGTH = 64;
+
+  private final StringBuilder buffer;
+  private final int           length;
+
+  private String flattened;
+
+  private SConcatString(final StringBuilder buffer, final int length) {
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  /** @return the concatenation, a {@link String} if it is short */
+  @TruffleBoundary
+  public static Object concat(final String left, final String right) {
+    int resultLength = left.length() + right.length();
+    if (resultLength < MIN_LENGTH) {
+      return left.concat(right);
+    }
+
+    StringBuilder sb = new StringBuilder(resultLength * 2);
+    sb.append(left).append(right);
+    return new SConcatString(sb, resultLength);
+  }
+
+  @TruffleBoundary
+  public SConcatString append(final String str) {
+    synchronized (buffer) {
+      if (buffer.length() == length) {
+        buffer.append(str);
+        return new SConcatString(buffer, buffer.length());
+      }
+
+      // another string was already appended to this one, copy the characters
+      StringBuilder sb = new StringBuilder((length + str.length()) * 2);
+      sb.append(buffer, 0, length).append(str);
+      return new SConcatString(sb, sb.length());
+    }
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(final int index) {
+    return toString().charAt(index);
+  }
+
+  @Override
+  public CharSequence subSequence(final int start, final int end) {
+    return toString().subSequence(start, end);
+  }
+
+  @Override
+  @TruffleBoundary
+  public String toString() {
+    String result = flattened;
+    if (result == null) {
+      synchronized (buffer) {
+        result = buffer.substring(0, length);
+      }
+      flattened = result;
+    }
+    return result;
+  }
+}
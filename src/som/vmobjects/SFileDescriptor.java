@@ -4,6 +4,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
@@ -29,6 +34,17 @@ public class SFileDescriptor extends SObjectWithClass {
 
   public static final int BUFFER_SIZE = 32 * 1024;
 
+  /**
+   * Files in {@link AccessModes#mapped} mode are mapped in chunks of 1 GB,
+   * because a single mapping is limited to 2 GB. Each chunk overlaps the
+   * next one by {@link #CHUNK_OVERLAP} bytes, so that a long or double
+   * never straddles two chunks.
+   */
+  private static final int  CHUNK_BITS    = 30;
+  private static final long CHUNK_SIZE    = 1L << CHUNK_BITS;
+  private static final long CHUNK_MASK    = CHUNK_SIZE - 1;
+  private static final int  CHUNK_OVERLAP = Long.BYTES - 1;
+
   private SArray      buffer;
   private int         bufferSize = BUFFER_SIZE;
   private AccessModes accessMode;
@@ -36,6 +52,10 @@ public class SFileDescriptor extends SObjectWithClass {
   private RandomAccessFile raf;
   private final File       f;
 
+  /** The mapped chunks of the file, only set in {@link AccessModes#mapped} mode. */
+  private MappedByteBuffer[] chunks;
+  private long               mappedSize;
+
   public static void setSOMClass(final SClass cls) {
     fileDescriptorClass = cls;
   }
@@ -47,7 +67,7 @@ public class SFileDescriptor extends SObjectWithClass {
   }
 
   public Object openFile(final SBlock fail, final BlockDispatchNode dispatchHandler) {
-    long[] storage = new long[bufferSize];
+    byte[] storage = new byte[bufferSize];
     buffer = new SMutableArray(storage, Classes.arrayClass);
 
     try {
@@ -56,9 +76,35 @@ public class SFileDescriptor extends SObjectWithClass {
       return dispatchHandler.executeDispatch(new Object[] {fail, FILE_NOT_FOUND});
     }
 
+    if (accessMode == AccessModes.mapped) {
+      try {
+        map();
+      } catch (IOException e) {
+        closeQuietly();
+        return dispatchHandler.executeDispatch(new Object[] {fail, toString(e)});
+      }
+    }
+
     return this;
   }
 
+  @TruffleBoundary
+  private void map() throws IOException {
+    FileChannel channel = raf.getChannel();
+    long size = channel.size();
+    int numChunks = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+
+    MappedByteBuffer[] mapped = new MappedByteBuffer[numChunks];
+    for (int i = 0; i < numChunks; i++) {
+      long start = ((long) i) << CHUNK_BITS;
+      long length = Math.min(CHUNK_SIZE + CHUNK_OVERLAP, size - start);
+      mapped[i] = channel.map(MapMode.READ_ONLY, start, length);
+    }
+
+    chunks = mapped;
+    mappedSize = size;
+  }
+
   @TruffleBoundary
   private RandomAccessFile open() throws FileNotFoundException {
     return new RandomAccessFile(f, accessMode.mode);
@@ -76,8 +122,22 @@ public class SFileDescriptor extends SObjectWithClass {
     }
   }
 
+  @TruffleBoundary
+  private void closeQuietly() {
+    try {
+      closeFile();
+    } catch (IOException e) {
+      // the file was not usable in the first place
+    }
+  }
+
   @TruffleBoundary
   private void closeFile() throws IOException {
+    // the mappings stay valid until they are garbage collected,
+    // but we make sure they are not accessed anymore
+    chunks = null;
+    mappedSize = 0;
+
     raf.close();
     raf = null;
   }
@@ -96,36 +156,112 @@ public class SFileDescriptor extends SObjectWithClass {
       return 0;
     }
 
-    long[] storage = buffer.getLongStorage();
-    byte[] buff = new byte[bufferSize];
+    // read directly into the buffer's storage, which we reset to bytes,
+    // in case values outside of the byte range were stored in the buffer
+    byte[] storage;
+    if (buffer.isByteType()) {
+      ((SMutableArray) buffer).ensureUnsharedStorage();
+      storage = buffer.getByteStorage();
+      ((SMutableArray) buffer).markModified();
+    } else {
+      errorCases.enter();
+      storage = new byte[bufferSize];
+      ((SMutableArray) buffer).transitionTo(storage);
+    }
+
     int bytes = 0;
 
     try {
       assert raf != null;
 
       // set position in file
-      bytes = read(position, buff);
+      if (chunks != null) {
+        bytes = readMapped(position, storage);
+      } else {
+        bytes = read(position, storage);
+      }
     } catch (IOException e) {
       errorCases.enter();
       dispatchHandler.executeDispatch(new Object[] {fail, toString(e)});
     }
 
-    // move read data to the storage
-    for (int i = 0; i < bufferSize; i++) {
-      storage[i] = buff[i];
-    }
-
     return bytes;
   }
 
   @TruffleBoundary
   private int read(final long position, final byte[] buff) throws IOException {
-    int bytes;
     raf.seek(position);
-    bytes = raf.read(buff);
+    int bytes = raf.read(buff);
+
+    // the part of the buffer that was not read is cleared
+    Arrays.fill(buff, Math.max(bytes, 0), buff.length, (byte) 0);
     return bytes;
   }
 
+  @TruffleBoundary
+  private int readMapped(final long position, final byte[] buff) throws IOException {
+    if (position < 0) {
+      throw new IOException("Negative seek offset");
+    }
+
+    int bytes = (int) Math.min(buff.length, Math.max(0, mappedSize - position));
+    int copied = 0;
+    while (copied < bytes) {
+      long pos = position + copied;
+      int offset = (int) (pos & CHUNK_MASK);
+      int length = (int) Math.min(bytes - copied, CHUNK_SIZE - offset);
+
+      MappedByteBuffer chunk = chunks[(int) (pos >>> CHUNK_BITS)];
+      // use a duplicate to not disturb the position of concurrent readers
+      ByteBuffer view = chunk.duplicate();
+      view.position(offset);
+      view.get(buff, copied, length);
+      copied += length;
+    }
+
+    Arrays.fill(buff, bytes, buff.length, (byte) 0);
+    return bytes;
+  }
+
+  /** @return true, if the file is open in {@link AccessModes#mapped} mode */
+  public boolean isMapped() {
+    return chunks != null;
+  }
+
+  /**
+   * @return true, if {@code size} bytes starting at {@code position} are
+   *         within the mapped file
+   */
+  public boolean isInMappedRange(final long position, final int size) {
+    return position >= 0 && position <= mappedSize - size;
+  }
+
+  private MappedByteBuffer chunkAt(final long position) {
+    return chunks[(int) (position >>> CHUNK_BITS)];
+  }
+
+  private static int offsetIn(final long position) {
+    return (int) (position & CHUNK_MASK);
+  }
+
+  /**
+   * Read the byte at the given position of a mapped file. The caller has to
+   * check the position with {@link #isInMappedRange(long, int)}.
+   */
+  public byte getMappedByte(final long position) {
+    return chunkAt(position).get(offsetIn(position));
+  }
+
+  /** Read the big-endian long starting at the given position of a mapped file. */
+  public long getMappedLong(final long position) {
+    return chunkAt(position).getLong(offsetIn(position));
+  }
+
+  /** Read the big-endian double starting at the given position of a mapped file. */
+  public double getMappedDouble(final long position) {
+    return chunkAt(position).getDouble(offsetIn(position));
+  }
+
   @TruffleBoundary
   private String toString(final IOException e) {
     return e.toString();
@@ -140,22 +276,21 @@ public class SFileDescriptor extends SObjectWithClass {
       return;
     }
 
-    if (accessMode == AccessModes.read) {
+    if (accessMode == AccessModes.read || accessMode == AccessModes.mapped) {
       errorCases.enter();
       fail.getMethod().invoke(new Object[] {fail, READ_ONLY_MODE});
       return;
     }
 
-    long[] storage = buffer.getLongStorage();
-    byte[] buff = new byte[bufferSize];
-
-    for (int i = 0; i < bufferSize; i++) {
-      long val = storage[i];
-      if (val <= Byte.MIN_VALUE && Byte.MAX_VALUE <= val) {
-        errorCases.enter();
-        ioException.signal(errorMsg(val));
+    byte[] buff;
+    if (buffer.isByteType()) {
+      buff = buffer.getByteStorage();
+    } else {
+      errorCases.enter();
+      buff = toBytes(ioException);
+      if (buff == null) {
+        return;
       }
-      buff[i] = (byte) val;
     }
 
     try {
@@ -166,8 +301,27 @@ public class SFileDescriptor extends SObjectWithClass {
     }
   }
 
+  /**
+   * Convert the buffer, which does not use byte storage anymore, because
+   * other values than bytes have been stored into it. As before, integers
+   * are truncated to bytes.
+   */
+  @TruffleBoundary
+  private byte[] toBytes(final ExceptionSignalingNode ioException) {
+    byte[] buff = new byte[bufferSize];
+    for (int i = 0; i < bufferSize; i++) {
+      Object val = buffer.txGetElement(i);
+      if (!(val instanceof Long)) {
+        ioException.signal(errorMsg(val));
+        return null;
+      }
+      buff[i] = (byte) (long) val;
+    }
+    return buff;
+  }
+
   @TruffleBoundary
-  private static String errorMsg(final long val) {
+  private static String errorMsg(final Object val) {
     return "Buffer only supports values in the range -128 to 127 (" + val + ")";
   }
 
@@ -229,7 +383,10 @@ public class SFileDescriptor extends SObjectWithClass {
   }
 
   private enum AccessModes {
-    read("r"), write("rw"), readWrite("rw");
+    read("r"), write("rw"), readWrite("rw"),
+
+    /** Read-only access through a memory mapping of the whole file. */
+    mapped("r");
 
     final String mode;
 
@@ -0,0 +1,522 @@
+package som.vmobjects;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.nodes.IndirectCallNode;
+
+import som.compiler.AccessModifier;
+import som.interpreter.Types;
+import som.interpreter.nodes.dispatch.Dispatchable;
+import som.vm.Symbols;
+import som.vm.VmSettings;
+import som.vm.constants.Classes;
+import som.vm.constants.Nil;
+import tools.snapshot.SnapshotRecord;
+
+
+/**
+ * A hash map implemented in the VM. It is the storage of the dictionaries
+ * in Collections.ns, and is only referenced from their slots.
+ *
+ * <p>
+ * The entries are kept in insertion order in dense arrays. An open
+ * addressing index with linear probing maps hashes to the entries. Removed
+ * entries are only dropped when the arrays are rehashed. The keys are stored
+ * in a long[] or double[] as long as all keys are integers or doubles,
+ * otherwise in an Object[].
+ *
+ * <p>
+ * Integers, doubles, strings, symbols, booleans, and nil are hashed and
+ * compared directly. Other objects are hashed and compared by identity,
+ * unless their class overrides {@code #hashcode} or {@code #=}, in which case
+ * the map sends these messages, as the Grace implementation did. The identity
+ * variant never sends messages, and compares objects with {@code ==}
+ * semantics.
+ *
+ * <p>
+ * Since hashes can depend on object identity, a map restored from a
+ * snapshot rehashes its keys on the first access, see {@link #restoreEntry}.
+ */
+public class SHashMap extends SAbstractObject {
+  private static final int MIN_CAPACITY = 8;
+
+  private static final int FREE    = -1;
+  private static final int REMOVED = -2;
+
+  private static final SSymbol HASHCODE = Symbols.symbolFor("hashcode");
+  private static final SSymbol EQUALS   = Symbols.symbolFor("=");
+
+  /** The default implementations, looked up lazily once the kernel is loaded. */
+  private static Dispatchable defaultHashcode;
+  private static Dispatchable objectEquals;
+  private static Dispatchable valueEquals;
+
+  protected final boolean identity;
+
+  /** Positions of the entries, or {@link #FREE} or {@link #REMOVED}. */
+  private int[] index;
+
+  private int[]     hashes;
+  private Object    keys;
+  private Object[]  values;
+  private boolean[] removed;
+
+  /** Number of used entries, including removed ones. */
+  private int numEntries;
+  private int size;
+
+  /** Whether the entries were restored, and the hashes and index are not valid. */
+  private boolean needsRehash;
+
+  /**
+   * For incremental snapshots, the record of the actor that serialized the
+   * map, or null, if the map was changed since then.
+   */
+  private SnapshotRecord unmodifiedInSnapshot;
+
+  public SHashMap(final long capacity, final boolean identity) {
+    this(capacity, identity, true);
+  }
+
+  protected SHashMap(final long capacity, final boolean identity, final boolean withValues) {
+    this.identity = identity;
+    allocate(entriesCapacity(capacity), withValues);
+  }
+
+  private static int entriesCapacity(final long capacity) {
+    int c = MIN_CAPACITY;
+    while (c < capacity && c < (1 << 29)) {
+      c <<= 1;
+    }
+    return c;
+  }
+
+  private void allocate(final int capacity, final boolean withValues) {
+    index = new int[capacity * 2];
+    Arrays.fill(index, FREE);
+    hashes = new int[capacity];
+    keys = null;
+    values = withValues ? new Object[capacity] : null;
+    removed = null;
+    numEntries = 0;
+    size = 0;
+    needsRehash = false;
+  }
+
+  @Override
+  public SClass getSOMClass() {
+    return Classes.hashMapClass;
+  }
+
+  @Override
+  public boolean isValue() {
+    return false;
+  }
+
+  public final int size() {
+    return size;
+  }
+
+  public final boolean isIdentity() {
+    return identity;
+  }
+
+  /** @return the value, or null, if the map does not contain the key */
+  @TruffleBoundary
+  public final Object get(final Object k, final IndirectCallNode call) {
+    rehashIfRestored(call);
+    Object key = flatten(k);
+    int slot = findSlot(key, hash(key, call), call);
+    if (slot < 0) {
+      return null;
+    }
+    int pos = index[slot];
+    return values == null ? getKey(pos) : values[pos];
+  }
+
+  @TruffleBoundary
+  public final boolean containsKey(final Object k, final IndirectCallNode call) {
+    rehashIfRestored(call);
+    Object key = flatten(k);
+    return findSlot(key, hash(key, call), call) >= 0;
+  }
+
+  @TruffleBoundary
+  public final void put(final Object k, final Object value, final IndirectCallNode call) {
+    rehashIfRestored(call);
+    markModified();
+    Object key = flatten(k);
+    int hash = hash(key, call);
+    int slot = findSlot(key, hash, call);
+    if (slot >= 0) {
+      if (values != null) {
+        values[index[slot]] = value;
+      }
+      return;
+    }
+
+    if (numEntries == hashes.length) {
+      // drop the removed entries, and only grow if they don't make enough room
+      rehash(size * 2 > hashes.length ? hashes.length * 2 : hashes.length);
+    }
+
+    int pos = numEntries;
+    numEntries += 1;
+    size += 1;
+
+    hashes[pos] = hash;
+    setKey(pos, key);
+    if (values != null) {
+      values[pos] = value;
+    }
+    insertIntoIndex(pos, hash);
+  }
+
+  /** @return the removed value, or null, if the map does not contain the key */
+  @TruffleBoundary
+  public final Object remove(final Object k, final IndirectCallNode call) {
+    rehashIfRestored(call);
+    markModified();
+    Object key = flatten(k);
+    int slot = findSlot(key, hash(key, call), call);
+    if (slot < 0) {
+      return null;
+    }
+
+    int pos = index[slot];
+    Object result = values == null ? getKey(pos) : values[pos];
+
+    index[slot] = REMOVED;
+    if (removed == null) {
+      removed = new boolean[hashes.length];
+    }
+    removed[pos] = true;
+    if (keys instanceof Object[]) {
+      ((Object[]) keys)[pos] = null;
+    }
+    if (values != null) {
+      values[pos] = null;
+    }
+    size -= 1;
+    return result;
+  }
+
+  /** Remove all entries, but keep the capacity. */
+  @TruffleBoundary
+  public final void removeAll() {
+    markModified();
+    allocate(hashes.length, values != null);
+  }
+
+  /**
+   * Add an entry of a map that is deserialized from a snapshot. The key and
+   * value can be null, and set later with {@link #restoreKey} and
+   * {@link #restoreValue}, when they are still being deserialized. The keys
+   * are only hashed on the first access to the map, when they are complete.
+   *
+   * @return the position of the entry
+   */
+  public final int restoreEntry(final Object key, final Object value) {
+    assert numEntries < hashes.length && removed == null;
+    if (keys == null) {
+      // restored keys can be incomplete objects, so use the generic storage
+      keys = new Object[hashes.length];
+    }
+
+    int pos = numEntries;
+    numEntries += 1;
+    size += 1;
+    ((Object[]) keys)[pos] = key;
+    if (values != null) {
+      values[pos] = value;
+    }
+    needsRehash = true;
+    return pos;
+  }
+
+  public final void restoreKey(final int pos, final Object key) {
+    ((Object[]) keys)[pos] = key;
+  }
+
+  public final void restoreValue(final int pos, final Object value) {
+    values[pos] = value;
+  }
+
+  private void rehashIfRestored(final IndirectCallNode call) {
+    if (needsRehash) {
+      needsRehash = false;
+      Arrays.fill(index, FREE);
+      for (int pos = 0; pos < numEntries; pos++) {
+        hashes[pos] = hash(getKey(pos), call);
+        insertIntoIndex(pos, hashes[pos]);
+      }
+    }
+  }
+
+  /** Write barrier for incremental snapshots. */
+  private void markModified() {
+    if (VmSettings.SNAPSHOTS_INCREMENTAL) {
+      SnapshotRecord record = unmodifiedInSnapshot;
+      if (record != null) {
+        unmodifiedInSnapshot = null;
+        record.objectModified(this);
+      }
+    }
+  }
+
+  public final void markUnmodified(final SnapshotRecord record) {
+    unmodifiedInSnapshot = record;
+  }
+
+  /** @return the keys in insertion order, a copy to allow changes while iterating */
+  @TruffleBoundary
+  public final Object[] getKeys() {
+    Object[] result = new Object[size];
+    int i = 0;
+    for (int pos = 0; pos < numEntries; pos++) {
+      if (removed == null || !removed[pos]) {
+        result[i] = getKey(pos);
+        i += 1;
+      }
+    }
+    return result;
+  }
+
+  /** @return the values in insertion order, a copy to allow changes while iterating */
+  @TruffleBoundary
+  public final Object[] getValues() {
+    if (values == null) {
+      return getKeys();
+    }
+
+    Object[] result = new Object[size];
+    int i = 0;
+    for (int pos = 0; pos < numEntries; pos++) {
+      if (removed == null || !removed[pos]) {
+        result[i] = values[pos];
+        i += 1;
+      }
+    }
+    return result;
+  }
+
+  /** Concatenation results are stored and compared as plain strings. */
+  private static Object flatten(final Object key) {
+    if (key instanceof SConcatString) {
+      return key.toString();
+    }
+    return key;
+  }
+
+  private Object getKey(final int pos) {
+    if (keys instanceof long[]) {
+      return ((long[]) keys)[pos];
+    } else if (keys instanceof double[]) {
+      return ((double[]) keys)[pos];
+    } else {
+      return ((Object[]) keys)[pos];
+    }
+  }
+
+  private void setKey(final int pos, final Object key) {
+    if (keys == null) {
+      if (key instanceof Long) {
+        keys = new long[hashes.length];
+      } else if (key instanceof Double) {
+        keys = new double[hashes.length];
+      } else {
+        keys = new Object[hashes.length];
+      }
+    }
+
+    if (keys instanceof long[]) {
+      if (key instanceof Long) {
+        ((long[]) keys)[pos] = (long) key;
+        return;
+      }
+      generalizeKeys();
+    } else if (keys instanceof double[]) {
+      if (key instanceof Double) {
+        ((double[]) keys)[pos] = (double) key;
+        return;
+      }
+      generalizeKeys();
+    }
+    ((Object[]) keys)[pos] = key;
+  }
+
+  private void generalizeKeys() {
+    Object[] newKeys = new Object[hashes.length];
+    for (int pos = 0; pos < numEntries; pos++) {
+      if (removed == null || !removed[pos]) {
+        newKeys[pos] = getKey(pos);
+      }
+    }
+    keys = newKeys;
+  }
+
+  private void insertIntoIndex(final int pos, final int hash) {
+    int mask = index.length - 1;
+    int slot = hash & mask;
+    while (index[slot] >= 0) {
+      slot = (slot + 1) & mask;
+    }
+    index[slot] = pos;
+  }
+
+  private void rehash(final int capacity) {
+    int[] oldHashes = hashes;
+    Object oldKeys = keys;
+    Object[] oldValues = values;
+    boolean[] oldRemoved = removed;
+    int oldNumEntries = numEntries;
+
+    index = new int[capacity * 2];
+    Arrays.fill(index, FREE);
+    hashes = new int[capacity];
+    values = oldValues == null ? null : new Object[capacity];
+    removed = null;
+
+    if (oldKeys instanceof long[]) {
+      keys = new long[capacity];
+    } else if (oldKeys instanceof double[]) {
+      keys = new double[capacity];
+    } else {
+      keys = new Object[capacity];
+    }
+
+    int pos = 0;
+    for (int old = 0; old < oldNumEntries; old++) {
+      if (oldRemoved != null && oldRemoved[old]) {
+        continue;
+      }
+      hashes[pos] = oldHashes[old];
+      System.arraycopy(oldKeys, old, keys, pos, 1);
+      if (values != null) {
+        values[pos] = oldValues[old];
+      }
+      insertIntoIndex(pos, hashes[pos]);
+      pos += 1;
+    }
+    numEntries = pos;
+  }
+
+  /** @return the slot in the index, or -1, if the map does not contain the key */
+  private int findSlot(final Object key, final int hash, final IndirectCallNode call) {
+    if (size == 0) {
+      return -1;
+    }
+
+    int mask = index.length - 1;
+    for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+      int pos = index[slot];
+      if (pos == FREE) {
+        return -1;
+      }
+      if (pos != REMOVED && hashes[pos] == hash && keyEquals(pos, key, call)) {
+        return slot;
+      }
+    }
+  }
+
+  private boolean keyEquals(final int pos, final Object key, final IndirectCallNode call) {
+    if (keys instanceof long[]) {
+      long stored = ((long[]) keys)[pos];
+      if (key instanceof Long) {
+        return stored == (long) key;
+      }
+      return key instanceof Double && stored == (double) key;
+    } else if (keys instanceof double[]) {
+      double stored = ((double[]) keys)[pos];
+      if (key instanceof Double) {
+        return stored == (double) key;
+      }
+      return key instanceof Long && stored == (long) key;
+    }
+    return sameKey(((Object[]) keys)[pos], key, call);
+  }
+
+  /** Equality as for {@code stored = key}, or {@code stored == key} for identity maps. */
+  private boolean sameKey(final Object stored, final Object key, final IndirectCallNode call) {
+    if (stored == key) {
+      return true;
+    }
+
+    if (stored instanceof Long) {
+      if (key instanceof Long) {
+        return (long) stored == (long) key;
+      }
+      return key instanceof Double && (long) stored == (double) key;
+    } else if (stored instanceof Double) {
+      if (key instanceof Double) {
+        return (double) stored == (double) key;
+      }
+      return key instanceof Long && (double) stored == (long) key;
+    } else if (stored instanceof String || stored instanceof Boolean
+        || stored instanceof BigInteger) {
+      return stored.equals(key);
+    } else if (identity || stored instanceof SSymbol || stored == Nil.nilObject) {
+      return false;
+    }
+
+    Dispatchable equals = Types.getClassOf(stored).lookupMessage(EQUALS, AccessModifier.PUBLIC);
+    initializeDefaults();
+    if (equals == objectEquals || equals == valueEquals) {
+      return false;
+    }
+    return equals.invoke(call, new Object[] {stored, key}) == Boolean.TRUE;
+  }
+
+  private int hash(final Object key, final IndirectCallNode call) {
+    if (key instanceof Long) {
+      return spread((long) key);
+    } else if (key instanceof Double) {
+      return hash((double) key);
+    } else if (key instanceof SSymbol) {
+      return spread(((SSymbol) key).getString().hashCode());
+    } else if (key instanceof String || key instanceof Boolean
+        || key instanceof BigInteger || identity || key == Nil.nilObject) {
+      return spread(key.hashCode());
+    }
+
+    Dispatchable hashcode =
+        Types.getClassOf(key).lookupMessage(HASHCODE, AccessModifier.PUBLIC);
+    initializeDefaults();
+    if (hashcode == defaultHashcode) {
+      return spread(key.hashCode());
+    }
+
+    Object result = hashcode.invoke(call, new Object[] {key});
+    if (result instanceof Long) {
+      return spread((long) result);
+    } else if (result instanceof Double) {
+      return hash((double) result);
+    }
+    return spread(result.hashCode());
+  }
+
+  /** Doubles that are equal to an integer get the integer's hash. */
+  private static int hash(final double d) {
+    long l = (long) d;
+    if (l == d) {
+      return spread(l);
+    }
+    return spread(Double.hashCode(d));
+  }
+
+  private static int spread(final long value) {
+    int h = (int) (value ^ (value >>> 32));
+    return h ^ (h >>> 16);
+  }
+
+  private static void initializeDefaults() {
+    // racy, but initializing more than once is harmless
+    if (objectEquals == null || valueEquals == null || defaultHashcode == null) {
+      objectEquals = Classes.objectClass.lookupMessage(EQUALS, AccessModifier.PUBLIC);
+      valueEquals = Classes.valueClass.lookupMessage(EQUALS, AccessModifier.PUBLIC);
+      defaultHashcode = Classes.objectClass.lookupMessage(HASHCODE, AccessModifier.PUBLIC);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package som.vmobjects;
+
+import som.vm.constants.Classes;
+
+
+/**
+ * A hash set implemented in the VM, the storage of the sets in
+ * Collections.ns. It is a {@link SHashMap} without values.
+ */
+public final class SHashSet extends SHashMap {
+
+  public SHashSet(final long capacity, final boolean identity) {
+    super(capacity, identity, false);
+  }
+
+  @Override
+  public SClass getSOMClass() {
+    return Classes.hashSetClass;
+  }
+}
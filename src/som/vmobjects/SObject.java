@@ -42,7 +42,9 @@ import som.interpreter.objectstorage.StorageLocation.DoubleStorageLocation;
 import som.interpreter.objectstorage.StorageLocation.LongStorageLocation;
 import som.interpreter.objectstorage.StorageLocation.ObjectStorageLocation;
 import som.interpreter.objectstorage.StorageLocation.UnwrittenStorageLocation;
+import som.vm.VmSettings;
 import som.vm.constants.Nil;
+import tools.snapshot.SnapshotRecord;
 
 
 public abstract class SObject extends SObjectWithClass {
@@ -95,6 +97,9 @@ public abstract class SObject extends SObjectWithClass {
 
     @CompilationFinal protected boolean isValue;
 
+    // keeps the layout in sync with SMutableObject.unmodifiedInSnapshot
+    @SuppressWarnings("unused") private SnapshotRecord unmodifiedInSnapshotSync;
+
     @Override
     protected void resetFields() {
       field1 = field2 = field3 = field4 = field5 = null;
@@ -131,6 +136,12 @@ public abstract class SObject extends SObjectWithClass {
     // SMutableObject and SImmuableObject
     @SuppressWarnings("unused") private boolean isValueOfSImmutableObjectSync;
 
+    /**
+     * For incremental snapshots, the record of the actor that serialized the
+     * object, or null, if the object was written since then.
+     */
+    private SnapshotRecord unmodifiedInSnapshot;
+
     public SMutableObject(final SClass instanceClass, final ClassFactory factory,
         final ObjectLayout layout) {
       super(instanceClass, factory, layout);
@@ -166,6 +177,24 @@ public abstract class SObject extends SObjectWithClass {
       return new SMutableObject(this);
     }
 
+    /**
+     * Write barrier for incremental snapshots, needs to be called on every
+     * write to a slot.
+     */
+    public void markModified() {
+      if (VmSettings.SNAPSHOTS_INCREMENTAL) {
+        SnapshotRecord record = unmodifiedInSnapshot;
+        if (record != null) {
+          unmodifiedInSnapshot = null;
+          record.objectModified(this);
+        }
+      }
+    }
+
+    public void markUnmodified(final SnapshotRecord record) {
+      unmodifiedInSnapshot = record;
+    }
+
     public SMutableObject shallowCopy() {
       SMutableObject copy = new SMutableObject(true);
       copy.primField1 = primField1;
@@ -506,13 +535,21 @@ public abstract class SObject extends SObjectWithClass {
 
   public final void writeSlot(final SlotDefinition slot, final Object value) {
     CompilerAsserts.neverPartOfCompilation("setField");
+    markModifiedForSnapshot();
     StorageLocation location = getLocation(slot);
     location.write(this, value);
   }
 
+  private void markModifiedForSnapshot() {
+    if (VmSettings.SNAPSHOTS_INCREMENTAL && this instanceof SMutableObject) {
+      ((SMutableObject) this).markModified();
+    }
+  }
+
   private void setFieldAfterLayoutChange(final SlotDefinition slot,
       final Object value) {
     CompilerAsserts.neverPartOfCompilation("SObject.setFieldAfterLayoutChange(..)");
+    markModifiedForSnapshot();
 
     StorageLocation location = getLocation(slot);
     location.write(this, value);
@@ -0,0 +1,344 @@
+package tools.concurrency;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * A file consisting of individually deflate-compressed blocks, used to store
+ * traces and their external data.
+ *
+ * <p>
+ * The layout of the file is as follows, with all numbers in little endian,
+ * the same byte order as the trace itself:
+ *
+ * <pre>
+ * header: MAGIC, VERSION                                     (int, int)
+ * blocks: uncompressed length, compressed length, bytes      (int, int, byte[])
+ * index:  for each block, its file offset and
+ *         uncompressed length                                (long, int)
+ * footer: file offset of the index, number of blocks, MAGIC  (long, int, int)
+ * </pre>
+ *
+ * <p>
+ * With the index, a reader can access any block directly, and only needs to
+ * decompress the blocks it is actually interested in. If the index is
+ * missing, because the VM was not shut down properly, the reader recovers
+ * it by scanning the block headers.
+ */
+public final class BlockCompressedFile {
+  private static final int MAGIC   = 0x54534F53; // "SOST" in little endian
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE       = 2 * Integer.BYTES;
+  private static final int BLOCK_HEADER_SIZE = 2 * Integer.BYTES;
+  private static final int INDEX_ENTRY_SIZE  = Long.BYTES + Integer.BYTES;
+  private static final int FOOTER_SIZE       = Long.BYTES + 2 * Integer.BYTES;
+
+  private BlockCompressedFile() {}
+
+  private static ByteBuffer allocate(final int size) {
+    ByteBuffer bb = ByteBuffer.allocate(size);
+    bb.order(ByteOrder.LITTLE_ENDIAN);
+    return bb;
+  }
+
+  /**
+   * Writes blocks to a file. A writer is not thread-safe, and meant to be
+   * used by a single trace worker thread.
+   */
+  public static final class Writer implements AutoCloseable {
+    private final RandomAccessFile file;
+    private final FileChannel      channel;
+    private final Deflater         deflater;
+    private final ByteBuffer       blockHeader;
+
+    private byte[] compressed;
+
+    private long[] blockOffsets;
+    private int[]  blockLengths;
+    private int    numBlocks;
+
+    public Writer(final File f) throws IOException {
+      file = new RandomAccessFile(f, "rw");
+      file.setLength(0);
+      channel = file.getChannel();
+      deflater = new Deflater(Deflater.BEST_SPEED);
+      blockHeader = allocate(BLOCK_HEADER_SIZE);
+      compressed = new byte[64 * 1024];
+      blockOffsets = new long[64];
+      blockLengths = new int[64];
+
+      ByteBuffer header = allocate(HEADER_SIZE);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.flip();
+      writeFully(header);
+    }
+
+    public void writeBlock(final byte[] data, final int offset, final int length)
+        throws IOException {
+      if (length == 0) {
+        return;
+      }
+
+      int compressedLength = compress(data, offset, length);
+
+      if (numBlocks == blockOffsets.length) {
+        blockOffsets = Arrays.copyOf(blockOffsets, numBlocks * 2);
+        blockLengths = Arrays.copyOf(blockLengths, numBlocks * 2);
+      }
+      blockOffsets[numBlocks] = channel.position();
+      blockLengths[numBlocks] = length;
+      numBlocks += 1;
+
+      blockHeader.clear();
+      blockHeader.putInt(length);
+      blockHeader.putInt(compressedLength);
+      blockHeader.flip();
+      writeFully(blockHeader);
+      writeFully(ByteBuffer.wrap(compressed, 0, compressedLength));
+    }
+
+    private int compress(final byte[] data, final int offset, final int length) {
+      deflater.reset();
+      deflater.setInput(data, offset, length);
+      deflater.finish();
+
+      int compressedLength = 0;
+      while (!deflater.finished()) {
+        if (compressedLength == compressed.length) {
+          compressed = Arrays.copyOf(compressed, compressed.length * 2);
+        }
+        compressedLength += deflater.deflate(
+            compressed, compressedLength, compressed.length - compressedLength);
+      }
+      return compressedLength;
+    }
+
+    private void writeFully(final ByteBuffer bb) throws IOException {
+      while (bb.hasRemaining()) {
+        channel.write(bb);
+      }
+    }
+
+    /** Write the index and close the file. */
+    @Override
+    public void close() throws IOException {
+      try {
+        long indexOffset = channel.position();
+        ByteBuffer index = allocate(numBlocks * INDEX_ENTRY_SIZE + FOOTER_SIZE);
+        for (int i = 0; i < numBlocks; i++) {
+          index.putLong(blockOffsets[i]);
+          index.putInt(blockLengths[i]);
+        }
+        index.putLong(indexOffset);
+        index.putInt(numBlocks);
+        index.putInt(MAGIC);
+        index.flip();
+        writeFully(index);
+      } finally {
+        deflater.end();
+        file.close();
+      }
+    }
+  }
+
+  /**
+   * Reads blocks from a file, either directly by their index, or
+   * sequentially as a stream of bytes. Only the block currently read is
+   * kept in memory.
+   *
+   * <p>
+   * {@link #readBlock(int)} may be used by multiple threads concurrently to
+   * decompress different blocks in parallel. The sequential reading is not
+   * thread-safe.
+   */
+  public static final class Reader implements AutoCloseable {
+    private final RandomAccessFile file;
+    private final FileChannel      channel;
+
+    private final long[] blockOffsets;
+    private final int[]  blockLengths;
+
+    /** State for reading the blocks sequentially. */
+    private ByteBuffer current;
+    private int        nextBlock;
+
+    public Reader(final File f) throws IOException {
+      file = new RandomAccessFile(f, "r");
+      channel = file.getChannel();
+
+      ByteBuffer header = readAt(0, HEADER_SIZE);
+      if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+        file.close();
+        throw new IOException("Not a compressed trace file: " + f);
+      }
+
+      long[][] offsets = new long[1][];
+      int[][] lengths = new int[1][];
+      if (!readIndex(offsets, lengths)) {
+        scanBlocks(offsets, lengths);
+      }
+      blockOffsets = offsets[0];
+      blockLengths = lengths[0];
+    }
+
+    private ByteBuffer readAt(final long position, final int size) throws IOException {
+      ByteBuffer bb = allocate(size);
+      while (bb.hasRemaining()) {
+        if (channel.read(bb, position + bb.position()) < 0) {
+          throw new IOException("Unexpected end of file");
+        }
+      }
+      bb.flip();
+      return bb;
+    }
+
+    private boolean readIndex(final long[][] offsets, final int[][] lengths)
+        throws IOException {
+      long size = channel.size();
+      if (size < HEADER_SIZE + FOOTER_SIZE) {
+        return false;
+      }
+
+      ByteBuffer footer = readAt(size - FOOTER_SIZE, FOOTER_SIZE);
+      long indexOffset = footer.getLong();
+      int numBlocks = footer.getInt();
+      if (footer.getInt() != MAGIC || numBlocks < 0
+          || indexOffset + (long) numBlocks * INDEX_ENTRY_SIZE + FOOTER_SIZE != size) {
+        return false;
+      }
+
+      ByteBuffer index = readAt(indexOffset, numBlocks * INDEX_ENTRY_SIZE);
+      offsets[0] = new long[numBlocks];
+      lengths[0] = new int[numBlocks];
+      for (int i = 0; i < numBlocks; i++) {
+        offsets[0][i] = index.getLong();
+        lengths[0][i] = index.getInt();
+      }
+      return true;
+    }
+
+    /** Recover the index of a file that was not closed properly. */
+    private void scanBlocks(final long[][] offsets, final int[][] lengths)
+        throws IOException {
+      long size = channel.size();
+      long[] o = new long[64];
+      int[] l = new int[64];
+      int numBlocks = 0;
+
+      long position = HEADER_SIZE;
+      while (position + BLOCK_HEADER_SIZE <= size) {
+        ByteBuffer blockHeader = readAt(position, BLOCK_HEADER_SIZE);
+        int length = blockHeader.getInt();
+        int compressedLength = blockHeader.getInt();
+        long end = position + BLOCK_HEADER_SIZE + compressedLength;
+        if (length <= 0 || compressedLength <= 0 || end > size) {
+          break; // incomplete block at the end
+        }
+
+        if (numBlocks == o.length) {
+          o = Arrays.copyOf(o, numBlocks * 2);
+          l = Arrays.copyOf(l, numBlocks * 2);
+        }
+        o[numBlocks] = position;
+        l[numBlocks] = length;
+        numBlocks += 1;
+        position = end;
+      }
+
+      offsets[0] = Arrays.copyOf(o, numBlocks);
+      lengths[0] = Arrays.copyOf(l, numBlocks);
+    }
+
+    public int getNumberOfBlocks() {
+      return blockOffsets.length;
+    }
+
+    public int getBlockLength(final int block) {
+      return blockLengths[block];
+    }
+
+    /** @return the decompressed block, in little endian byte order */
+    public ByteBuffer readBlock(final int block) throws IOException {
+      ByteBuffer blockHeader = readAt(blockOffsets[block], BLOCK_HEADER_SIZE);
+      int length = blockHeader.getInt();
+      int compressedLength = blockHeader.getInt();
+      assert length == blockLengths[block];
+
+      byte[] compressed = new byte[compressedLength];
+      ByteBuffer in = ByteBuffer.wrap(compressed);
+      long position = blockOffsets[block] + BLOCK_HEADER_SIZE;
+      while (in.hasRemaining()) {
+        if (channel.read(in, position + in.position()) < 0) {
+          throw new IOException("Unexpected end of file in block " + block);
+        }
+      }
+
+      byte[] result = new byte[length];
+      Inflater inflater = new Inflater();
+      inflater.setInput(compressed);
+      try {
+        int n = 0;
+        while (n < length && !inflater.finished()) {
+          n += inflater.inflate(result, n, length - n);
+        }
+        if (n != length) {
+          throw new IOException("Block " + block + " is corrupted");
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Block " + block + " is corrupted", e);
+      } finally {
+        inflater.end();
+      }
+
+      ByteBuffer bb = ByteBuffer.wrap(result);
+      bb.order(ByteOrder.LITTLE_ENDIAN);
+      return bb;
+    }
+
+    /** @return true, if {@link #read(ByteBuffer)} can provide more bytes */
+    public boolean hasRemaining() {
+      return (current != null && current.hasRemaining())
+          || nextBlock < blockOffsets.length;
+    }
+
+    /**
+     * Fill the given buffer with the next bytes of the sequence of blocks.
+     *
+     * @return the number of bytes read
+     */
+    public int read(final ByteBuffer dst) throws IOException {
+      int read = 0;
+      while (dst.hasRemaining()) {
+        if (current == null || !current.hasRemaining()) {
+          if (nextBlock == blockOffsets.length) {
+            break;
+          }
+          current = readBlock(nextBlock);
+          nextBlock += 1;
+        }
+
+        int n = Math.min(dst.remaining(), current.remaining());
+        dst.put(current.array(), current.position(), n);
+        current.position(current.position() + n);
+        read += n;
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      file.close();
+    }
+  }
+}
@@ -1,16 +1,17 @@
 package tools.concurrency;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Queue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import som.Output;
 import som.interpreter.actors.EventualMessage;
@@ -32,14 +33,23 @@ public final class TraceParser {
     SYSTEM_CALL
   }
 
-  private ByteBuffer                        b                =
-      ByteBuffer.allocate(VmSettings.BUFFER_SIZE);
   private final HashMap<Integer, ActorNode> actors           = new HashMap<>();
   private final HashMap<Long, Long>         externalDataDict = new HashMap<>();
 
+  /** External data is read lazily, one decompressed block at a time. */
+  private BlockCompressedFile.Reader externalData;
+  private ByteBuffer                 externalBlock;
+  private int                        externalBlockIdx = -1;
+
   private long parsedMessages = 0;
   private long parsedActors   = 0;
 
+  /** State of merging the parsed blocks, i.e., the current actor context. */
+  private boolean                  readMainActor = false;
+  private int                      currentActor  = 0;
+  private int                      ordering      = 0;
+  private ArrayList<MessageRecord> contextMessages;
+
   private static TraceParser parser;
   private static String      traceName =
       VmSettings.TRACE_FILE + (VmSettings.SNAPSHOTS_ENABLED ? ".0" : "");
@@ -78,15 +88,17 @@ public final class TraceParser {
 
   public static synchronized Queue<MessageRecord> getExpectedMessages(final int replayId) {
     if (parser == null) {
+      assert VmSettings.REPLAY;
       parser = new TraceParser();
       parser.parseTrace();
     }
 
-    return parser.actors.get(replayId).getExpectedMessages();
+    return parser.getExpectedMessagesOf(replayId);
   }
 
   public static synchronized int getReplayId(final int parentId, final int childNo) {
     if (parser == null) {
+      assert VmSettings.REPLAY;
       parser = new TraceParser();
       parser.parseTrace();
     }
@@ -94,10 +106,19 @@ public final class TraceParser {
     return (int) parser.actors.get(parentId).getChild(childNo).actorId;
   }
 
-  private TraceParser() {
-    assert VmSettings.REPLAY;
+  /** Close the external data of the trace, once the replay is done. */
+  public static synchronized void close() {
+    if (parser != null) {
+      parser.closeExternalData();
+    }
+  }
+
+  TraceParser() {
     this.parseTable = createParseTable();
-    b.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  Queue<MessageRecord> getExpectedMessagesOf(final int actorId) {
+    return actors.get(actorId).getExpectedMessages();
   }
 
   private TraceRecord[] createParseTable() {
@@ -113,38 +134,73 @@ public final class TraceParser {
   }
 
   private void parseTrace() {
-    boolean readMainActor = false;
-    File traceFile = new File(traceName + ".trace");
-
-    int sender = 0;
-    int resolver = 0;
-    int currentActor = 0;
-    int ordering = 0;
-    short method = 0;
-    int dataId = 0;
     long startTime = System.currentTimeMillis();
-    ArrayList<MessageRecord> contextMessages = null;
 
     Output.println("Parsing Trace ...");
 
-    try (FileInputStream fis = new FileInputStream(traceFile);
-        FileChannel channel = fis.getChannel()) {
-      channel.read(b);
-      b.flip(); // prepare for reading from buffer
-      ActorNode current = null;
-
-      while (channel.position() < channel.size() || b.remaining() > 0) {
-        // read from file if buffer is empty
-        if (!b.hasRemaining()) {
-          b.clear();
-          channel.read(b);
-          b.flip();
-        } else if (b.remaining() < 20) {
-          b.compact();
-          channel.read(b);
-          b.flip();
-        }
+    parseMessages(new File(traceName + ".trace"));
+    parseExternalData();
+
+    long end = System.currentTimeMillis();
+    Output.println("Trace with " + parsedMessages + " Messages and " + parsedActors
+        + " Actors sucessfully parsed in " + (end - startTime) + "ms !");
+  }
+
+  /** Parse the actor creations, contexts, and messages of a trace file. */
+  void parseMessages(final File traceFile) {
+    try (BlockCompressedFile.Reader reader = new BlockCompressedFile.Reader(traceFile)) {
+      // the trace buffers of all threads are decompressed and parsed in
+      // parallel, but need to be merged in the order of the file to
+      // preserve the order of the contexts of each actor. Only the parsed
+      // records are kept until the merge, not the decompressed blocks.
+      List<BlockParser> blocks = IntStream.range(0, reader.getNumberOfBlocks())
+                                          .parallel()
+                                          .mapToObj(i -> new BlockParser(reader, i))
+                                          .collect(Collectors.toList());
+
+      for (BlockParser block : blocks) {
+        block.merge();
+      }
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(e);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * The records of a single block of the trace, i.e., of one trace buffer.
+   *
+   * <p>
+   * Since a trace buffer is only written by one thread, and records do not
+   * span buffers, a block can be parsed independently of the others. Only the
+   * messages before the first actor context of a block belong to the context
+   * that was current at the end of the previous block.
+   */
+  private final class BlockParser {
+    private final ArrayList<MessageRecord> leadingMessages = new ArrayList<>();
+
+    /** Actor contexts and creations, in the order of the trace. */
+    private final ArrayList<Object> events = new ArrayList<>();
 
+    private long messages;
+
+    BlockParser(final BlockCompressedFile.Reader reader, final int block) {
+      try {
+        parse(reader.readBlock(block));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    private void parse(final ByteBuffer b) {
+      int sender = 0;
+      int resolver = 0;
+      short method = 0;
+      int dataId = 0;
+      ArrayList<MessageRecord> contextMessages = leadingMessages;
+
+      while (b.hasRemaining()) {
         final int start = b.position();
         final byte type = b.get();
         final int numbytes = ((type >> 4) & 3) + 1;
@@ -152,61 +208,22 @@ public final class TraceParser {
         TraceRecord recordType = parseTable[type & 7];
         switch (recordType) {
           case ACTOR_CREATION:
-            int newActorId = getId(numbytes);
-            if (newActorId == 0) {
-              assert !readMainActor : "There should be only one main actor.";
-              readMainActor = true;
-              if (!actors.containsKey(newActorId)) {
-                actors.put(newActorId, new ActorNode(newActorId));
-              }
-            } else {
-              if (!actors.containsKey(currentActor)) {
-                actors.put(currentActor, new ActorNode(currentActor));
-              }
-
-              ActorNode node;
-              if (actors.containsKey(newActorId)) {
-                node = actors.get(newActorId);
-              } else {
-                node = new ActorNode(newActorId);
-                actors.put(newActorId, node);
-              }
-
-              node.mailboxNo = ordering;
-              actors.get(currentActor).addChild(node);
-            }
-            parsedActors++;
-
+            events.add(new ActorCreation(getId(b, numbytes)));
             assert b.position() == start + (numbytes + 1);
             break;
 
           case ACTOR_CONTEXT:
-            /*
-             * make two buckets, one for the current 65k contexs, and one for those that we
-             * encounter prematurely
-             * decision wher stuff goes is made based on bitset or whether the ordering byte
-             * already is used in the first bucket
-             * when a bucket is full, we sort the contexts and put the messages inside a queue,
-             * context can then be reclaimed by GC
-             */
-
-            ordering = Short.toUnsignedInt(b.getShort());
-            currentActor = getId(numbytes);
-
-            if (!actors.containsKey(currentActor)) {
-              actors.put(currentActor, new ActorNode(currentActor));
-            }
-
-            current = actors.get(currentActor);
-            assert current != null;
-            contextMessages = new ArrayList<>();
-            current.addMessageRecords(contextMessages, ordering);
+            int ordering = Short.toUnsignedInt(b.getShort());
+            int actor = getId(b, numbytes);
+            ActorContext context = new ActorContext(actor, ordering);
+            events.add(context);
+            contextMessages = context.messages;
             assert b.position() == start + (numbytes + 2 + 1);
             break;
+
           case MESSAGE:
-            parsedMessages++;
-            assert contextMessages != null;
-            sender = getId(numbytes);
+            messages++;
+            sender = getId(b, numbytes);
 
             if (external) {
               method = b.getShort();
@@ -218,10 +235,11 @@ public final class TraceParser {
               assert b.position() == start + (numbytes + 1);
             }
             break;
+
           case PROMISE_MESSAGE:
-            parsedMessages++;
-            sender = getId(numbytes);
-            resolver = getId(numbytes);
+            messages++;
+            sender = getId(b, numbytes);
+            resolver = getId(b, numbytes);
 
             if (external) {
               method = b.getShort();
@@ -233,91 +251,201 @@ public final class TraceParser {
               contextMessages.add(new PromiseMessageRecord(sender, resolver));
               assert b.position() == start + 1 + 2 * (numbytes);
             }
-
             break;
+
           case SYSTEM_CALL:
             dataId = b.getInt();
             break;
+
           default:
             assert false;
         }
       }
+    }
 
-    } catch (FileNotFoundException e) {
-      throw new RuntimeException(e);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+    /** Add the parsed records to the actor hierarchy, sequentially. */
+    void merge() {
+      parsedMessages += messages;
+
+      if (!leadingMessages.isEmpty()) {
+        assert contextMessages != null;
+        contextMessages.addAll(leadingMessages);
+      }
+
+      for (Object e : events) {
+        if (e instanceof ActorContext) {
+          enterContext((ActorContext) e);
+        } else {
+          createActor(((ActorCreation) e).actorId);
+        }
+      }
     }
+  }
 
-    parseExternalData();
+  private static final class ActorContext {
+    final int                      actorId;
+    final int                      ordering;
+    final ArrayList<MessageRecord> messages = new ArrayList<>();
 
-    long end = System.currentTimeMillis();
-    Output.println("Trace with " + parsedMessages + " Messages and " + parsedActors
-        + " Actors sucessfully parsed in " + (end - startTime) + "ms !");
+    ActorContext(final int actorId, final int ordering) {
+      this.actorId = actorId;
+      this.ordering = ordering;
+    }
   }
 
-  private ByteBuffer readExternalData(final long position) {
-    File traceFile = new File(traceName + ".dat");
-    try (FileInputStream fis = new FileInputStream(traceFile);
-        FileChannel channel = fis.getChannel()) {
+  private static final class ActorCreation {
+    final int actorId;
+
+    ActorCreation(final int actorId) {
+      this.actorId = actorId;
+    }
+  }
 
-      ByteBuffer bb = ByteBuffer.allocate(12);
-      bb.order(ByteOrder.LITTLE_ENDIAN);
+  private ActorNode getOrCreateActor(final int actorId) {
+    ActorNode node = actors.get(actorId);
+    if (node == null) {
+      node = new ActorNode(actorId);
+      actors.put(actorId, node);
+    }
+    return node;
+  }
 
-      channel.read(bb, position);
-      bb.flip();
+  private void enterContext(final ActorContext context) {
+    /*
+     * make two buckets, one for the current 65k contexs, and one for those that we
+     * encounter prematurely
+     * decision wher stuff goes is made based on bitset or whether the ordering byte
+     * already is used in the first bucket
+     * when a bucket is full, we sort the contexts and put the messages inside a queue,
+     * context can then be reclaimed by GC
+     */
+    currentActor = context.actorId;
+    ordering = context.ordering;
+    contextMessages = context.messages;
+
+    ActorNode current = getOrCreateActor(currentActor);
+    current.addMessageRecords(contextMessages, ordering);
+  }
 
-      bb.getInt(); // actorId
-      bb.getInt(); // dataId
-      int len = bb.getInt();
+  private void createActor(final int newActorId) {
+    if (newActorId == 0) {
+      assert !readMainActor : "There should be only one main actor.";
+      readMainActor = true;
+      getOrCreateActor(newActorId);
+    } else {
+      ActorNode parent = getOrCreateActor(currentActor);
+      ActorNode node = getOrCreateActor(newActorId);
+      node.mailboxNo = ordering;
+      parent.addChild(node);
+    }
+    parsedActors++;
+  }
 
-      ByteBuffer res = ByteBuffer.allocate(len);
-      res.order(ByteOrder.LITTLE_ENDIAN);
-      channel.read(res, position + 12);
-      res.flip();
-      return res;
-    } catch (FileNotFoundException e) {
-      throw new RuntimeException(e);
+  /**
+   * Read an external data record.
+   *
+   * @param position the index of the block in the upper 32 bits, and the
+   *          offset of the record in the block in the lower 32 bits
+   */
+  private synchronized ByteBuffer readExternalData(final long position) {
+    int block = (int) (position >>> 32);
+    int offset = (int) position;
+
+    try {
+      if (block != externalBlockIdx) {
+        externalBlock = externalData.readBlock(block);
+        externalBlockIdx = block;
+      }
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
+
+    ByteBuffer bb = externalBlock;
+    bb.position(offset);
+    bb.getInt(); // actorId
+    bb.getInt(); // dataId
+    int len = bb.getInt();
+
+    ByteBuffer res = ByteBuffer.allocate(len);
+    res.order(ByteOrder.LITTLE_ENDIAN);
+    res.put(bb.array(), bb.position(), len);
+    res.flip();
+    return res;
   }
 
+  /**
+   * Index the external data records. The file stays open to read the
+   * records lazily during replay, until {@link #close()}.
+   */
   private void parseExternalData() {
     File traceFile = new File(traceName + ".dat");
 
-    ByteBuffer bb = ByteBuffer.allocate(12);
-    bb.order(ByteOrder.LITTLE_ENDIAN);
-
-    try (FileInputStream fis = new FileInputStream(traceFile);
-        FileChannel channel = fis.getChannel()) {
-      while (channel.position() < channel.size()) {
-        // read from file if buffer is empty
-
-        long position = channel.position();
-        bb.clear();
-        channel.read(bb);
-        bb.flip();
-
-        long actor = bb.getInt();
-        long dataId = bb.getInt();
-        int len = bb.getInt();
-
-        long key = (actor << 32) | dataId;
-        externalDataDict.put(key, position);
+    try {
+      externalData = new BlockCompressedFile.Reader(traceFile);
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(e);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
 
-        position = channel.position();
-        channel.position(position + len);
+    boolean indexed = false;
+    try {
+      List<HashMap<Long, Long>> blocks = IntStream.range(0, externalData.getNumberOfBlocks())
+                                                  .parallel()
+                                                  .mapToObj(this::indexExternalData)
+                                                  .collect(Collectors.toList());
+      for (HashMap<Long, Long> block : blocks) {
+        externalDataDict.putAll(block);
+      }
+      indexed = true;
+    } finally {
+      if (!indexed) {
+        closeExternalData();
       }
+    }
+  }
 
-    } catch (FileNotFoundException e) {
+  private synchronized void closeExternalData() {
+    if (externalData == null) {
+      return;
+    }
+
+    try {
+      externalData.close();
+    } catch (IOException e) {
       throw new RuntimeException(e);
+    }
+    externalData = null;
+    externalBlock = null;
+    externalBlockIdx = -1;
+  }
+
+  /** @return the positions of the external data records in the given block */
+  private HashMap<Long, Long> indexExternalData(final int block) {
+    ByteBuffer bb;
+    try {
+      bb = externalData.readBlock(block);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
+
+    HashMap<Long, Long> positions = new HashMap<>();
+    while (bb.hasRemaining()) {
+      long position = (((long) block) << 32) | bb.position();
+
+      long actor = bb.getInt();
+      long dataId = bb.getInt();
+      int len = bb.getInt();
+
+      long key = (actor << 32) | dataId;
+      positions.put(key, position);
+
+      bb.position(bb.position() + len);
+    }
+    return positions;
   }
 
-  private int getId(final int numbytes) {
+  private static int getId(final ByteBuffer b, final int numbytes) {
     switch (numbytes) {
       case 1:
         return 0 | b.get();
@@ -332,6 +460,7 @@ public final class TraceParser {
     return 0;
   }
 
+
   /**
    * Node in actor creation hierarchy.
    */
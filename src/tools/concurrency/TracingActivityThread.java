@@ -13,6 +13,7 @@ import tools.TraceData;
 import tools.debugger.SteppingStrategy;
 import tools.debugger.entities.EntityType;
 import tools.debugger.entities.SteppingType;
+import tools.sampler.ShadowStack;
 import tools.snapshot.SnapshotBackend;
 import tools.snapshot.SnapshotBuffer;
 
@@ -44,6 +45,9 @@ public abstract class TracingActivityThread extends ForkJoinWorkerThread {
   protected volatile boolean swapTracingBuffer = false;
   protected boolean          suspendedInDebugger;
 
+  /** Stack of executing root nodes, only used by the StackSampler. */
+  private ShadowStack shadowStack;
+
   private static class ConcurrentEntityScope {
     private final EntityType            type;
     private final ConcurrentEntityScope next;
@@ -156,6 +160,15 @@ public abstract class TracingActivityThread extends ForkJoinWorkerThread {
     return result;
   }
 
+  public final ShadowStack getShadowStack() {
+    return shadowStack;
+  }
+
+  public final void setShadowStack(final ShadowStack stack) {
+    assert Thread.currentThread() == this;
+    shadowStack = stack;
+  }
+
   public final TraceBuffer getBuffer() {
     return traceBuffer;
   }
@@ -231,7 +244,8 @@ public abstract class TracingActivityThread extends ForkJoinWorkerThread {
     }
     this.snapshotId = SnapshotBackend.getSnapshotVersion();
 
-    // get net snapshotbuffer
+    // hand in the buffer of the previous snapshot to be written, and get a new one
+    SnapshotBackend.registerSnapshotBuffer(snapshotBuffer);
     this.snapshotBuffer = new SnapshotBuffer((ActorProcessingThread) this);
   }
 
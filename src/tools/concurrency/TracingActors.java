@@ -1,6 +1,7 @@
 package tools.concurrency;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -121,6 +122,7 @@ public class TracingActors {
     private BiConsumer<Short, Integer>         dataSource;
     private int                                traceBufferId;
     private final long                         activityId;
+    private DeserializationBuffer              deserializationBuffer;
 
     static {
       if (VmSettings.REPLAY) {
@@ -166,6 +168,15 @@ public class TracingActors {
       return activityId;
     }
 
+    @Override
+    public DeserializationBuffer getDeserializationBuffer() {
+      return deserializationBuffer;
+    }
+
+    public void setDeserializationBuffer(final DeserializationBuffer db) {
+      this.deserializationBuffer = db;
+    }
+
     @TruffleBoundary
     public ReplayActor(final VM vm) {
       super(vm, lookupId());
@@ -202,19 +213,33 @@ public class TracingActors {
         return;
       }
 
-      if (firstMessage == null) {
-        firstMessage = msg;
-      } else {
-        appendToMailbox(msg);
-      }
+      appendToMailbox(msg);
 
       // actor remains dormant until the expected message arrives
-      if ((!this.isExecuting) && this.replayCanProcess(msg)) {
-        isExecuting = true;
+      if (this.replayCanProcess(msg) && tryMarkExecuting()) {
         execute(actorPool);
       }
     }
 
+    @Override
+    public void sendAll(final List<EventualMessage> msgs, final ForkJoinPool actorPool) {
+      for (EventualMessage m : msgs) {
+        send(m, actorPool);
+      }
+    }
+
+    /**
+     * @return the messages currently in the mailbox, in the order they were sent
+     */
+    private List<EventualMessage> getMailboxContent() {
+      ArrayList<EventualMessage> msgs = new ArrayList<>();
+      for (EventualMessage m = mailbox; m != null; m = m.getNextInMailbox()) {
+        msgs.add(m);
+      }
+      Collections.reverse(msgs);
+      return msgs;
+    }
+
     /**
      * Prints a list of expected Messages and remaining mailbox content.
      *
@@ -228,6 +253,7 @@ public class TracingActors {
       boolean result = false;
       for (ReplayActor a : actorList.values()) {
         ReplayActor ra = a;
+        List<EventualMessage> mailboxContent = a.getMailboxContent();
         if (ra.expectedMessages != null && ra.expectedMessages.peek() != null) {
           result = true; // program did not execute all messages
           Output.println("===========================================");
@@ -236,32 +262,20 @@ public class TracingActors {
           printMsg(ra.expectedMessages.peek());
 
           Output.println("Mailbox: ");
-          if (a.firstMessage != null) {
-            printMsg(a.firstMessage);
-            if (a.mailboxExtension != null) {
-              for (EventualMessage em : a.mailboxExtension) {
-                printMsg(em);
-              }
-            }
+          for (EventualMessage em : mailboxContent) {
+            printMsg(em);
           }
 
           for (EventualMessage em : a.leftovers) {
             printMsg(em);
           }
-        } else if (a.firstMessage != null || a.mailboxExtension != null) {
-
-          int n = a.firstMessage != null ? 1 : 0;
-          n += a.mailboxExtension != null ? a.mailboxExtension.size() : 0;
+        } else if (!mailboxContent.isEmpty()) {
+          int n = mailboxContent.size();
 
           Output.println(
               a.getName() + " [" + a.getId() + "] has " + n + " unexpected messages:");
-          if (a.firstMessage != null) {
-            printMsg(a.firstMessage);
-            if (a.mailboxExtension != null) {
-              for (EventualMessage em : a.mailboxExtension) {
-                printMsg(em);
-              }
-            }
+          for (EventualMessage em : mailboxContent) {
+            printMsg(em);
           }
         }
       }
@@ -358,8 +372,7 @@ public class TracingActors {
       private Queue<EventualMessage> determineNextMessages(
           final List<EventualMessage> postponedMsgs) {
         final ReplayActor a = (ReplayActor) actor;
-        int numReceivedMsgs = 1 + (mailboxExtension == null ? 0 : mailboxExtension.size());
-        numReceivedMsgs += postponedMsgs.size();
+        int numReceivedMsgs = postponedMsgs.size();
 
         Queue<EventualMessage> todo = new LinkedList<>();
 
@@ -370,10 +383,16 @@ public class TracingActors {
           postponedMsgs.add(firstMessage);
         }
 
-        if (mailboxExtension != null) {
-          for (EventualMessage msg : mailboxExtension) {
-            postponedMsgs.add(msg);
-          }
+        EventualMessage m = firstMessage.getNextInMailbox();
+        firstMessage.clearNextInMailbox();
+        numReceivedMsgs += 1;
+
+        while (m != null) {
+          EventualMessage next = m.getNextInMailbox();
+          m.clearNextInMailbox();
+          postponedMsgs.add(m);
+          numReceivedMsgs += 1;
+          m = next;
         }
 
         boolean foundNextMessage = true;
@@ -399,7 +418,7 @@ public class TracingActors {
       protected void processCurrentMessages(final ActorProcessingThread currentThread,
           final WebDebugger dbg) {
         assert actor instanceof ReplayActor;
-        assert size > 0;
+        assert firstMessage != null;
 
         final ReplayActor a = (ReplayActor) actor;
         Queue<EventualMessage> todo = determineNextMessages(a.leftovers);
@@ -409,6 +428,7 @@ public class TracingActors {
           handleBreakpointsAndStepping(firstMessage, dbg, a);
           msg.execute();
         }
+        firstMessage = null;
 
         currentThread.createdMessages += todo.size();
       }
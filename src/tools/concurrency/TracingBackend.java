@@ -37,11 +37,13 @@ import som.vm.constants.Classes;
 import som.vm.constants.Nil;
 import som.vmobjects.SArray;
 import som.vmobjects.SArray.SImmutableArray;
+import som.vmobjects.SConcatString;
 import som.vmobjects.SSymbol;
 import tools.debugger.FrontendConnector;
 import tools.replay.StringWrapper;
 import tools.replay.TwoDArrayWrapper;
 import tools.replay.actors.ActorExecutionTrace;
+import tools.snapshot.SnapshotBackend;
 
 
 /**
@@ -349,7 +351,8 @@ public class TracingBackend {
     currentWorkerThread.start();
 
     if (outDatedWorker != null) {
-      // worker will terminate
+      // worker will terminate, and its snapshot version is complete
+      outDatedWorker.writeSnapshot = true;
       outDatedWorker.cont = false;
     }
   }
@@ -390,6 +393,9 @@ public class TracingBackend {
   private static class TraceWorkerThread extends Thread {
     protected boolean cont = true;
 
+    /** Write the snapshot of this worker's version, after the trace is done. */
+    protected volatile boolean writeSnapshot;
+
     protected long traceBytes;
     protected long externalBytes;
 
@@ -398,6 +404,12 @@ public class TracingBackend {
     private final ConcurrentLinkedQueue<Object[]>    externalData =
         new ConcurrentLinkedQueue<Object[]>();
 
+    private static final int EXTERNAL_BLOCK_SIZE = 64 * 1024;
+
+    /** External data records collected for the next compressed block. */
+    private byte[] externalBlock = new byte[EXTERNAL_BLOCK_SIZE];
+    private int    externalBlockFill;
+
     byte snapshotVersion;
 
     protected TraceWorkerThread(final byte snapshotVersion) {
@@ -423,7 +435,39 @@ public class TracingBackend {
       }
     }
 
-    private void writeExternalData(final FileOutputStream edfos) throws IOException {
+    /**
+     * Start a new external data record of the given size. Records are
+     * collected into blocks of {@link #EXTERNAL_BLOCK_SIZE}, but never span
+     * two blocks, so that they can be read with a single block access.
+     */
+    private void startExternalRecord(final BlockCompressedFile.Writer edw,
+        final int size) throws IOException {
+      if (externalBlockFill + size > externalBlock.length) {
+        flushExternalBlock(edw);
+        if (size > externalBlock.length) {
+          externalBlock = new byte[size];
+        }
+      }
+    }
+
+    private void appendExternal(final byte[] bytes) {
+      System.arraycopy(bytes, 0, externalBlock, externalBlockFill, bytes.length);
+      externalBlockFill += bytes.length;
+    }
+
+    private void flushExternalBlock(final BlockCompressedFile.Writer edw)
+        throws IOException {
+      if (edw != null) {
+        edw.writeBlock(externalBlock, 0, externalBlockFill);
+      }
+      externalBlockFill = 0;
+      if (externalBlock.length > EXTERNAL_BLOCK_SIZE) {
+        externalBlock = new byte[EXTERNAL_BLOCK_SIZE];
+      }
+    }
+
+    private void writeExternalData(final BlockCompressedFile.Writer edw)
+        throws IOException {
       while (!externalData.isEmpty()) {
         Object[] external = externalData.poll();
         for (Object oo : external) {
@@ -436,28 +480,24 @@ public class TracingBackend {
             byte[] header =
                 ActorExecutionTrace.getExtDataHeader(sw.actorId, sw.dataId, bytes.length);
 
-            if (edfos != null) {
-              edfos.getChannel().write(ByteBuffer.wrap(header));
-              edfos.getChannel().write(ByteBuffer.wrap(bytes));
-              edfos.flush();
-            }
+            startExternalRecord(edw, header.length + bytes.length);
+            appendExternal(header);
+            appendExternal(bytes);
             externalBytes += bytes.length + 12;
           } else if (oo instanceof TwoDArrayWrapper) {
-            writeArray((TwoDArrayWrapper) oo, edfos);
+            writeArray((TwoDArrayWrapper) oo, edw);
           } else {
 
             byte[] data = (byte[]) oo;
             externalBytes += data.length;
-            if (edfos != null) {
-              edfos.getChannel().write(ByteBuffer.wrap(data));
-              edfos.flush();
-            }
+            startExternalRecord(edw, data.length);
+            appendExternal(data);
           }
         }
       }
     }
 
-    private void writeArray(final TwoDArrayWrapper aw, final FileOutputStream edfos)
+    private void writeArray(final TwoDArrayWrapper aw, final BlockCompressedFile.Writer edw)
         throws IOException {
       SImmutableArray sia = aw.immArray;
 
@@ -473,8 +513,8 @@ public class TracingBackend {
         for (int j = 0; j < inner.length; j++) {
           Object oo = inner[j];
           byte[] bytes = null;
-          if (oo instanceof String) {
-            byte[] sbytes = ((String) oo).getBytes();
+          if (oo instanceof String || oo instanceof SConcatString) {
+            byte[] sbytes = oo.toString().getBytes();
             bytes = new byte[5 + sbytes.length];
             TraceBuffer.UNSAFE.putByte(bytes, TraceBuffer.BYTE_ARR_BASE_OFFSET, STRING);
             TraceBuffer.UNSAFE.putInt(bytes, TraceBuffer.BYTE_ARR_BASE_OFFSET + 1,
@@ -511,15 +551,12 @@ public class TracingBackend {
       byte[] header =
           ActorExecutionTrace.getExtDataHeader(aw.actorId, aw.dataId, numBytes);
 
-      if (edfos != null) {
-        edfos.getChannel().write(ByteBuffer.wrap(header));
-        for (byte[][] baa : bouter) {
-          for (byte[] ba : baa) {
-            edfos.getChannel().write(ByteBuffer.wrap(ba));
-          }
+      startExternalRecord(edw, header.length + numBytes);
+      appendExternal(header);
+      for (byte[][] baa : bouter) {
+        for (byte[] ba : baa) {
+          appendExternal(ba);
         }
-
-        edfos.flush();
       }
       externalBytes += numBytes + 12;
     }
@@ -545,11 +582,10 @@ public class TracingBackend {
       }
     }
 
-    private void writeAndRecycleBuffer(final FileOutputStream fos, final BufferAndLimit buffer)
-        throws IOException {
-      if (fos != null) {
-        fos.getChannel().write(buffer.getReadingFromStartBuffer());
-        fos.flush();
+    private void writeAndRecycleBuffer(final BlockCompressedFile.Writer tw,
+        final BufferAndLimit buffer) throws IOException {
+      if (tw != null) {
+        tw.writeBlock(buffer.buffer, 0, buffer.limit);
       }
 
       traceBytes += buffer.limit;
@@ -558,11 +594,11 @@ public class TracingBackend {
       }
     }
 
-    private void processTraceData(final FileOutputStream traceDataStream,
-        final FileOutputStream externalDataStream,
+    private void processTraceData(final BlockCompressedFile.Writer traceWriter,
+        final BlockCompressedFile.Writer externalDataWriter,
         final BufferedWriter symbolStream) throws IOException {
       while (cont || !fullBuffers.isEmpty() || !externalData.isEmpty()) {
-        writeExternalData(externalDataStream);
+        writeExternalData(externalDataWriter);
 
         BufferAndLimit b = tryToObtainBuffer();
         if (b == null) {
@@ -574,8 +610,9 @@ public class TracingBackend {
           front.sendTracingData(b.getReadingFromStartBuffer());
         }
 
-        writeAndRecycleBuffer(traceDataStream, b);
+        writeAndRecycleBuffer(traceWriter, b);
       }
+      flushExternalBlock(externalDataWriter);
     }
 
     @Override
@@ -592,12 +629,13 @@ public class TracingBackend {
         if (VmSettings.DISABLE_TRACE_FILE) {
           processTraceData(null, null, null);
         } else {
-          try (FileOutputStream traceDataStream = new FileOutputStream(f);
+          try (BlockCompressedFile.Writer traceWriter = new BlockCompressedFile.Writer(f);
               FileOutputStream symbolStream = new FileOutputStream(sf);
-              FileOutputStream externalDataStream = new FileOutputStream(edf);
+              BlockCompressedFile.Writer externalDataWriter =
+                  new BlockCompressedFile.Writer(edf);
               BufferedWriter symbolWriter =
                   new BufferedWriter(new OutputStreamWriter(symbolStream))) {
-            processTraceData(traceDataStream, externalDataStream, symbolWriter);
+            processTraceData(traceWriter, externalDataWriter, symbolWriter);
           } catch (FileNotFoundException e) {
             throw new RuntimeException(e);
           }
@@ -605,6 +643,10 @@ public class TracingBackend {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+
+      if (writeSnapshot && !VmSettings.TEST_SNAPSHOTS) {
+        SnapshotBackend.writeCompletedSnapshots(snapshotVersion);
+      }
     }
   }
 
@@ -1,7 +1,6 @@
 package tools.concurrency;
 
-import java.util.concurrent.SynchronousQueue;
-
+import som.interpreter.processes.ChannelBuffer;
 import som.interpreter.processes.SChannel;
 import tools.debugger.entities.ReceiveOp;
 import tools.debugger.entities.SendOp;
@@ -11,7 +10,8 @@ public final class TracingChannel extends SChannel {
   protected final long channelId;
   protected int        messageId;
 
-  public TracingChannel() {
+  public TracingChannel(final int capacity) {
+    super(capacity);
     channelId = TracingActivityThread.newEntityId();
     messageId = 0;
   }
@@ -22,7 +22,7 @@ public final class TracingChannel extends SChannel {
   }
 
   public static final class TracingChannelInput extends SChannelInput {
-    public TracingChannelInput(final SynchronousQueue<Object> cell,
+    public TracingChannelInput(final ChannelBuffer cell,
         final SChannel channel) {
       super(cell, channel);
     }
@@ -36,10 +36,20 @@ public final class TracingChannel extends SChannel {
         KomposTrace.receiveOperation(ReceiveOp.CHANNEL_RCV, current.channelId);
       }
     }
+
+    /** Trace every value as an individual receive operation. */
+    @Override
+    public Object[] readAll(final int n) throws InterruptedException {
+      Object[] result = new Object[n];
+      for (int i = 0; i < n; i++) {
+        result[i] = read();
+      }
+      return result;
+    }
   }
 
   public static final class TracingChannelOutput extends SChannelOutput {
-    public TracingChannelOutput(final SynchronousQueue<Object> cell,
+    public TracingChannelOutput(final ChannelBuffer cell,
         final SChannel channel) {
       super(cell, channel);
     }
@@ -56,5 +66,13 @@ public final class TracingChannel extends SChannel {
             SendOp.CHANNEL_SEND, current.messageId, current.channelId);
       }
     }
+
+    /** Trace every value as an individual send operation. */
+    @Override
+    public void writeAll(final Object[] values) throws InterruptedException {
+      for (Object v : values) {
+        write(v);
+      }
+    }
   }
 }
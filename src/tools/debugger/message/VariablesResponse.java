@@ -97,7 +97,12 @@ public final class VariablesResponse extends Response {
 
         long numItems = count == null ? Array.getLength(storage) : count;
         for (int i = startIdx; i < numItems; i += 1) {
-          results.add(createVariable("" + (i + 1), Array.get(storage, i), suspension));
+          Object value = Array.get(storage, i);
+          if (value instanceof Byte) {
+            // byte storage represents integers
+            value = (long) (byte) value;
+          }
+          results.add(createVariable("" + (i + 1), value, suspension));
         }
       }
     }
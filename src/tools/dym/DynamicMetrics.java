@@ -7,6 +7,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
 import java.util.function.Function;
 
 import org.graalvm.collections.EconomicSet;
@@ -134,8 +136,9 @@ public class DynamicMetrics extends TruffleInstrument {
     return instrument.lookup(StructuralProbe.class);
   }
 
-  private int methodStackDepth;
-  private int maxStackDepth;
+  /** The stack depth of each thread, and the maximum over all of them. */
+  private final ThreadLocal<int[]> methodStackDepth;
+  private final LongAccumulator    maxStackDepth;
 
   private final Map<SourceSection, InvocationProfile>         methodInvocationCounter;
   private final Map<SourceSection, CallsiteProfile>           methodCallsiteProfiles;
@@ -172,25 +175,28 @@ public class DynamicMetrics extends TruffleInstrument {
   public DynamicMetrics() {
     structuralProbe = new StructuralProbe<>();
 
-    methodInvocationCounter = new HashMap<>();
-    methodCallsiteProfiles = new HashMap<>();
-    closureProfiles = new HashMap<>();
-    operationProfiles = new HashMap<>();
+    methodInvocationCounter = new ConcurrentHashMap<>();
+    methodCallsiteProfiles = new ConcurrentHashMap<>();
+    closureProfiles = new ConcurrentHashMap<>();
+    operationProfiles = new ConcurrentHashMap<>();
 
-    newObjectCounter = new HashMap<>();
-    newArrayCounter = new HashMap<>();
+    newObjectCounter = new ConcurrentHashMap<>();
+    newArrayCounter = new ConcurrentHashMap<>();
 
-    controlFlowProfiles = new HashMap<>();
-    loopProfiles = new HashMap<>();
+    controlFlowProfiles = new ConcurrentHashMap<>();
+    loopProfiles = new ConcurrentHashMap<>();
 
-    fieldReadProfiles = new HashMap<>();
-    fieldWriteProfiles = new HashMap<>();
-    classReadProfiles = new HashMap<>();
-    literalReadCounter = new HashMap<>();
-    localsReadProfiles = new HashMap<>();
-    localsWriteProfiles = new HashMap<>();
+    fieldReadProfiles = new ConcurrentHashMap<>();
+    fieldWriteProfiles = new ConcurrentHashMap<>();
+    classReadProfiles = new ConcurrentHashMap<>();
+    literalReadCounter = new ConcurrentHashMap<>();
+    localsReadProfiles = new ConcurrentHashMap<>();
+    localsWriteProfiles = new ConcurrentHashMap<>();
 
-    rootNodes = new HashSet<>();
+    rootNodes = ConcurrentHashMap.newKeySet();
+
+    methodStackDepth = ThreadLocal.withInitial(() -> new int[1]);
+    maxStackDepth = new LongAccumulator(Math::max, 0);
 
     assert "DefaultTruffleRuntime".equals(
         Truffle.getRuntime().getClass()
@@ -198,14 +204,16 @@ public class DynamicMetrics extends TruffleInstrument {
   }
 
   public void enterMethod() {
-    methodStackDepth += 1;
-    maxStackDepth = Math.max(methodStackDepth, maxStackDepth);
-    assert methodStackDepth > 0;
+    int[] depth = methodStackDepth.get();
+    depth[0] += 1;
+    maxStackDepth.accumulate(depth[0]);
+    assert depth[0] > 0;
   }
 
   public void leaveMethod() {
-    methodStackDepth -= 1;
-    assert methodStackDepth >= 0;
+    int[] depth = methodStackDepth.get();
+    depth[0] -= 1;
+    assert depth[0] >= 0;
   }
 
   private <N extends ExecutionEventNode, PRO extends Counter> ExecutionEventNodeFactory addInstrumentation(
@@ -452,7 +460,7 @@ public class DynamicMetrics extends TruffleInstrument {
 
     String metricsFolder = System.getProperty("dm.metrics", "metrics");
     MetricsCsvWriter.fileOut(data, metricsFolder, structuralProbe,
-        maxStackDepth, getAllStatementsAlsoNotExecuted());
+        (int) maxStackDepth.get(), getAllStatementsAlsoNotExecuted());
 
     outputAllTruffleMethodsToIGV();
   }
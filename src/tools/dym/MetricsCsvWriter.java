@@ -24,6 +24,7 @@ import som.compiler.MixinDefinition.SlotDefinition;
 import som.compiler.Variable;
 import som.interpreter.Invokable;
 import som.interpreter.nodes.dispatch.Dispatchable;
+import som.interpreter.nodes.dispatch.MegamorphicCache;
 import som.interpreter.objectstorage.ClassFactory;
 import som.vm.NotYetImplementedException;
 import som.vmobjects.SInvokable;
@@ -189,6 +190,9 @@ public final class MetricsCsvWriter {
       file.write("Lines Loaded", stats.linesLoaded);
       file.write("Lines Executed", stats.linesExecuted);
       file.write("Lines With Statements", stats.linesWithStatements);
+      file.write("Megamorphic Send Sites", MegamorphicCache.getNumberOfMegamorphicSites());
+      file.write("Megamorphic Cache Hits", MegamorphicCache.getNumberOfHits());
+      file.write("Megamorphic Cache Misses", MegamorphicCache.getNumberOfMisses());
     }
   }
 
@@ -298,7 +302,7 @@ public final class MetricsCsvWriter {
         "Source Section", "Operation", "Category", "Type", "Invocations")) {
 
       for (Entry<SourceSection, OperationProfile> e : sortSS(ops)) {
-        for (Entry<Arguments, Integer> a : sortArg(e.getValue().getArgumentTypes())) {
+        for (Entry<Arguments, Long> a : sortArg(e.getValue().getArgumentTypes())) {
           file.write(
               getSourceSectionAbbrv(e.getKey()),
               e.getValue().getOperation(),
@@ -349,9 +353,9 @@ public final class MetricsCsvWriter {
 
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
 
-        Map<ClassFactory, Integer> receivers = p.getReceivers();
+        Map<ClassFactory, Long> receivers = p.getReceivers();
         // int numRcvrsRecorded = receivers.values().stream().reduce(0, Integer::sum);
-        Map<Invokable, Integer> calltargets = p.getCallTargets();
+        Map<Invokable, Long> calltargets = p.getCallTargets();
         // int numCalltargetsInvoked = calltargets.values().stream().reduce(0, Integer::sum);
 
         file.write(
@@ -374,7 +378,7 @@ public final class MetricsCsvWriter {
       for (Entry<SourceSection, ClosureApplicationProfile> e : sortSS(profiles)) {
         ClosureApplicationProfile p = e.getValue();
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
-        Map<Invokable, Integer> calltargets = p.getCallTargets();
+        Map<Invokable, Long> calltargets = p.getCallTargets();
 
         file.write(abbrv, p.getValue(), calltargets.values().size());
       }
@@ -406,7 +410,7 @@ public final class MetricsCsvWriter {
       for (Entry<SourceSection, ArrayCreationProfile> ee : sortSS(profiles)) {
         ArrayCreationProfile p = ee.getValue();
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
-        for (Entry<Integer, Integer> e : sortInt(p.getSizes())) {
+        for (Entry<Integer, Long> e : sortNum(p.getSizes())) {
           file.write(abbrv, e.getValue(), e.getKey());
         }
       }
@@ -427,7 +431,7 @@ public final class MetricsCsvWriter {
       for (Entry<SourceSection, ReadValueProfile> ee : sortSS(reads)) {
         ReadValueProfile p = ee.getValue();
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
-        for (Entry<ClassFactory, Integer> e : sortCF(p.getTypeProfile())) {
+        for (Entry<ClassFactory, Long> e : sortCF(p.getTypeProfile())) {
           file.write(abbrv, "read", e.getKey().getClassName().getString(), e.getValue());
         }
 
@@ -455,7 +459,7 @@ public final class MetricsCsvWriter {
       for (Entry<SourceSection, ReadValueProfile> ee : sortSS(reads)) {
         ReadValueProfile p = ee.getValue();
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
-        for (Entry<ClassFactory, Integer> e : sortCF(p.getTypeProfile())) {
+        for (Entry<ClassFactory, Long> e : sortCF(p.getTypeProfile())) {
           file.write(
               abbrv,
               "read",
@@ -480,7 +484,7 @@ public final class MetricsCsvWriter {
     return result;
   }
 
-  private int methodInvocationCount(final SInvokable method,
+  private long methodInvocationCount(final SInvokable method,
       final Collection<InvocationProfile> profiles) {
     InvocationProfile profile = null;
 
@@ -504,7 +508,7 @@ public final class MetricsCsvWriter {
     EconomicMap<SSymbol, Dispatchable> disps = mixin.getInstanceDispatchables();
     for (Dispatchable d : disps.getValues()) {
       if (d instanceof SInvokable) {
-        int invokeCount = methodInvocationCount(((SInvokable) d), profiles);
+        long invokeCount = methodInvocationCount(((SInvokable) d), profiles);
         if (invokeCount > 0) {
           numMethodsExecuted += 1;
         }
@@ -533,7 +537,7 @@ public final class MetricsCsvWriter {
         "Name", "Executed", "Execution Count")) {
 
       for (SInvokable i : sortInv(structuralProbe.getMethods())) {
-        int numInvokations = methodInvocationCount(i, profiles.values());
+        long numInvokations = methodInvocationCount(i, profiles.values());
         String executed = (numInvokations == 0) ? "false" : "true";
         file.write(i.toString(), executed, numInvokations);
       }
@@ -566,7 +570,7 @@ public final class MetricsCsvWriter {
         "Source Section", "Loop Activations", "Num Iterations")) {
 
       for (Entry<SourceSection, LoopProfile> e : sortSS(loops)) {
-        for (Entry<Integer, Integer> l : sortInt(e.getValue().getIterations())) {
+        for (Entry<Long, Long> l : sortNum(e.getValue().getIterations())) {
           file.write(
               getSourceSectionAbbrv(e.getKey()),
               l.getKey(),
@@ -672,7 +676,8 @@ public final class MetricsCsvWriter {
     return sort(map, (a, b) -> compare(a.getKey(), b.getKey()));
   }
 
-  private static <V> SortedSet<Entry<Integer, V>> sortInt(final Map<Integer, V> map) {
+  private static <K extends Comparable<K>, V> SortedSet<Entry<K, V>> sortNum(
+      final Map<K, V> map) {
     return sort(map, (a, b) -> a.getKey().compareTo(b.getKey()));
   }
 
@@ -1,27 +1,24 @@
 package tools.dym.profiles;
 
-import java.util.HashMap;
 import java.util.Map;
 
-import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.source.SourceSection;
 
 
 public class ArrayCreationProfile extends Counter {
 
-  private final Map<Integer, Integer> arraySizes;
+  private final Histogram<Integer> arraySizes;
 
   public ArrayCreationProfile(final SourceSection source) {
     super(source);
-    arraySizes = new HashMap<>();
+    arraySizes = new Histogram<>();
   }
 
-  @TruffleBoundary
   public void profileArraySize(final int size) {
-    arraySizes.merge(size, 1, Integer::sum);
+    arraySizes.inc(size);
   }
 
-  public Map<Integer, Integer> getSizes() {
-    return arraySizes;
+  public Map<Integer, Long> getSizes() {
+    return arraySizes.getCounts();
   }
 }
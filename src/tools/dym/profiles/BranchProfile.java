@@ -1,5 +1,7 @@
 package tools.dym.profiles;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.api.utilities.JSONHelper;
 import com.oracle.truffle.api.utilities.JSONHelper.JSONObjectBuilder;
@@ -7,8 +9,8 @@ import com.oracle.truffle.api.utilities.JSONHelper.JSONStringBuilder;
 
 
 public class BranchProfile extends Counter {
-  private long trueCount;
-  private long falseCount;
+  private final LongAdder trueCount  = new LongAdder();
+  private final LongAdder falseCount = new LongAdder();
 
   public BranchProfile(final SourceSection source) {
     super(source);
@@ -16,27 +18,25 @@ public class BranchProfile extends Counter {
 
   public void profile(final boolean branchValue) {
     if (branchValue) {
-      trueCount += 1;
-      assert trueCount > 0 : "TODO: handle overflow, by calculating a ratio";
+      trueCount.increment();
     } else {
-      falseCount += 1;
-      assert falseCount > 0 : "TODO: handle overflow, by calculating a ratio";
+      falseCount.increment();
     }
   }
 
   public long getTrueCount() {
-    return trueCount;
+    return trueCount.sum();
   }
 
   public long getFalseCount() {
-    return falseCount;
+    return falseCount.sum();
   }
 
   @Override
   public JSONStringBuilder toJson() {
     JSONObjectBuilder result = JSONHelper.object();
-    result.add("trueCount", trueCount);
-    result.add("falseCount", falseCount);
+    result.add("trueCount", getTrueCount());
+    result.add("falseCount", getFalseCount());
     return result;
   }
 }
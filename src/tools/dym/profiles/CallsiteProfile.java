@@ -1,10 +1,12 @@
 package tools.dym.profiles;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.oracle.truffle.api.source.SourceSection;
 
@@ -16,17 +18,15 @@ import tools.dym.profiles.ReadValueProfile.ProfileCounter;
 
 public class CallsiteProfile extends Counter implements CreateCounter {
 
-  private final Map<Invokable, Counter>    callTargetMap;
-  private final Map<ClassFactory, Integer> receiverMap;
-  private final List<ProfileCounter>       counters;
+  private final Map<Invokable, Counter> callTargetMap;
+  private final List<ProfileCounter>    counters;
 
   @SuppressWarnings("unused") private TypeProfileNode typeProfile;
 
   public CallsiteProfile(final SourceSection source) {
     super(source);
-    callTargetMap = new HashMap<>();
-    receiverMap = new HashMap<>();
-    counters = new ArrayList<>();
+    callTargetMap = new ConcurrentHashMap<>();
+    counters = new CopyOnWriteArrayList<>();
   }
 
   @Override
@@ -41,41 +41,26 @@ public class CallsiteProfile extends Counter implements CreateCounter {
   }
 
   public Counter createCounter(final Invokable invokable) {
-    Counter c = callTargetMap.get(invokable);
-    if (c != null) {
-      return c;
-    }
-    c = new Counter();
-    callTargetMap.put(invokable, c);
-    return c;
+    return callTargetMap.computeIfAbsent(invokable, i -> new Counter());
   }
 
-  public Map<Invokable, Integer> getCallTargets() {
-    HashMap<Invokable, Integer> result = new HashMap<>();
+  public Map<Invokable, Long> getCallTargets() {
+    HashMap<Invokable, Long> result = new HashMap<>();
     for (Entry<Invokable, Counter> e : callTargetMap.entrySet()) {
-      result.put(e.getKey(), e.getValue().val);
+      result.put(e.getKey(), e.getValue().val.sum());
     }
     return result;
   }
 
-  public Map<ClassFactory, Integer> getReceivers() {
-    Map<ClassFactory, Integer> result = new HashMap<>(receiverMap);
-    for (ProfileCounter c : counters) {
-      Integer val = result.get(c.getType());
-      if (val == null) {
-        result.put(c.getType(), c.getValue());
-      } else {
-        result.put(c.getType(), c.getValue() + val);
-      }
-    }
-    return result;
+  public Map<ClassFactory, Long> getReceivers() {
+    return ProfileCounter.addTo(new HashMap<>(), counters);
   }
 
   public static final class Counter {
-    private int val;
+    private final LongAdder val = new LongAdder();
 
     public void inc() {
-      val += 1;
+      val.increment();
     }
   }
 }
@@ -3,6 +3,8 @@ package tools.dym.profiles;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.oracle.truffle.api.source.SourceSection;
 
@@ -15,34 +17,28 @@ public class ClosureApplicationProfile extends Counter {
 
   public ClosureApplicationProfile(final SourceSection source) {
     super(source);
-    callTargetMap = new HashMap<>();
+    callTargetMap = new ConcurrentHashMap<>();
   }
 
   // TODO: remove code duplication with CallsiteProfile
 
   public ActivationCounter createCounter(final Invokable invokable) {
-    ActivationCounter c = callTargetMap.get(invokable);
-    if (c != null) {
-      return c;
-    }
-    c = new ActivationCounter();
-    callTargetMap.put(invokable, c);
-    return c;
+    return callTargetMap.computeIfAbsent(invokable, i -> new ActivationCounter());
   }
 
-  public Map<Invokable, Integer> getCallTargets() {
-    HashMap<Invokable, Integer> result = new HashMap<>();
+  public Map<Invokable, Long> getCallTargets() {
+    HashMap<Invokable, Long> result = new HashMap<>();
     for (Entry<Invokable, ActivationCounter> e : callTargetMap.entrySet()) {
-      result.put(e.getKey(), e.getValue().val);
+      result.put(e.getKey(), e.getValue().val.sum());
     }
     return result;
   }
 
   public static final class ActivationCounter {
-    private int val;
+    private final LongAdder val = new LongAdder();
 
     public void inc() {
-      val += 1;
+      val.increment();
     }
   }
 }
@@ -1,5 +1,7 @@
 package tools.dym.profiles;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.api.utilities.JSONHelper;
 import com.oracle.truffle.api.utilities.JSONHelper.JSONObjectBuilder;
@@ -11,7 +13,7 @@ import tools.dym.JsonSerializable;
 public class Counter implements JsonSerializable {
   protected final SourceSection source;
 
-  private int invocationCount;
+  private final LongAdder invocationCount = new LongAdder();
 
   public Counter(final SourceSection source) {
     this.source = source;
@@ -22,22 +24,22 @@ public class Counter implements JsonSerializable {
   }
 
   public void inc() {
-    invocationCount += 1;
+    invocationCount.increment();
   }
 
-  public int getValue() {
-    return invocationCount;
+  public long getValue() {
+    return invocationCount.sum();
   }
 
   @Override
   public String toString() {
-    return "Cnt[" + invocationCount + "]";
+    return "Cnt[" + getValue() + "]";
   }
 
   @Override
   public JSONStringBuilder toJson() {
     JSONObjectBuilder result = JSONHelper.object();
-    result.add("count", invocationCount);
+    result.add("count", getValue());
     return result;
   }
 }
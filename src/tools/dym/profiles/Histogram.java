@@ -0,0 +1,36 @@
+package tools.dym.profiles;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+
+/**
+ * Counts how often each key was observed. Keys can be recorded concurrently
+ * from multiple threads without losing updates.
+ */
+public final class Histogram<K> {
+  private final ConcurrentHashMap<K, LongAdder> counts = new ConcurrentHashMap<>();
+
+  @TruffleBoundary
+  public void inc(final K key) {
+    LongAdder cnt = counts.get(key);
+    if (cnt == null) {
+      cnt = counts.computeIfAbsent(key, k -> new LongAdder());
+    }
+    cnt.increment();
+  }
+
+  /** @return a snapshot of the current counts */
+  public Map<K, Long> getCounts() {
+    HashMap<K, Long> result = new HashMap<>();
+    for (Entry<K, LongAdder> e : counts.entrySet()) {
+      result.put(e.getKey(), e.getValue().sum());
+    }
+    return result;
+  }
+}
@@ -1,10 +1,8 @@
 package tools.dym.profiles;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.api.utilities.JSONHelper;
 import com.oracle.truffle.api.utilities.JSONHelper.JSONArrayBuilder;
@@ -17,11 +15,11 @@ public class InvocationProfile extends Counter {
 
   private final Invokable method;
 
-  private final Map<Arguments, Integer> argumentTypes;
+  private final Histogram<Arguments> argumentTypes;
 
   public InvocationProfile(final SourceSection source, final Invokable method) {
     super(source);
-    argumentTypes = new HashMap<>();
+    argumentTypes = new Histogram<>();
     this.method = method;
   }
 
@@ -29,16 +27,14 @@ public class InvocationProfile extends Counter {
     return method;
   }
 
-  @TruffleBoundary
   public void profileArguments(final Object[] args) {
-    argumentTypes.merge(
-        new Arguments(args), 1, Integer::sum);
+    argumentTypes.inc(new Arguments(args));
   }
 
   @Override
   public JSONArrayBuilder toJson() {
     JSONArrayBuilder result = JSONHelper.array();
-    for (Entry<Arguments, Integer> e : argumentTypes.entrySet()) {
+    for (Entry<Arguments, Long> e : argumentTypes.getCounts().entrySet()) {
       JSONObjectBuilder invocations = e.getKey().toJson();
       invocations.add("invocations", e.getValue());
       result.add(invocations);
@@ -48,12 +44,12 @@ public class InvocationProfile extends Counter {
 
   @Override
   public String toString() {
-    return "InvProf" + argumentsMapToString(argumentTypes);
+    return "InvProf" + argumentsMapToString(argumentTypes.getCounts());
   }
 
-  public static String argumentsMapToString(final Map<Arguments, Integer> args) {
+  public static String argumentsMapToString(final Map<Arguments, Long> args) {
     String result = "[";
-    for (Entry<Arguments, Integer> e : args.entrySet()) {
+    for (Entry<Arguments, Long> e : args.entrySet()) {
       if (!"[".equals(result)) {
         result += "; ";
       }
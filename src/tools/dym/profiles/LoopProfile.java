@@ -1,6 +1,5 @@
 package tools.dym.profiles;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -10,29 +9,31 @@ import com.oracle.truffle.api.source.SourceSection;
 
 public class LoopProfile extends Counter {
 
-  private int currentIterations;
+  /** The iterations of the loop currently executing, kept per thread. */
+  private final ThreadLocal<long[]> currentIterations;
 
-  private final Map<Integer, Integer> loopIterations;
+  private final Histogram<Long> loopIterations;
 
   public LoopProfile(final SourceSection source) {
     super(source);
-    loopIterations = new HashMap<>();
-    currentIterations = 0;
+    loopIterations = new Histogram<>();
+    currentIterations = ThreadLocal.withInitial(() -> new long[1]);
   }
 
+  @TruffleBoundary
   public void recordLoopIteration() {
-    currentIterations += 1;
-    assert currentIterations >= 0 : "TODO: handle overflow";
+    currentIterations.get()[0] += 1;
   }
 
   @TruffleBoundary
   public void recordLoopExit() {
-    loopIterations.merge(currentIterations, 1, Integer::sum);
-    currentIterations = 0;
+    long[] current = currentIterations.get();
+    loopIterations.inc(current[0]);
+    current[0] = 0;
   }
 
-  public Map<Integer, Integer> getIterations() {
-    return loopIterations;
+  public Map<Long, Long> getIterations() {
+    return loopIterations.getCounts();
   }
 
   @Override
@@ -42,7 +43,7 @@ public class LoopProfile extends Counter {
 
   private String mapToString() {
     String result = "[";
-    for (Entry<Integer, Integer> e : loopIterations.entrySet()) {
+    for (Entry<Long, Long> e : getIterations().entrySet()) {
       if (!"[".equals(result)) {
         result += "; ";
       }
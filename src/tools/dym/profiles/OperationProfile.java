@@ -2,7 +2,6 @@ package tools.dym.profiles;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -12,11 +11,13 @@ import com.oracle.truffle.api.source.SourceSection;
 
 public final class OperationProfile extends Counter {
 
-  private final String                    operation;
-  private final Set<Class<?>>             tags;
-  private final Deque<Object[]>           argumentsForExecutions;
-  protected final int                     numArgsAndResult;
-  protected final Map<Arguments, Integer> argumentTypes;
+  private final String        operation;
+  private final Set<Class<?>> tags;
+  protected final int         numArgsAndResult;
+
+  /** Arguments of the executions in progress, kept per thread. */
+  private final ThreadLocal<Deque<Object[]>> argumentsForExecutions;
+  protected final Histogram<Arguments>       argumentTypes;
 
   public OperationProfile(final SourceSection source, final String operation,
       final Set<Class<?>> tags, final int numArgsAndResult) {
@@ -24,19 +25,18 @@ public final class OperationProfile extends Counter {
     this.numArgsAndResult = numArgsAndResult;
     this.operation = operation;
     this.tags = tags;
-    argumentsForExecutions = new ArrayDeque<>();
-    argumentTypes = new HashMap<>();
+    argumentsForExecutions = ThreadLocal.withInitial(ArrayDeque::new);
+    argumentTypes = new Histogram<>();
     assert operation != null;
   }
 
   protected void recordArguments(final Object[] args) {
-    argumentTypes.merge(
-        new Arguments(args), 1, Integer::sum);
+    argumentTypes.inc(new Arguments(args));
   }
 
   @TruffleBoundary
   public void enterMainNode() {
-    argumentsForExecutions.push(new Object[numArgsAndResult]);
+    argumentsForExecutions.get().push(new Object[numArgsAndResult]);
   }
 
   public String getOperation() {
@@ -51,8 +51,8 @@ public final class OperationProfile extends Counter {
     return numArgsAndResult;
   }
 
-  public Map<Arguments, Integer> getArgumentTypes() {
-    return argumentTypes;
+  public Map<Arguments, Long> getArgumentTypes() {
+    return argumentTypes.getCounts();
   }
 
   @TruffleBoundary
@@ -63,8 +63,9 @@ public final class OperationProfile extends Counter {
     // so, the final results might be off by one, but this should not be
     // critical
     // Example: the `+` is problematic in `def length: 1 + self.length()`
-    if (!argumentsForExecutions.isEmpty()) {
-      argumentsForExecutions.peek()[argIdx] = value;
+    Deque<Object[]> executions = argumentsForExecutions.get();
+    if (!executions.isEmpty()) {
+      executions.peek()[argIdx] = value;
     }
   }
 
@@ -76,8 +77,9 @@ public final class OperationProfile extends Counter {
     // so, the final results might be off by one, but this should not be
     // critical
     // Example: the `+` is problematic in `def length: 1 + self.length()`
-    if (!argumentsForExecutions.isEmpty()) {
-      Object[] arguments = argumentsForExecutions.pop();
+    Deque<Object[]> executions = argumentsForExecutions.get();
+    if (!executions.isEmpty()) {
+      Object[] arguments = executions.pop();
       arguments[0] = returnValue;
       recordArguments(arguments);
     }
@@ -85,6 +87,7 @@ public final class OperationProfile extends Counter {
 
   @Override
   public String toString() {
-    return "OpProf(" + operation + ")" + InvocationProfile.argumentsMapToString(argumentTypes);
+    return "OpProf(" + operation + ")" + InvocationProfile.argumentsMapToString(
+        argumentTypes.getCounts());
   }
 }
@@ -1,9 +1,9 @@
 package tools.dym.profiles;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.oracle.truffle.api.source.SourceSection;
 
@@ -13,34 +13,25 @@ import som.interpreter.objectstorage.ClassFactory;
 
 public class ReadValueProfile extends Counter implements CreateCounter {
 
-  private final Map<ClassFactory, Integer> typesOfReadValue;
-  private final List<ProfileCounter>       counters;
+  private final Histogram<ClassFactory> typesOfReadValue;
+  private final List<ProfileCounter>    counters;
 
   // TODO: add support for reading fields from profiled type of receiver objects.
   // need subexpression support for that
 
   public ReadValueProfile(final SourceSection source) {
     super(source);
-    typesOfReadValue = new HashMap<>();
-    counters = new ArrayList<>();
+    typesOfReadValue = new Histogram<>();
+    counters = new CopyOnWriteArrayList<>();
   }
 
   public void profileValueType(final ClassFactory valueType) {
     VM.callerNeedsToBeOptimized("This is a fallback method");
-    typesOfReadValue.merge(valueType, 1, Integer::sum);
+    typesOfReadValue.inc(valueType);
   }
 
-  public Map<ClassFactory, Integer> getTypeProfile() {
-    Map<ClassFactory, Integer> result = new HashMap<>(typesOfReadValue);
-    for (ProfileCounter c : counters) {
-      Integer val = result.get(c.getType());
-      if (val == null) {
-        result.put(c.getType(), c.getValue());
-      } else {
-        result.put(c.getType(), c.getValue() + val);
-      }
-    }
-    return result;
+  public Map<ClassFactory, Long> getTypeProfile() {
+    return ProfileCounter.addTo(typesOfReadValue.getCounts(), counters);
   }
 
   @Override
@@ -51,7 +42,7 @@ public class ReadValueProfile extends Counter implements CreateCounter {
   }
 
   public static final class ProfileCounter {
-    private int                count;
+    private final LongAdder    count = new LongAdder();
     private final ClassFactory type;
 
     public ProfileCounter(final ClassFactory type) {
@@ -59,15 +50,23 @@ public class ReadValueProfile extends Counter implements CreateCounter {
     }
 
     public void inc() {
-      count += 1;
+      count.increment();
     }
 
     public ClassFactory getType() {
       return type;
     }
 
-    public int getValue() {
-      return count;
+    public long getValue() {
+      return count.sum();
+    }
+
+    static Map<ClassFactory, Long> addTo(final Map<ClassFactory, Long> result,
+        final List<ProfileCounter> counters) {
+      for (ProfileCounter c : counters) {
+        result.merge(c.getType(), c.getValue(), Long::sum);
+      }
+      return result;
     }
   }
 }
@@ -0,0 +1,65 @@
+package tools.sampler;
+
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.nodes.RootNode;
+
+import tools.concurrency.TracingActivityThread;
+
+
+/**
+ * The stack of root nodes a {@link TracingActivityThread} is currently
+ * executing.
+ *
+ * <p>
+ * Only the owning thread pushes and pops. The {@link StackSampler} reads the
+ * stack concurrently without synchronization, so that a sample might be
+ * slightly out of date, which is fine for a statistical profile. Since
+ * {@link #depth} is volatile, a sample never sees a frame that was not
+ * written yet.
+ */
+public final class ShadowStack {
+  private static final int INITIAL_SIZE = 64;
+
+  private final TracingActivityThread thread;
+
+  private RootNode[]   frames;
+  private volatile int depth;
+
+  ShadowStack(final TracingActivityThread thread) {
+    this.thread = thread;
+    this.frames = new RootNode[INITIAL_SIZE];
+  }
+
+  public void push(final RootNode root) {
+    int d = depth;
+    if (d == frames.length) {
+      CompilerDirectives.transferToInterpreter();
+      frames = Arrays.copyOf(frames, d * 2);
+    }
+    frames[d] = root;
+    depth = d + 1;
+  }
+
+  public void pop() {
+    int d = depth;
+    if (d > 0) {
+      depth = d - 1;
+    }
+  }
+
+  TracingActivityThread getThread() {
+    return thread;
+  }
+
+  /** @return the frames from the bottom of the stack, or null if it is empty */
+  RootNode[] sample() {
+    int d = depth;
+    if (d == 0) {
+      return null;
+    }
+    RootNode[] current = frames;
+    return Arrays.copyOf(current, Math.min(d, current.length));
+  }
+}
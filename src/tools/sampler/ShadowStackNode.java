@@ -0,0 +1,61 @@
+package tools.sampler;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNode;
+import com.oracle.truffle.api.nodes.NodeCost;
+import com.oracle.truffle.api.nodes.RootNode;
+
+import tools.concurrency.TracingActivityThread;
+
+
+/**
+ * Maintains the {@link ShadowStack} of the current thread on entry and exit
+ * of a root node.
+ */
+final class ShadowStackNode extends ExecutionEventNode {
+  private final StackSampler sampler;
+  private final RootNode     root;
+
+  ShadowStackNode(final StackSampler sampler, final RootNode root) {
+    this.sampler = sampler;
+    this.root = root;
+  }
+
+  @Override
+  protected void onEnter(final VirtualFrame frame) {
+    Thread current = Thread.currentThread();
+    if (current instanceof TracingActivityThread) {
+      TracingActivityThread t = (TracingActivityThread) current;
+      ShadowStack stack = t.getShadowStack();
+      if (stack == null) {
+        stack = sampler.register(t);
+      }
+      stack.push(root);
+    }
+  }
+
+  @Override
+  protected void onReturnValue(final VirtualFrame frame, final Object result) {
+    leave();
+  }
+
+  @Override
+  protected void onReturnExceptional(final VirtualFrame frame, final Throwable e) {
+    leave();
+  }
+
+  private static void leave() {
+    Thread current = Thread.currentThread();
+    if (current instanceof TracingActivityThread) {
+      ShadowStack stack = ((TracingActivityThread) current).getShadowStack();
+      if (stack != null) {
+        stack.pop();
+      }
+    }
+  }
+
+  @Override
+  public NodeCost getCost() {
+    return NodeCost.NONE;
+  }
+}
@@ -0,0 +1,272 @@
+package tools.sampler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.Instrument;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
+import com.oracle.truffle.api.instrumentation.StandardTags.RootTag;
+import com.oracle.truffle.api.instrumentation.TruffleInstrument;
+import com.oracle.truffle.api.instrumentation.TruffleInstrument.Registration;
+import com.oracle.truffle.api.nodes.RootNode;
+
+import som.interpreter.Types;
+import som.interpreter.actors.Actor.ActorProcessingThread;
+import som.interpreter.actors.EventualMessage;
+import som.vm.Activity;
+import tools.concurrency.TracingActivityThread;
+import tools.dym.CsvWriter;
+
+
+/**
+ * A statistical profiler that periodically samples the stacks of all
+ * {@link TracingActivityThread}s, i.e., of actors, processes, threads, and
+ * fork/join tasks.
+ *
+ * <p>
+ * In contrast to {@link tools.dym.DynamicMetrics}, only the entry and exit of
+ * root nodes is instrumented to maintain a {@link ShadowStack} per thread,
+ * which keeps the overhead low enough to leave the profiler enabled for
+ * normal runs.
+ *
+ * <p>
+ * On dispose, the samples are written to the folder given by the
+ * {@code sampler.output} property:
+ * <ul>
+ * <li>{@code stacks.collapsed}: the stacks in the collapsed format used by
+ * flame graph tools, the first frame is the kind of activity</li>
+ * <li>{@code roots.csv}: the number of samples per root node, either on top
+ * of the stack, or anywhere on the stack</li>
+ * <li>{@code activities.csv}: the number of samples per activity, for actors
+ * per class of the actor's objects</li>
+ * </ul>
+ */
+@Registration(name = "Stack Sampler", id = StackSampler.ID, version = "0.1",
+    services = {StackSampler.class})
+public final class StackSampler extends TruffleInstrument {
+
+  public static final String ID = "som-stack-sampler";
+
+  public static StackSampler find(final Engine engine) {
+    Instrument instrument = engine.getInstruments().get(ID);
+    if (instrument == null) {
+      throw new IllegalStateException(
+          "StackSampler not properly installed into polyglot.Engine");
+    }
+
+    return instrument.lookup(StackSampler.class);
+  }
+
+  private final ConcurrentLinkedQueue<ShadowStack> stacks = new ConcurrentLinkedQueue<>();
+
+  /** Samples per stack, only accessed by the sampling thread until it is done. */
+  private final Map<StackKey, long[]> samples = new HashMap<>();
+
+  private final long intervalMillis;
+
+  private Thread           samplingThread;
+  private volatile boolean done;
+
+  public StackSampler() {
+    intervalMillis = Long.getLong("sampler.intervalMillis", 10);
+  }
+
+  @Override
+  protected void onCreate(final Env env) {
+    env.getInstrumenter().attachExecutionEventFactory(
+        SourceSectionFilter.newBuilder().tagIs(RootTag.class).build(),
+        ctx -> new ShadowStackNode(this, ctx.getInstrumentedNode().getRootNode()));
+
+    samplingThread = new Thread(this::sampleUntilDone, "StackSampler");
+    samplingThread.setDaemon(true);
+    samplingThread.start();
+
+    env.registerService(this);
+  }
+
+  @TruffleBoundary
+  ShadowStack register(final TracingActivityThread thread) {
+    ShadowStack stack = new ShadowStack(thread);
+    thread.setShadowStack(stack);
+    stacks.add(stack);
+    return stack;
+  }
+
+  private void sampleUntilDone() {
+    while (!done) {
+      try {
+        Thread.sleep(intervalMillis);
+      } catch (InterruptedException e) {
+        continue;
+      }
+      sampleAll();
+    }
+  }
+
+  private void sampleAll() {
+    Iterator<ShadowStack> i = stacks.iterator();
+    while (i.hasNext()) {
+      ShadowStack stack = i.next();
+      if (!stack.getThread().isAlive()) {
+        i.remove();
+        continue;
+      }
+
+      RootNode[] frames = stack.sample();
+      if (frames != null) {
+        StackKey key = new StackKey(getActivityName(stack.getThread()), frames);
+        samples.computeIfAbsent(key, k -> new long[1])[0] += 1;
+      }
+    }
+  }
+
+  /**
+   * Determine the activity, without relying on the thread being in a
+   * consistent state, because it continues to run while we are sampling.
+   */
+  private static String getActivityName(final TracingActivityThread thread) {
+    if (thread instanceof ActorProcessingThread) {
+      EventualMessage msg = ((ActorProcessingThread) thread).currentMessage;
+      if (msg == null) {
+        return "Actor";
+      }
+      Object rcvr = msg.getArgs()[0];
+      return "Actor " + Types.getClassOf(rcvr).getName().getString();
+    }
+
+    Activity activity = thread.getActivity();
+    if (activity == null) {
+      return thread.getClass().getSimpleName();
+    }
+    return activity.getType().getName();
+  }
+
+  @Override
+  protected void onDispose(final Env env) {
+    done = true;
+    samplingThread.interrupt();
+    try {
+      samplingThread.join();
+    } catch (InterruptedException e) {
+      // continue with the samples we got
+    }
+
+    String folder = System.getProperty("sampler.output", "sampling-profile");
+    new File(folder).mkdirs();
+
+    writeCollapsedStacks(folder);
+    writeRoots(folder);
+    writeActivities(folder);
+  }
+
+  private void writeCollapsedStacks(final String folder) {
+    try (PrintWriter writer =
+        new PrintWriter(folder + File.separator + "stacks.collapsed")) {
+      for (Entry<StackKey, long[]> e : samples.entrySet()) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(frameName(e.getKey().activity));
+        for (RootNode frame : e.getKey().frames) {
+          sb.append(';');
+          sb.append(frameName(frame.getName()));
+        }
+        sb.append(' ');
+        sb.append(e.getValue()[0]);
+        writer.println(sb.toString());
+      }
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** The collapsed format uses semicolons to separate frames. */
+  private static String frameName(final String name) {
+    if (name == null) {
+      return "<unknown>";
+    }
+    return name.replace(';', ':');
+  }
+
+  private void writeRoots(final String folder) {
+    Map<RootNode, long[]> roots = new HashMap<>();
+    for (Entry<StackKey, long[]> e : samples.entrySet()) {
+      RootNode[] frames = e.getKey().frames;
+      long cnt = e.getValue()[0];
+
+      // count recursive frames only once per sample
+      RootNode[] distinct = Arrays.stream(frames).distinct().toArray(RootNode[]::new);
+      for (RootNode r : distinct) {
+        long[] counts = roots.computeIfAbsent(r, k -> new long[2]);
+        counts[1] += cnt;
+        if (r == frames[frames.length - 1]) {
+          counts[0] += cnt;
+        }
+      }
+    }
+
+    List<Entry<RootNode, long[]>> sorted = new ArrayList<>(roots.entrySet());
+    sorted.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+
+    try (CsvWriter file = new CsvWriter(folder, "roots.csv",
+        "Root", "Self Samples", "Total Samples")) {
+      for (Entry<RootNode, long[]> e : sorted) {
+        file.write(e.getKey().getName(), e.getValue()[0], e.getValue()[1]);
+      }
+    }
+  }
+
+  private void writeActivities(final String folder) {
+    Map<String, long[]> activities = new HashMap<>();
+    for (Entry<StackKey, long[]> e : samples.entrySet()) {
+      activities.computeIfAbsent(e.getKey().activity, k -> new long[1])[0] +=
+          e.getValue()[0];
+    }
+
+    List<Entry<String, long[]>> sorted = new ArrayList<>(activities.entrySet());
+    sorted.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+
+    try (CsvWriter file = new CsvWriter(folder, "activities.csv",
+        "Activity", "Samples")) {
+      for (Entry<String, long[]> e : sorted) {
+        file.write(e.getKey(), e.getValue()[0]);
+      }
+    }
+  }
+
+  private static final class StackKey {
+    private final String     activity;
+    private final RootNode[] frames;
+    private final int        hash;
+
+    StackKey(final String activity, final RootNode[] frames) {
+      this.activity = activity;
+      this.frames = frames;
+      this.hash = 31 * activity.hashCode() + Arrays.hashCode(frames);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (!(o instanceof StackKey)) {
+        return false;
+      }
+      StackKey other = (StackKey) o;
+      return activity.equals(other.activity) && Arrays.equals(frames, other.frames);
+    }
+  }
+}
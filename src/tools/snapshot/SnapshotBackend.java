@@ -1,9 +1,15 @@
 package tools.snapshot;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.graalvm.collections.EconomicMap;
@@ -20,6 +26,8 @@ import som.vmobjects.SInvokable;
 import som.vmobjects.SSymbol;
 import tools.concurrency.TracingActors.ReplayActor;
 import tools.concurrency.TracingBackend;
+import tools.snapshot.SnapshotFile.Segment;
+import tools.snapshot.deserialization.DeserializationBuffer;
 
 
 public class SnapshotBackend {
@@ -32,6 +40,9 @@ public class SnapshotBackend {
 
   private static final ConcurrentLinkedQueue<SnapshotBuffer> buffers;
 
+  /** The last version that was written, guarded by the class. */
+  private static int lastWrittenVersion = SnapshotFile.NO_BASE;
+
   static {
     if (VmSettings.TRACK_SNAPSHOT_ENTITIES) {
       classDictionary = EconomicMap.create();
@@ -109,13 +120,19 @@ public class SnapshotBackend {
     }
   }
 
+  /**
+   * Hand in the buffer of a snapshot version. Empty buffers are dropped right
+   * away, the others are kept until their version is written.
+   */
   public static void registerSnapshotBuffer(final SnapshotBuffer sb) {
     if (VmSettings.TEST_SERIALIZE_ALL) {
       return;
     }
 
     assert sb != null;
-    buffers.add(sb);
+    if (sb.position() > 0 || sb.getNumberOfForwardings() > 0) {
+      buffers.add(sb);
+    }
   }
 
   public static StructuralProbe<SSymbol, MixinDefinition, SInvokable, SlotDefinition, Variable> getProbe() {
@@ -123,21 +140,135 @@ public class SnapshotBackend {
     return probe;
   }
 
+  /**
+   * Write all remaining snapshot versions, at the end of the execution.
+   */
   public static void writeSnapshot() {
-    if (buffers.size() == 0) {
-      return;
+    writeSnapshots(Integer.MAX_VALUE, true);
+  }
+
+  /**
+   * Write the snapshot versions up to the given one, which is complete. This
+   * is done by the trace worker of the version, when it is retired.
+   */
+  public static void writeCompletedSnapshots(final int completedVersion) {
+    writeSnapshots(completedVersion, false);
+  }
+
+  /**
+   * Write each snapshot version to its own file, and drop the buffers. With
+   * incremental snapshots, the file of a version is a delta against the
+   * previously written one.
+   *
+   * <p>
+   * A thread only hands in its buffer when it gets active in a later
+   * version. Buffers of versions that were already written are added to the
+   * file of the next version, like trace buffers that arrive late.
+   */
+  private static synchronized void writeSnapshots(final int completedVersion,
+      final boolean isLast) {
+    TreeMap<Integer, ArrayList<SnapshotBuffer>> versions = new TreeMap<>();
+    ArrayList<SnapshotBuffer> late = new ArrayList<>();
+    ArrayList<SnapshotBuffer> pending = new ArrayList<>();
+
+    SnapshotBuffer sb;
+    while ((sb = buffers.poll()) != null) {
+      int version = sb.getSnapshotVersion();
+      if (version <= lastWrittenVersion) {
+        late.add(sb);
+      } else if (version <= completedVersion) {
+        versions.computeIfAbsent(version, v -> new ArrayList<>()).add(sb);
+      } else {
+        pending.add(sb);
+      }
     }
 
-    String name = VmSettings.TRACE_FILE + snapshotVersion;
-    File f = new File(name + ".snap");
-    try (FileOutputStream fos = new FileOutputStream(f)) {
-      while (!buffers.isEmpty()) {
-        SnapshotBuffer sb = buffers.poll();
-        fos.getChannel().write(ByteBuffer.wrap(sb.getRawBuffer(), 0, sb.position()));
-        fos.flush();
+    if (!late.isEmpty()) {
+      if (!versions.isEmpty()) {
+        versions.firstEntry().getValue().addAll(late);
+      } else if (isLast) {
+        versions.put(lastWrittenVersion + 1, late);
+      } else {
+        pending.addAll(late);
       }
-    } catch (IOException e1) {
-      throw new RuntimeException(e1);
     }
+    buffers.addAll(pending);
+
+    for (Entry<Integer, ArrayList<SnapshotBuffer>> e : versions.entrySet()) {
+      writeVersion(e.getKey(), e.getValue());
+    }
+  }
+
+  private static void writeVersion(final int version,
+      final List<SnapshotBuffer> versionBuffers) {
+    ArrayList<Segment> segments = new ArrayList<>();
+    HashMap<Long, Long> forwardings = new HashMap<>();
+
+    for (SnapshotBuffer sb : versionBuffers) {
+      segments.add(new Segment(sb.getOwner().getThreadId(), sb.getSnapshotVersion(),
+          ByteBuffer.wrap(sb.getRawBuffer(), 0, sb.position())));
+
+      long[] fw = sb.getForwardings();
+      for (int i = 0; i < sb.getNumberOfForwardings(); i++) {
+        forwardings.put(fw[2 * i], fw[2 * i + 1]);
+      }
+    }
+
+    int baseVersion =
+        VmSettings.SNAPSHOTS_INCREMENTAL ? lastWrittenVersion : SnapshotFile.NO_BASE;
+    String name = VmSettings.TRACE_FILE + version;
+    try {
+      new SnapshotFile(version, baseVersion, segments, forwardings).write(
+          new File(name + ".snap"));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    lastWrittenVersion = version;
+  }
+
+  /**
+   * Deserialize the objects of all actors in parallel. Each actor reads the
+   * shared, memory-mapped segments of the snapshot through its own buffer.
+   * Far references between actors are resolved after all actors are done.
+   *
+   * @param snapshot a full snapshot, or a compacted chain of incremental ones
+   * @param roots the references of the objects to restore, by actor id
+   * @return the restored objects, by actor id
+   */
+  public static Map<Integer, Object[]> restoreSnapshot(final SnapshotFile snapshot,
+      final Map<Integer, long[]> roots) {
+    assert VmSettings.REPLAY;
+    Map<Integer, DeserializationBuffer> buffers = new HashMap<>();
+    for (int id : roots.keySet()) {
+      DeserializationBuffer db = new DeserializationBuffer(snapshot);
+      ReplayActor.getActorWithId(id).setDeserializationBuffer(db);
+      buffers.put(id, db);
+    }
+    return restore(buffers, roots);
+  }
+
+  /**
+   * @param buffers the deserialization buffer of each actor, by actor id
+   * @param roots the references of the objects to restore, by actor id
+   * @return the restored objects, by actor id
+   */
+  static Map<Integer, Object[]> restore(final Map<Integer, DeserializationBuffer> buffers,
+      final Map<Integer, long[]> roots) {
+    Map<Integer, Object[]> restored = new ConcurrentHashMap<>();
+    buffers.entrySet().parallelStream().forEach(e -> {
+      long[] refs = roots.get(e.getKey());
+      Object[] objects = new Object[refs.length];
+      for (int i = 0; i < refs.length; i++) {
+        objects[i] = e.getValue().deserializeIfNecessary(refs[i]);
+      }
+      restored.put(e.getKey(), objects);
+    });
+
+    // resolving a far reference can deserialize objects that refer to yet
+    // other actors, so repeat until no actor has pending references
+    while (buffers.values().stream().anyMatch(db -> db.hasExternalFixups())) {
+      buffers.values().parallelStream().forEach(db -> db.resolveExternalFixups());
+    }
+    return restored;
   }
 }
@@ -1,9 +1,14 @@
 package tools.snapshot;
 
+import java.util.Arrays;
+
 import som.interpreter.actors.Actor.ActorProcessingThread;
 import som.interpreter.objectstorage.ClassFactory;
 import som.vm.VmSettings;
 import som.vm.constants.Classes;
+import som.vmobjects.SArray.SMutableArray;
+import som.vmobjects.SHashMap;
+import som.vmobjects.SObject.SMutableObject;
 import tools.concurrency.TraceBuffer;
 import tools.concurrency.TracingActors.TracingActor;
 import tools.replay.nodes.TraceActorContextNode;
@@ -16,18 +21,37 @@ public class SnapshotBuffer extends TraceBuffer {
   public static final int CLASS_ID_SIZE = 2;
   public static final int MAX_FIELD_CNT = Byte.MAX_VALUE;
   public static final int THREAD_SHIFT  = Long.SIZE - Short.SIZE;
+  public static final int VERSION_SHIFT = THREAD_SHIFT - Byte.SIZE;
+
+  public static final long OFFSET_MASK = (1L << VERSION_SHIFT) - 1;
 
   protected final byte                  snapshotVersion;
   protected final ActorProcessingThread owner;
 
+  /**
+   * Pairs of old and new references of objects that were serialized again in
+   * an incremental snapshot.
+   */
+  private long[] forwardings;
+  private int    numForwardings;
+
   public SnapshotBuffer(final ActorProcessingThread owner) {
     super(VmSettings.BUFFER_SIZE * 25);
     this.owner = owner;
     this.snapshotVersion = owner.getSnapshotId();
   }
 
+  /**
+   * Get the record of the current actor. If the record belongs to a previous
+   * snapshot version, this starts the new snapshot of the record, which may
+   * serialize objects into this buffer.
+   */
   public SnapshotRecord getRecord() {
-    return ((TracingActor) owner.getCurrentActor()).getSnapshotRecord();
+    SnapshotRecord record = ((TracingActor) owner.getCurrentActor()).getSnapshotRecord();
+    if (record.getSnapshotVersion() != snapshotVersion) {
+      record.startSnapshot(this);
+    }
+    return record;
   }
 
   public ActorProcessingThread getOwner() {
@@ -35,14 +59,27 @@ public class SnapshotBuffer extends TraceBuffer {
   }
 
   public final long calculateReference(final long start) {
-    return (owner.getThreadId() << THREAD_SHIFT) | start;
+    return (owner.getThreadId() << THREAD_SHIFT)
+        | ((snapshotVersion & 0xFFL) << VERSION_SHIFT) | start;
+  }
+
+  /**
+   * @return the key of the segment an object is stored in, i.e., the upper
+   *         bits of its reference
+   */
+  public static long getSegmentKey(final long threadId, final int version) {
+    return (threadId << Byte.SIZE) | (version & 0xFFL);
   }
 
   public int addObject(final Object o, final ClassFactory classFact, final int payload) {
-    assert !getRecord().containsObject(o) : "Object serialized multiple times";
+    // getting the record can serialize the modified objects of an incremental
+    // snapshot into this buffer, so the position is only read afterwards
+    SnapshotRecord record = getRecord();
+    assert !record.containsObject(o) : "Object serialized multiple times";
 
     int oldPos = this.position;
-    getRecord().addObjectEntry(o, calculateReference(oldPos));
+    record.addObjectEntry(o, calculateReference(oldPos));
+    markUnmodified(o, record);
 
     this.putShortAt(this.position,
         classFact.getIdentifier().getSymbolId());
@@ -53,10 +90,12 @@ public class SnapshotBuffer extends TraceBuffer {
   public int addObjectWithFields(final Object o, final ClassFactory classFact,
       final int fieldCnt) {
     assert fieldCnt < MAX_FIELD_CNT;
-    assert !getRecord().containsObject(o) : "Object serialized multiple times";
+    SnapshotRecord record = getRecord();
+    assert !record.containsObject(o) : "Object serialized multiple times";
 
     int oldPos = this.position;
-    getRecord().addObjectEntry(o, calculateReference(oldPos));
+    record.addObjectEntry(o, calculateReference(oldPos));
+    markUnmodified(o, record);
 
     this.putShortAt(this.position,
         classFact.getIdentifier().getSymbolId());
@@ -67,8 +106,9 @@ public class SnapshotBuffer extends TraceBuffer {
   public int addMessage(final int payload) {
     // we dont put messages into our lookup table as there should be only one reference to it
     // (either from a promise or a mailbox)
+    SnapshotRecord record = getRecord();
     int oldPos = this.position;
-    getRecord().addMessageEntry(calculateReference(oldPos));
+    record.addMessageEntry(calculateReference(oldPos));
 
     this.putShortAt(this.position,
         Classes.messageClass.getFactory().getClassName().getSymbolId());
@@ -76,6 +116,44 @@ public class SnapshotBuffer extends TraceBuffer {
     return oldPos + CLASS_ID_SIZE;
   }
 
+  /** Start tracking writes to the object, which is now part of the snapshot. */
+  private static void markUnmodified(final Object o, final SnapshotRecord record) {
+    if (VmSettings.SNAPSHOTS_INCREMENTAL) {
+      if (o instanceof SMutableObject) {
+        ((SMutableObject) o).markUnmodified(record);
+      } else if (o instanceof SMutableArray) {
+        ((SMutableArray) o).markUnmodified(record);
+      } else if (o instanceof SHashMap) {
+        ((SHashMap) o).markUnmodified(record);
+      }
+    }
+  }
+
+  /**
+   * Record that an object of a previous snapshot was serialized again, so
+   * that references to its old copy can be redirected to the new one.
+   */
+  public void addForwarding(final long oldReference, final long newReference) {
+    assert VmSettings.SNAPSHOTS_INCREMENTAL;
+    if (forwardings == null) {
+      forwardings = new long[32];
+    } else if (numForwardings * 2 == forwardings.length) {
+      forwardings = Arrays.copyOf(forwardings, forwardings.length * 2);
+    }
+    forwardings[numForwardings * 2] = oldReference;
+    forwardings[numForwardings * 2 + 1] = newReference;
+    numForwardings += 1;
+  }
+
+  public int getNumberOfForwardings() {
+    return numForwardings;
+  }
+
+  /** @return pairs of old and new references */
+  public long[] getForwardings() {
+    return forwardings;
+  }
+
   @Override
   protected void swapBufferWhenNotEnoughSpace(final TraceActorContextNode tracer) {
     throw new UnsupportedOperationException("TODO find a solution for snapshot size");
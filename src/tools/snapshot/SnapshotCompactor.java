@@ -0,0 +1,96 @@
+package tools.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import tools.snapshot.SnapshotFile.Segment;
+
+
+/**
+ * Merges a chain of incremental snapshots offline into a single snapshot
+ * that does not depend on any earlier version.
+ *
+ * <p>
+ * The segments of all snapshots in the chain are kept, because objects that
+ * were not modified are still referenced in the segments of the version in
+ * which they were serialized. The forwarding tables are merged so that each
+ * old reference points directly to the latest copy of the object, i.e., a
+ * reference is resolved with a single lookup when loading the snapshot.
+ *
+ * <p>
+ * Usage: {@code SnapshotCompactor output.snap base.snap delta1.snap ...}
+ */
+public final class SnapshotCompactor {
+
+  private SnapshotCompactor() {}
+
+  /**
+   * @param chain the snapshots, starting with the one that has no base,
+   *          followed by the deltas in order of their versions
+   */
+  public static SnapshotFile compact(final List<SnapshotFile> chain) {
+    if (chain.isEmpty()) {
+      throw new IllegalArgumentException("The chain of snapshots is empty");
+    }
+
+    LinkedHashMap<Long, Segment> segments = new LinkedHashMap<>();
+    Map<Long, Long> forwardings = new HashMap<>();
+
+    SnapshotFile previous = null;
+    for (SnapshotFile s : chain) {
+      if (previous == null ? s.isIncremental() : s.getBaseVersion() != previous.getVersion()) {
+        throw new IllegalArgumentException("Snapshot " + s.getVersion()
+            + " is not a delta against " + (previous == null ? "nothing"
+                : "snapshot " + previous.getVersion()));
+      }
+
+      for (Segment seg : s.getSegments()) {
+        segments.put(segmentKey(seg), seg);
+      }
+      addForwardings(forwardings, s.getForwardings());
+      previous = s;
+    }
+
+    return new SnapshotFile(previous.getVersion(), SnapshotFile.NO_BASE,
+        new ArrayList<>(segments.values()), forwardings);
+  }
+
+  /**
+   * Add the forwardings of a newer snapshot, and redirect the existing ones
+   * to the objects' latest copies.
+   */
+  private static void addForwardings(final Map<Long, Long> merged,
+      final Map<Long, Long> newer) {
+    for (Entry<Long, Long> e : merged.entrySet()) {
+      Long target = newer.get(e.getValue());
+      if (target != null) {
+        e.setValue(target);
+      }
+    }
+    merged.putAll(newer);
+  }
+
+  private static long segmentKey(final Segment seg) {
+    return (seg.threadId << Integer.SIZE) | (seg.version & 0xFFFFFFFFL);
+  }
+
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println(
+          "Usage: SnapshotCompactor output.snap base.snap [delta.snap ...]");
+      System.exit(1);
+    }
+
+    List<SnapshotFile> chain = new ArrayList<>();
+    for (int i = 1; i < args.length; i++) {
+      chain.add(SnapshotFile.read(new File(args[i])));
+    }
+    compact(chain).write(new File(args[0]));
+  }
+}
@@ -0,0 +1,232 @@
+package tools.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.IntStream;
+
+
+/**
+ * A snapshot as it is stored on disk.
+ *
+ * <p>
+ * The layout of the file is as follows, with all numbers in little endian,
+ * the same byte order as the snapshot buffers:
+ *
+ * <pre>
+ * header:      MAGIC, version, base version,
+ *              number of segments, number of forwardings      (int, int, int, int, int)
+ * segments:    thread id, snapshot version, length, bytes      (long, int, int, byte[])
+ * forwardings: old reference, new reference                    (long, long)
+ * </pre>
+ *
+ * <p>
+ * A segment is the content of the {@link SnapshotBuffer} of one thread for
+ * one snapshot version. References to objects encode the thread id, the
+ * snapshot version, and the offset in the segment.
+ *
+ * <p>
+ * An incremental snapshot only contains the objects that were modified or
+ * created since its base version. All other objects are referenced in the
+ * segments of earlier versions. For objects that were serialized again, the
+ * forwarding table maps their old reference to the new one. Thus, loading an
+ * incremental snapshot needs the chain of all its base snapshots, unless the
+ * chain was merged with {@link SnapshotCompactor}.
+ *
+ * <p>
+ * Since the sizes of all segments are known up front, each segment is
+ * written in parallel into its own region of the file. When reading, the
+ * segments are mapped into memory instead of being copied onto the heap.
+ */
+public final class SnapshotFile {
+  private static final int MAGIC = 0x534E4150; // "PANS" in little endian
+
+  public static final int NO_BASE = -1;
+
+  private static final int HEADER_SIZE         = 5 * Integer.BYTES;
+  private static final int SEGMENT_HEADER_SIZE = Long.BYTES + 2 * Integer.BYTES;
+  private static final int FORWARDING_SIZE     = 2 * Long.BYTES;
+
+  public static final class Segment {
+    public final long       threadId;
+    public final int        version;
+    public final ByteBuffer data;
+    public final int        length;
+
+    /** @param data the content of the segment, between position and limit */
+    public Segment(final long threadId, final int version, final ByteBuffer data) {
+      this.threadId = threadId;
+      this.version = version;
+      this.data = data.slice();
+      this.length = data.remaining();
+    }
+  }
+
+  private final int             version;
+  private final int             baseVersion;
+  private final List<Segment>   segments;
+  private final Map<Long, Long> forwardings;
+
+  public SnapshotFile(final int version, final int baseVersion, final List<Segment> segments,
+      final Map<Long, Long> forwardings) {
+    this.version = version;
+    this.baseVersion = baseVersion;
+    this.segments = segments;
+    this.forwardings = forwardings;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  /** @return the version this snapshot is a delta against, or {@link #NO_BASE} */
+  public int getBaseVersion() {
+    return baseVersion;
+  }
+
+  public boolean isIncremental() {
+    return baseVersion != NO_BASE;
+  }
+
+  public List<Segment> getSegments() {
+    return segments;
+  }
+
+  public Map<Long, Long> getForwardings() {
+    return forwardings;
+  }
+
+  public void write(final File f) throws IOException {
+    long[] offsets = new long[segments.size()];
+    long offset = HEADER_SIZE;
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = offset;
+      offset += SEGMENT_HEADER_SIZE + segments.get(i).length;
+    }
+
+    try (RandomAccessFile file = new RandomAccessFile(f, "rw")) {
+      file.setLength(0);
+      FileChannel channel = file.getChannel();
+
+      ByteBuffer header = allocate(HEADER_SIZE);
+      header.putInt(MAGIC);
+      header.putInt(version);
+      header.putInt(baseVersion);
+      header.putInt(segments.size());
+      header.putInt(forwardings.size());
+      header.flip();
+      writeFully(channel, header, 0);
+
+      try {
+        IntStream.range(0, offsets.length).parallel().forEach(i -> {
+          try {
+            writeSegment(channel, segments.get(i), offsets[i]);
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        });
+      } catch (RuntimeException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw e;
+      }
+
+      ByteBuffer table = allocate(forwardings.size() * FORWARDING_SIZE);
+      for (Entry<Long, Long> e : forwardings.entrySet()) {
+        table.putLong(e.getKey());
+        table.putLong(e.getValue());
+      }
+      table.flip();
+      writeFully(channel, table, offset);
+    }
+  }
+
+  private static void writeSegment(final FileChannel channel, final Segment s,
+      final long offset) throws IOException {
+    ByteBuffer segmentHeader = allocate(SEGMENT_HEADER_SIZE);
+    segmentHeader.putLong(s.threadId);
+    segmentHeader.putInt(s.version);
+    segmentHeader.putInt(s.length);
+    segmentHeader.flip();
+    writeFully(channel, segmentHeader, offset);
+    writeFully(channel, s.data.duplicate(), offset + SEGMENT_HEADER_SIZE);
+  }
+
+  public static SnapshotFile read(final File f) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(f, "r")) {
+      FileChannel channel = file.getChannel();
+
+      ByteBuffer header = readFully(channel, HEADER_SIZE, 0);
+      if (header.getInt() != MAGIC) {
+        throw new IOException("Not a snapshot file: " + f);
+      }
+      int version = header.getInt();
+      int baseVersion = header.getInt();
+      int numSegments = header.getInt();
+      int numForwardings = header.getInt();
+
+      // the mappings stay valid after the channel is closed
+      long offset = HEADER_SIZE;
+      List<Segment> segments = new ArrayList<>(numSegments);
+      for (int i = 0; i < numSegments; i++) {
+        ByteBuffer segmentHeader = readFully(channel, SEGMENT_HEADER_SIZE, offset);
+        long threadId = segmentHeader.getLong();
+        int segmentVersion = segmentHeader.getInt();
+        int length = segmentHeader.getInt();
+        offset += SEGMENT_HEADER_SIZE;
+
+        if (offset + length > channel.size()) {
+          throw new IOException("Unexpected end of snapshot file");
+        }
+        ByteBuffer data = channel.map(MapMode.READ_ONLY, offset, length);
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        segments.add(new Segment(threadId, segmentVersion, data));
+        offset += length;
+      }
+
+      Map<Long, Long> forwardings = new HashMap<>();
+      ByteBuffer table = readFully(channel, numForwardings * FORWARDING_SIZE, offset);
+      for (int i = 0; i < numForwardings; i++) {
+        forwardings.put(table.getLong(), table.getLong());
+      }
+
+      return new SnapshotFile(version, baseVersion, segments, forwardings);
+    }
+  }
+
+  private static ByteBuffer allocate(final int size) {
+    ByteBuffer bb = ByteBuffer.allocate(size);
+    bb.order(ByteOrder.LITTLE_ENDIAN);
+    return bb;
+  }
+
+  private static void writeFully(final FileChannel channel, final ByteBuffer bb,
+      final long offset) throws IOException {
+    long position = offset;
+    while (bb.hasRemaining()) {
+      position += channel.write(bb, position);
+    }
+  }
+
+  private static ByteBuffer readFully(final FileChannel channel, final int size,
+      final long offset) throws IOException {
+    ByteBuffer bb = allocate(size);
+    while (bb.hasRemaining()) {
+      if (channel.read(bb, offset + bb.position()) < 0) {
+        throw new IOException("Unexpected end of snapshot file");
+      }
+    }
+    bb.flip();
+    return bb;
+  }
+}
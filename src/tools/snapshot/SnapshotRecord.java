@@ -1,11 +1,15 @@
 package tools.snapshot;
 
+import java.util.ArrayList;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.graalvm.collections.EconomicMap;
 import org.graalvm.collections.EconomicSet;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
 import som.interpreter.Types;
+import som.vm.VmSettings;
 
 
 public class SnapshotRecord {
@@ -27,10 +31,88 @@ public class SnapshotRecord {
    */
   private final ConcurrentLinkedQueue<FarRefTodo> externalReferences;
 
+  /**
+   * For incremental snapshots, the objects that were modified since they
+   * were serialized. Objects can be modified by any thread, e.g., by a
+   * fork/join task, so the list is guarded by this record.
+   */
+  private ArrayList<Object> modifiedObjects;
+
+  /** The snapshot version the entries belong to. */
+  private byte snapshotVersion;
+
   public SnapshotRecord() {
     this.entries = EconomicMap.create();
     this.messageOffsets = EconomicSet.create();
     this.externalReferences = new ConcurrentLinkedQueue<>();
+    this.snapshotVersion = SnapshotBackend.getSnapshotVersion();
+    if (VmSettings.SNAPSHOTS_INCREMENTAL) {
+      this.modifiedObjects = new ArrayList<>();
+    }
+  }
+
+  public byte getSnapshotVersion() {
+    return snapshotVersion;
+  }
+
+  /**
+   * Prepare the record for a new snapshot version.
+   *
+   * <p>
+   * For a full snapshot, all objects are serialized again, and the entries
+   * of the previous version are dropped. For an incremental snapshot, the
+   * entries of unmodified objects remain valid and point into the previous
+   * snapshots. The modified objects are serialized again right away, because
+   * they might only be reachable through unmodified objects, which are not
+   * traversed anymore.
+   */
+  public void startSnapshot(final SnapshotBuffer sb) {
+    snapshotVersion = sb.snapshotVersion;
+    messageOffsets.clear();
+
+    if (!VmSettings.SNAPSHOTS_INCREMENTAL) {
+      synchronized (entries) {
+        entries.clear();
+      }
+      return;
+    }
+
+    ArrayList<Object> modified;
+    synchronized (this) {
+      modified = modifiedObjects;
+      modifiedObjects = new ArrayList<>();
+    }
+
+    long[] oldReferences = new long[modified.size()];
+    synchronized (entries) {
+      for (int i = 0; i < oldReferences.length; i++) {
+        Long old = entries.removeKey(modified.get(i));
+        oldReferences[i] = old == null ? -1 : old;
+      }
+    }
+
+    for (int i = 0; i < oldReferences.length; i++) {
+      Object o = modified.get(i);
+      if (containsObject(o)) {
+        // concurrent writes can record an object more than once
+        continue;
+      }
+      Types.getClassOf(o).serialize(o, sb);
+      if (oldReferences[i] != -1) {
+        sb.addForwarding(oldReferences[i], getObjectPointer(o));
+      }
+    }
+  }
+
+  /**
+   * Write barrier for incremental snapshots, called on the first write to an
+   * object after it was serialized with this record. The write may come from
+   * any thread, not only from the actor owning the record.
+   */
+  @TruffleBoundary
+  public synchronized void objectModified(final Object o) {
+    assert VmSettings.SNAPSHOTS_INCREMENTAL;
+    modifiedObjects.add(o);
   }
 
   public boolean containsObject(final Object o) {
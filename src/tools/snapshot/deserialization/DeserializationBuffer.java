@@ -2,25 +2,88 @@ package tools.snapshot.deserialization;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.graalvm.collections.EconomicMap;
 
 import som.interpreter.actors.Actor;
 import som.vmobjects.SClass;
 import tools.snapshot.SnapshotBackend;
+import tools.snapshot.SnapshotBuffer;
+import tools.snapshot.SnapshotFile;
+import tools.snapshot.SnapshotFile.Segment;
 import tools.snapshot.deserialization.FixupInformation.FixupList;
 
 
 public class DeserializationBuffer {
 
-  private final ByteBuffer                wrapped;
+  private ByteBuffer                      wrapped;
   private final EconomicMap<Long, Object> deserialized;
   private long                            lastRef;
 
+  /**
+   * The segments of a snapshot file, by thread id and snapshot version, or
+   * null, if the buffer reads a single segment.
+   */
+  private final EconomicMap<Long, ByteBuffer> segments;
+  private final Map<Long, Long>               forwardings;
+
+  /**
+   * References from other actors to objects of this buffer, which are
+   * resolved once all actors are deserialized.
+   */
+  private final ConcurrentLinkedQueue<ExternalFixup> externalFixups;
+
   public DeserializationBuffer(final byte[] backing) {
     wrapped = ByteBuffer.wrap(backing).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
     wrapped.rewind();
     deserialized = EconomicMap.create();
+    segments = null;
+    forwardings = null;
+    externalFixups = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Read the memory-mapped segments of a full or compacted snapshot.
+   *
+   * <p>
+   * The segments are shared read-only, but each buffer has its own
+   * positions. Thus, the objects of different actors can be deserialized in
+   * parallel, each actor with its own buffer.
+   */
+  public DeserializationBuffer(final SnapshotFile snapshot) {
+    assert !snapshot.isIncremental() : "Incremental snapshots need to be compacted first";
+    segments = EconomicMap.create();
+    for (Segment s : snapshot.getSegments()) {
+      ByteBuffer bb = s.data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      segments.put(SnapshotBuffer.getSegmentKey(s.threadId, s.version), bb);
+    }
+    forwardings = snapshot.getForwardings();
+    deserialized = EconomicMap.create();
+    externalFixups = new ConcurrentLinkedQueue<>();
+  }
+
+  /** @return the reference to the latest copy of an object */
+  private long resolve(final long reference) {
+    if (forwardings != null) {
+      Long forwarded = forwardings.get(reference);
+      if (forwarded != null) {
+        return forwarded;
+      }
+    }
+    return reference;
+  }
+
+  /** Move to the referenced object, which may be in a different segment. */
+  private void seek(final long reference) {
+    if (segments != null) {
+      wrapped = segments.get(reference >>> SnapshotBuffer.VERSION_SHIFT);
+      assert wrapped != null : "Reference to a segment that is not in the snapshot";
+      position((int) (reference & SnapshotBuffer.OFFSET_MASK));
+    } else {
+      position((int) reference);
+    }
   }
 
   public byte get() {
@@ -47,36 +110,46 @@ public class DeserializationBuffer {
     return wrapped.getDouble();
   }
 
-  public Object deserialize(final long current) {
+  public Object deserialize(final long reference) {
+    long current = resolve(reference);
     assert !deserialized.containsKey(current);
-    this.position((int) current);
+    seek(current);
 
     // to avoid endless loop, when null is read we replace it with a linked list containing
     // fixup information
     deserialized.put(current, null);
-    short cId = getShort();
-    Object o = SnapshotBackend.lookupClass(cId).getSerializer().deserialize(this);
+    Object o = deserializeObject(getShort());
 
     fixUpIfNecessary(current, o);
     deserialized.put(current, o);
     return o;
   }
 
+  /** @return the object, which is only deserialized if it was not yet */
+  public Object deserializeIfNecessary(final long reference) {
+    Object o = deserialized.get(resolve(reference));
+    if (o == null) {
+      o = deserialize(reference);
+    }
+    assert !needsFixup(o);
+    return o;
+  }
+
   public Object getReference() {
-    long reference = getLong();
+    long reference = resolve(getLong());
     lastRef = reference;
     if (!deserialized.containsKey(reference)) {
+      ByteBuffer currentSegment = wrapped;
       int current = position();
 
       deserialized.put(reference, null);
 
       // prepare deserialize referenced object
-      position((int) reference);
-      short classId = getShort();
-      SClass clazz = SnapshotBackend.lookupClass(classId);
-      Object o = clazz.getSerializer().deserialize(this);
+      seek(reference);
+      Object o = deserializeObject(getShort());
 
       // continue with current object
+      wrapped = currentSegment;
       position(current);
       fixUpIfNecessary(reference, o);
       deserialized.put(reference, o);
@@ -86,6 +159,12 @@ public class DeserializationBuffer {
     }
   }
 
+  /** Deserialize the object at the current position, after its class id. */
+  protected Object deserializeObject(final short classId) {
+    SClass clazz = SnapshotBackend.lookupClass(classId);
+    return clazz.getSerializer().deserialize(this);
+  }
+
   public static boolean needsFixup(final Object o) {
     return o == null || o instanceof FixupList;
   }
@@ -99,6 +178,40 @@ public class DeserializationBuffer {
     }
   }
 
+  /**
+   * Register a reference from another actor to an object of this buffer. The
+   * other actor may be deserialized concurrently, so the reference is only
+   * resolved by {@link #resolveExternalFixups()}.
+   */
+  public void installExternalFixup(final long reference, final FixupInformation fi) {
+    externalFixups.add(new ExternalFixup(reference, fi));
+  }
+
+  /**
+   * Resolve the references from other actors, after all actors were
+   * deserialized. Needs to be called by the thread that uses this buffer.
+   */
+  public void resolveExternalFixups() {
+    ExternalFixup f;
+    while ((f = externalFixups.poll()) != null) {
+      f.fixup.fixUp(deserializeIfNecessary(f.reference));
+    }
+  }
+
+  public boolean hasExternalFixups() {
+    return !externalFixups.isEmpty();
+  }
+
+  private static final class ExternalFixup {
+    final long             reference;
+    final FixupInformation fixup;
+
+    ExternalFixup(final long reference, final FixupInformation fixup) {
+      this.reference = reference;
+      this.fixup = fixup;
+    }
+  }
+
   private synchronized void fixUpIfNecessary(final long reference, final Object result) {
     Object ref = deserialized.get(reference);
     if (ref instanceof FixupList) {
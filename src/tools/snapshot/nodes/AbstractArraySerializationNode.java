@@ -20,6 +20,7 @@ public abstract class AbstractArraySerializationNode extends AbstractSerializati
   private static final byte TYPE_LONG    = 2;
   private static final byte TYPE_OBJECT  = 3;
   private static final byte TYPE_EMPTY   = 4;
+  private static final byte TYPE_BYTE    = 5;
 
   public AbstractArraySerializationNode(final ClassFactory classFact) {
     super(classFact);
@@ -73,6 +74,19 @@ public abstract class AbstractArraySerializationNode extends AbstractSerializati
     }
   }
 
+  @Specialization(guards = "sa.isByteType()")
+  protected void doByte(final SArray sa, final SnapshotBuffer sb) {
+    byte[] ba = sa.getByteStorage();
+    int base = sb.addObject(sa, classFact, ba.length + 5);
+    sb.putByteAt(base, TYPE_BYTE);
+    sb.putIntAt(base + 1, ba.length);
+    base += 5;
+    for (byte b : ba) {
+      sb.putByteAt(base, b);
+      base++;
+    }
+  }
+
   @Specialization(guards = "sa.isObjectType()")
   protected void doObject(final SArray sa, final SnapshotBuffer sb) {
     Object[] oa = sa.getObjectStorage();
@@ -142,6 +156,13 @@ public abstract class AbstractArraySerializationNode extends AbstractSerializati
         }
         backing = la;
         break;
+      case TYPE_BYTE:
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) {
+          bytes[i] = sb.get();
+        }
+        backing = bytes;
+        break;
       case TYPE_OBJECT:
         Object[] oa = new Object[len];
         for (int i = 0; i < len; i++) {
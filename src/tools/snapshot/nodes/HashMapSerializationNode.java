@@ -0,0 +1,123 @@
+package tools.snapshot.nodes;
+
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+import som.interpreter.Types;
+import som.interpreter.objectstorage.ClassFactory;
+import som.vmobjects.SHashMap;
+import som.vmobjects.SHashSet;
+import tools.snapshot.SnapshotBuffer;
+import tools.snapshot.SnapshotRecord;
+import tools.snapshot.deserialization.DeserializationBuffer;
+import tools.snapshot.deserialization.FixupInformation;
+
+
+/**
+ * Serializes the storage of dictionaries and sets. Only the entries are
+ * written, in insertion order. The hashes are recomputed after restoring,
+ * because they can depend on the identity of objects.
+ */
+@GenerateNodeFactory
+public abstract class HashMapSerializationNode extends AbstractSerializationNode {
+
+  private static final byte IDENTITY = 1;
+  private static final byte SET      = 2;
+
+  public HashMapSerializationNode(final ClassFactory classFact) {
+    super(classFact);
+  }
+
+  @Specialization
+  protected void doHashMap(final SHashMap map, final SnapshotBuffer sb) {
+    Object[] keys = map.getKeys();
+    Object[] values = map instanceof SHashSet ? null : map.getValues();
+    int entrySize = values == null ? Long.BYTES : 2 * Long.BYTES;
+
+    byte flags = 0;
+    if (map.isIdentity()) {
+      flags |= IDENTITY;
+    }
+    if (values == null) {
+      flags |= SET;
+    }
+
+    int base = sb.addObject(map, classFact, 5 + keys.length * entrySize);
+    sb.putByteAt(base, flags);
+    sb.putIntAt(base + 1, keys.length);
+    base += 5;
+
+    SnapshotRecord record = sb.getRecord();
+    for (int i = 0; i < keys.length; i++) {
+      Types.getClassOf(keys[i]).serialize(keys[i], sb);
+      sb.putLongAt(base, record.getObjectPointer(keys[i]));
+      base += Long.BYTES;
+
+      if (values != null) {
+        Types.getClassOf(values[i]).serialize(values[i], sb);
+        sb.putLongAt(base, record.getObjectPointer(values[i]));
+        base += Long.BYTES;
+      }
+    }
+  }
+
+  @Override
+  public Object deserialize(final DeserializationBuffer bb) {
+    byte flags = bb.get();
+    int count = bb.getInt();
+    boolean identity = (flags & IDENTITY) != 0;
+    boolean isSet = (flags & SET) != 0;
+
+    SHashMap map = isSet ? new SHashSet(count, identity) : new SHashMap(count, identity);
+    for (int i = 0; i < count; i++) {
+      Object key = bb.getReference();
+      if (DeserializationBuffer.needsFixup(key)) {
+        key = null;
+        bb.installFixup(new KeyFixup(map, i));
+      }
+
+      Object value = null;
+      if (!isSet) {
+        value = bb.getReference();
+        if (DeserializationBuffer.needsFixup(value)) {
+          value = null;
+          bb.installFixup(new ValueFixup(map, i));
+        }
+      }
+
+      int pos = map.restoreEntry(key, value);
+      assert pos == i;
+    }
+    return map;
+  }
+
+  private static final class KeyFixup extends FixupInformation {
+    private final SHashMap map;
+    private final int      pos;
+
+    KeyFixup(final SHashMap map, final int pos) {
+      this.map = map;
+      this.pos = pos;
+    }
+
+    @Override
+    public void fixUp(final Object o) {
+      map.restoreKey(pos, o);
+    }
+  }
+
+  private static final class ValueFixup extends FixupInformation {
+    private final SHashMap map;
+    private final int      pos;
+
+    ValueFixup(final SHashMap map, final int pos) {
+      this.map = map;
+      this.pos = pos;
+    }
+
+    @Override
+    public void fixUp(final Object o) {
+      map.restoreValue(pos, o);
+    }
+  }
+}
@@ -14,6 +14,7 @@ import som.interpreter.objectstorage.ClassFactory;
 import som.vm.constants.Classes;
 import som.vm.constants.Nil;
 import som.vmobjects.SClass;
+import som.vmobjects.SConcatString;
 import som.vmobjects.SInvokable;
 import som.vmobjects.SSymbol;
 import tools.concurrency.TracingActors.TracingActor;
@@ -33,8 +34,8 @@ public abstract class PrimitiveSerializationNodes {
 
     @Specialization
     public void serialize(final Object o, final SnapshotBuffer sb) {
-      assert o instanceof String;
-      String s = (String) o;
+      assert o instanceof String || o instanceof SConcatString;
+      String s = o.toString();
 
       byte[] data = s.getBytes(StandardCharsets.UTF_8);
       int base = sb.addObject(o, classFact, data.length + 4);
@@ -268,13 +269,20 @@ public abstract class PrimitiveSerializationNodes {
       TracingActor other = (TracingActor) SnapshotBackend.lookupActor(sb.getInt());
       DeserializationBuffer otherDB = other.getDeserializationBuffer();
 
-      Object value = otherDB.getReference();
-      SFarReference result = new SFarReference(other, value);
+      if (otherDB == null || otherDB == sb) {
+        Object value = sb.getReference();
+        SFarReference result = new SFarReference(other, value);
 
-      if (DeserializationBuffer.needsFixup(value)) {
-        otherDB.installFixup(new FarRefFixupInformation(result));
+        if (DeserializationBuffer.needsFixup(value)) {
+          sb.installFixup(new FarRefFixupInformation(result));
+        }
+        return result;
       }
 
+      // the other actor may be deserialized in parallel, it resolves the value once all
+      // actors are done
+      SFarReference result = new SFarReference(other, null);
+      otherDB.installExternalFixup(sb.getLong(), new FarRefFixupInformation(result));
       return result;
     }
 
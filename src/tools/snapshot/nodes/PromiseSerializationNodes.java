@@ -9,6 +9,7 @@ import som.interpreter.Types;
 import som.interpreter.actors.EventualMessage;
 import som.interpreter.actors.EventualMessage.PromiseMessage;
 import som.interpreter.actors.SPromise;
+import som.interpreter.actors.SPromise.PendingHandlers;
 import som.interpreter.actors.SPromise.Resolution;
 import som.interpreter.actors.SPromise.SResolver;
 import som.interpreter.objectstorage.ClassFactory;
@@ -32,7 +33,7 @@ public abstract class PromiseSerializationNodes {
       int base = sb.addObject(prom, classFact, 1 + Long.BYTES);
 
       // resolutionstate
-      switch (prom.getResolutionStateUnsync()) {
+      switch (prom.getResolutionState()) {
         case SUCCESSFUL:
           sb.putByteAt(base, (byte) 1);
           break;
@@ -52,106 +53,42 @@ public abstract class PromiseSerializationNodes {
 
     @Specialization(guards = "!prom.isCompleted()")
     public void doUnresolved(final SPromise prom, final SnapshotBuffer sb) {
-      int ncp;
-      int nwr;
-      int noe;
-      PromiseMessage whenRes;
-      PromiseMessage onError;
-      ArrayList<PromiseMessage> whenResExt;
-      ArrayList<PromiseMessage> onErrorExt;
-      SPromise chainedProm;
-      ArrayList<SPromise> chainedPromExt;
-      synchronized (prom) {
-        chainedProm = prom.getChainedPromiseUnsync();
-        chainedPromExt = prom.getChainedPromiseExtUnsync();
-        ncp = getObjectCnt(chainedProm, chainedPromExt);
-
-        whenRes = prom.getWhenResolvedUnsync();
-        whenResExt = prom.getWhenResolvedExtUnsync();
-        nwr = getObjectCnt(whenRes, whenResExt);
-
-        onError = prom.getOnError();
-        onErrorExt = prom.getOnErrorExtUnsync();
-        noe = getObjectCnt(onError, onErrorExt);
-      }
+      PendingHandlers handlers = prom.getPendingHandlersForSnapshot();
+      int nwr = handlers.whenResolved.size();
+      int noe = handlers.onError.size();
+      int ncp = handlers.chained.size();
+
       int base = sb.addObject(prom, classFact, 1 + 6 + Long.BYTES * (noe + nwr + ncp));
 
       // resolutionstate
       sb.putByteAt(base, (byte) 0);
       base++;
-      base = serializeWhenResolvedMsgs(base, nwr, whenRes, whenResExt, sb);
-      base = serializeOnErrorMsgs(base, noe, onError, onErrorExt, sb);
-      serializeChainedPromises(base, ncp, chainedProm, chainedPromExt, sb);
-    }
-
-    private int getObjectCnt(final Object obj, final ArrayList<? extends Object> extension) {
-      if (obj == null) {
-        return 0;
-      } else if (extension == null) {
-        return 1;
-      } else {
-        return extension.size() + 1;
-      }
-    }
-
-    private int serializeWhenResolvedMsgs(final int start, final int cnt,
-        final PromiseMessage whenRes, final ArrayList<PromiseMessage> whenResExt,
-        final SnapshotBuffer sb) {
-      int base = start;
-      sb.putShortAt(base, (short) cnt);
-      base += 2;
-      if (cnt > 0) {
-        sb.putLongAt(base, whenRes.serialize(sb));
-        base += Long.BYTES;
-
-        if (cnt > 1) {
-          for (int i = 0; i < whenResExt.size(); i++) {
-            sb.putLongAt(base + i * Long.BYTES, whenResExt.get(i).serialize(sb));
-          }
-          base += whenResExt.size() * Long.BYTES;
-        }
-      }
-      return base;
+      base = serializeMsgs(base, handlers.whenResolved, sb);
+      base = serializeMsgs(base, handlers.onError, sb);
+      serializeChainedPromises(base, handlers.chained, sb);
     }
 
-    private int serializeOnErrorMsgs(final int start, final int cnt,
-        final PromiseMessage onError, final ArrayList<PromiseMessage> onErrorExt,
+    private int serializeMsgs(final int start, final ArrayList<PromiseMessage> msgs,
         final SnapshotBuffer sb) {
       int base = start;
-      sb.putShortAt(base, (short) cnt);
+      sb.putShortAt(base, (short) msgs.size());
       base += 2;
-      if (cnt > 0) {
-        sb.putLongAt(base, onError.serialize(sb));
+      for (PromiseMessage msg : msgs) {
+        sb.putLongAt(base, msg.serialize(sb));
         base += Long.BYTES;
-
-        if (cnt > 1) {
-          for (int i = 0; i < onErrorExt.size(); i++) {
-            sb.putLongAt(base + i * Long.BYTES, onErrorExt.get(i).serialize(sb));
-          }
-          base += onErrorExt.size() * Long.BYTES;
-        }
       }
       return base;
     }
 
-    private void serializeChainedPromises(final int start, final int cnt,
-        final SPromise chainedProm,
-        final ArrayList<SPromise> chainedPromExt, final SnapshotBuffer sb) {
+    private void serializeChainedPromises(final int start,
+        final ArrayList<SPromise> chained, final SnapshotBuffer sb) {
       int base = start;
-      sb.putShortAt(base, (short) cnt);
+      sb.putShortAt(base, (short) chained.size());
       base += 2;
-      if (cnt > 0) {
-        SPromise.getPromiseClass().serialize(chainedProm, sb);
-        sb.putLongAt(base, sb.getRecord().getObjectPointer(chainedProm));
+      for (SPromise p : chained) {
+        SPromise.getPromiseClass().serialize(p, sb);
+        sb.putLongAt(base, sb.getRecord().getObjectPointer(p));
         base += Long.BYTES;
-
-        if (cnt > 1) {
-          for (int i = 0; i < chainedPromExt.size(); i++) {
-            SPromise p = chainedPromExt.get(i);
-            SPromise.getPromiseClass().serialize(p, sb);
-            sb.putLongAt(base + i * Long.BYTES, sb.getRecord().getObjectPointer(p));
-          }
-        }
       }
     }
 
@@ -189,13 +126,13 @@ public abstract class PromiseSerializationNodes {
       int whenResolvedCnt = sb.getShort();
       for (int i = 0; i < whenResolvedCnt; i++) {
         PromiseMessage pm = (PromiseMessage) sb.getReference();
-        promise.registerWhenResolvedUnsynced(pm);
+        promise.registerWhenResolved(pm);
       }
 
       int onErrorCnt = sb.getShort();
       for (int i = 0; i < onErrorCnt; i++) {
         PromiseMessage pm = (PromiseMessage) sb.getReference();
-        promise.registerOnErrorUnsynced(pm);
+        promise.registerOnError(pm);
       }
 
       int chainedPromCnt = sb.getShort();
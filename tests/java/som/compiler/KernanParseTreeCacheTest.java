@@ -0,0 +1,62 @@
+package som.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+
+
+public class KernanParseTreeCacheTest {
+
+  private static JsonObject tree(final String name) {
+    JsonObject module = new JsonObject();
+    module.addProperty("name", name);
+    JsonObject tree = new JsonObject();
+    tree.add("module", module);
+    return tree;
+  }
+
+  @Test
+  public void testHitForSameSource() throws IOException {
+    KernanParseTreeCache cache =
+        new KernanParseTreeCache(Files.createTempDirectory("kernan-cache"));
+
+    assertNull(cache.get("/a.grace", "print 1"));
+    cache.put("/a.grace", "print 1", tree("a"));
+    assertEquals(tree("a"), cache.get("/a.grace", "print 1"));
+  }
+
+  @Test
+  public void testMissForChangedSourceOrPath() throws IOException {
+    KernanParseTreeCache cache =
+        new KernanParseTreeCache(Files.createTempDirectory("kernan-cache"));
+    cache.put("/a.grace", "print 1", tree("a"));
+
+    assertNull(cache.get("/a.grace", "print 2"));
+    assertNull(cache.get("/b.grace", "print 1"));
+  }
+
+  @Test
+  public void testCorruptedEntryIsMiss() throws IOException {
+    Path dir = Files.createTempDirectory("kernan-cache");
+    KernanParseTreeCache cache = new KernanParseTreeCache(dir);
+    cache.put("/a.grace", "print 1", tree("a"));
+
+    try (Stream<Path> entries = Files.list(dir)) {
+      Path entry = entries.findFirst().get();
+      Files.write(entry, "{\"module\": ".getBytes(StandardCharsets.UTF_8));
+    }
+
+    assertNull(cache.get("/a.grace", "print 1"));
+    cache.put("/a.grace", "print 1", tree("a"));
+    assertEquals(tree("a"), cache.get("/a.grace", "print 1"));
+  }
+}
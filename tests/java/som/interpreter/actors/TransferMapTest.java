@@ -0,0 +1,113 @@
+package som.interpreter.actors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import som.vmobjects.SAbstractObject;
+import som.vmobjects.SClass;
+
+
+public class TransferMapTest {
+
+  private static final class Obj extends SAbstractObject {
+    private final int id;
+
+    Obj(final int id) {
+      this.id = id;
+    }
+
+    @Override
+    public SClass getSOMClass() {
+      return null;
+    }
+
+    @Override
+    public boolean isValue() {
+      return false;
+    }
+
+    /** Equal objects must still be distinct keys. */
+    @Override
+    public boolean equals(final Object o) {
+      return o instanceof Obj && ((Obj) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return id;
+    }
+  }
+
+  @Test
+  public void testIdentityKeys() {
+    TransferMap map = new TransferMap();
+    Obj a = new Obj(1);
+    Obj b = new Obj(1);
+    Obj copy = new Obj(2);
+
+    map.put(a, copy);
+    assertSame(copy, map.get(a));
+    assertNull(map.get(b));
+    assertFalse(map.containsKey(b));
+    assertNull(map.get(42L));
+  }
+
+  @Test
+  public void testGrowKeepsEntries() {
+    TransferMap map = new TransferMap();
+    Obj[] keys = new Obj[10_000];
+    Obj[] values = new Obj[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new Obj(i);
+      values[i] = new Obj(-i);
+      map.put(keys[i], values[i]);
+    }
+
+    for (int i = 0; i < keys.length; i++) {
+      assertSame(values[i], map.get(keys[i]));
+    }
+  }
+
+  @Test
+  public void testReleaseClearsAndReuses() {
+    TransferMap map = TransferMap.acquire();
+    Obj a = new Obj(1);
+    map.put(a, new Obj(2));
+    map.release();
+
+    TransferMap again = TransferMap.acquire();
+    assertSame(map, again);
+    assertNull(again.get(a));
+    again.release();
+  }
+
+  @Test
+  public void testNestedAcquireGetsOtherMap() {
+    TransferMap outer = TransferMap.acquire();
+    TransferMap inner = TransferMap.acquire();
+    assertNotSame(outer, inner);
+    inner.release();
+    outer.release();
+
+    assertSame(outer, TransferMap.acquire());
+    outer.release();
+  }
+
+  @Test
+  public void testPutTwiceReplaces() {
+    TransferMap map = new TransferMap();
+    Obj a = new Obj(1);
+    Obj second = new Obj(3);
+    map.put(a, new Obj(2));
+    map.put(a, second);
+    assertSame(second, map.get(a));
+    assertTrue(map.containsKey(a));
+    assertEquals(3, ((Obj) map.get(a)).id);
+  }
+}
@@ -0,0 +1,48 @@
+package som.vm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.Test;
+
+import som.tests.ParallelHelper;
+import som.vmobjects.SSymbol;
+
+
+public class SymbolsTest {
+
+  private static final int NUM_SYMBOLS = 10_000;
+
+  @Test
+  public void testSameStringGivesSameSymbol() {
+    String str = "testSameStringGivesSameSymbol:";
+    SSymbol sym = Symbols.symbolFor(str);
+
+    // a new String object, which is not interned
+    assertSame(sym, Symbols.symbolFor(new String(str)));
+    assertEquals(str, sym.getString());
+  }
+
+  @Test
+  public void testParallelInterningCreatesUniqueSymbols() throws InterruptedException {
+    AtomicReferenceArray<SSymbol> first = new AtomicReferenceArray<>(NUM_SYMBOLS);
+    long createdBefore = Symbols.getNumberOfCreatedSymbols();
+
+    ParallelHelper.executeNTimesInParallel((final int id) -> {
+      // threads start at different offsets to contend on different entries
+      for (int i = 0; i < NUM_SYMBOLS; i++) {
+        int idx = (i + id * 97) % NUM_SYMBOLS;
+        SSymbol sym = Symbols.symbolFor("parallelSymbol" + idx);
+
+        if (!first.compareAndSet(idx, null, sym)) {
+          assertSame(first.get(idx), sym);
+        }
+      }
+      return null;
+    }, 30);
+
+    assertEquals(NUM_SYMBOLS, Symbols.getNumberOfCreatedSymbols() - createdBefore);
+  }
+}
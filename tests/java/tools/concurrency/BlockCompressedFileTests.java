@@ -0,0 +1,107 @@
+package tools.concurrency;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+
+public class BlockCompressedFileTests {
+
+  private static byte[] createBlock(final int size, final int seed) {
+    byte[] block = new byte[size];
+    for (int i = 0; i < size; i++) {
+      block[i] = (byte) ((i * seed) % 7);
+    }
+    return block;
+  }
+
+  private static File writeBlocks(final byte[][] blocks) throws IOException {
+    File f = File.createTempFile("block-compressed", ".trace");
+    f.deleteOnExit();
+    try (BlockCompressedFile.Writer w = new BlockCompressedFile.Writer(f)) {
+      for (byte[] b : blocks) {
+        w.writeBlock(b, 0, b.length);
+      }
+    }
+    return f;
+  }
+
+  @Test
+  public void testReadBlocksByIndex() throws IOException {
+    byte[][] blocks = {createBlock(100, 3), createBlock(200_000, 5), createBlock(1, 11)};
+    File f = writeBlocks(blocks);
+
+    try (BlockCompressedFile.Reader r = new BlockCompressedFile.Reader(f)) {
+      assertEquals(blocks.length, r.getNumberOfBlocks());
+      for (int i = blocks.length - 1; i >= 0; i--) {
+        assertEquals(blocks[i].length, r.getBlockLength(i));
+        assertArrayEquals(blocks[i], r.readBlock(i).array());
+      }
+    }
+  }
+
+  @Test
+  public void testReadBlocksInParallel() throws IOException {
+    byte[][] blocks = new byte[32][];
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = createBlock(10_000 + i, i + 1);
+    }
+    File f = writeBlocks(blocks);
+
+    try (BlockCompressedFile.Reader r = new BlockCompressedFile.Reader(f)) {
+      IntStream.range(0, blocks.length).parallel().forEach(i -> {
+        try {
+          assertArrayEquals(blocks[i], r.readBlock(i).array());
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+    }
+  }
+
+  @Test
+  public void testStreamingRead() throws IOException {
+    byte[][] blocks = {createBlock(1000, 3), createBlock(3000, 5)};
+    File f = writeBlocks(blocks);
+
+    ByteBuffer all = ByteBuffer.allocate(4000);
+    ByteBuffer part = ByteBuffer.allocate(333);
+    try (BlockCompressedFile.Reader r = new BlockCompressedFile.Reader(f)) {
+      while (r.hasRemaining()) {
+        part.clear();
+        r.read(part);
+        part.flip();
+        all.put(part);
+      }
+    }
+
+    assertFalse(all.hasRemaining());
+    assertArrayEquals(blocks[0], Arrays.copyOfRange(all.array(), 0, 1000));
+    assertArrayEquals(blocks[1], Arrays.copyOfRange(all.array(), 1000, 4000));
+  }
+
+  @Test
+  public void testRecoverBlocksWithoutIndex() throws IOException {
+    byte[][] blocks = {createBlock(1000, 3), createBlock(3000, 5)};
+    File f = writeBlocks(blocks);
+
+    // drop the index and footer, and add an incomplete block header
+    try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+      raf.setLength(raf.length() - 2 * (Long.BYTES + Integer.BYTES) - 16 + 3);
+    }
+
+    try (BlockCompressedFile.Reader r = new BlockCompressedFile.Reader(f)) {
+      assertEquals(blocks.length, r.getNumberOfBlocks());
+      assertArrayEquals(blocks[1], r.readBlock(1).array());
+    }
+  }
+}
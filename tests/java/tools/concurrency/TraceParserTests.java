@@ -0,0 +1,107 @@
+package tools.concurrency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+
+import org.junit.Test;
+
+import tools.concurrency.TraceParser.MessageRecord;
+import tools.concurrency.TraceParser.PromiseMessageRecord;
+import tools.replay.actors.ActorExecutionTrace;
+
+
+public class TraceParserTests {
+
+  /** Records with one-byte ids, as written by the trace buffers. */
+  private static final class Block {
+    private final ByteBuffer b = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    Block actorCreation(final int actorId) {
+      b.put(ActorExecutionTrace.ACTOR_CREATION).put((byte) actorId);
+      return this;
+    }
+
+    Block actorContext(final int actorId, final int ordering) {
+      b.put(ActorExecutionTrace.ACTOR_CONTEXT).putShort((short) ordering).put((byte) actorId);
+      return this;
+    }
+
+    Block message(final int sender) {
+      b.put(ActorExecutionTrace.MESSAGE).put((byte) sender);
+      return this;
+    }
+
+    Block promiseMessage(final int sender, final int resolver) {
+      b.put(ActorExecutionTrace.PROMISE_MESSAGE).put((byte) sender).put((byte) resolver);
+      return this;
+    }
+  }
+
+  private static File writeTrace(final Block... blocks) throws IOException {
+    File f = File.createTempFile("parser", ".trace");
+    f.deleteOnExit();
+    try (BlockCompressedFile.Writer w = new BlockCompressedFile.Writer(f)) {
+      for (Block block : blocks) {
+        w.writeBlock(block.b.array(), 0, block.b.position());
+      }
+    }
+    return f;
+  }
+
+  private static void assertSenders(final Queue<MessageRecord> messages,
+      final int... senders) {
+    assertEquals(senders.length, messages.size());
+    for (int sender : senders) {
+      assertEquals(sender, messages.poll().sender);
+    }
+  }
+
+  @Test
+  public void testSingleBlock() throws IOException {
+    File f = writeTrace(new Block().actorCreation(0).actorContext(0, 0)
+                                   .message(0).message(3));
+
+    TraceParser parser = new TraceParser();
+    parser.parseMessages(f);
+    assertSenders(parser.getExpectedMessagesOf(0), 0, 3);
+  }
+
+  @Test
+  public void testMessagesContinueContextOfPreviousBlock() throws IOException {
+    File f = writeTrace(
+        new Block().actorCreation(0).actorContext(0, 0).message(5)
+                   .actorCreation(1).actorContext(1, 0).message(0),
+        // the leading messages belong to the last context of the previous block
+        new Block().message(7).actorContext(0, 1).message(1).promiseMessage(1, 2),
+        new Block().message(8).actorContext(1, 1).message(9));
+
+    TraceParser parser = new TraceParser();
+    parser.parseMessages(f);
+
+    assertSenders(parser.getExpectedMessagesOf(0), 5, 1, 1, 8);
+    assertSenders(parser.getExpectedMessagesOf(1), 0, 7, 9);
+  }
+
+  @Test
+  public void testPromiseMessagesInLaterBlocks() throws IOException {
+    File f = writeTrace(
+        new Block().actorCreation(0).actorContext(0, 0),
+        new Block().promiseMessage(4, 6),
+        new Block().message(2));
+
+    TraceParser parser = new TraceParser();
+    parser.parseMessages(f);
+
+    Queue<MessageRecord> messages = parser.getExpectedMessagesOf(0);
+    MessageRecord first = messages.peek();
+    assertTrue(first instanceof PromiseMessageRecord);
+    assertEquals(6, ((PromiseMessageRecord) first).pId);
+    assertSenders(messages, 4, 2);
+  }
+}
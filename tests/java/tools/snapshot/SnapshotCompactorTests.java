@@ -0,0 +1,77 @@
+package tools.snapshot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import tools.snapshot.SnapshotFile.Segment;
+
+
+public class SnapshotCompactorTests {
+
+  private static SnapshotFile snapshot(final int version, final int base,
+      final long... forwardings) {
+    List<Segment> segments = new ArrayList<>();
+    byte[] data = new byte[16];
+    Arrays.fill(data, (byte) version);
+    segments.add(new Segment(1, version, ByteBuffer.wrap(data, 0, 10)));
+
+    Map<Long, Long> fw = new HashMap<>();
+    for (int i = 0; i < forwardings.length; i += 2) {
+      fw.put(forwardings[i], forwardings[i + 1]);
+    }
+    return new SnapshotFile(version, base, segments, fw);
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    File f = File.createTempFile("snapshot", ".snap");
+    f.deleteOnExit();
+
+    snapshot(2, 1, 10L, 20L).write(f);
+    SnapshotFile s = SnapshotFile.read(f);
+
+    assertEquals(2, s.getVersion());
+    assertEquals(1, s.getBaseVersion());
+    assertEquals(1, s.getSegments().size());
+    assertEquals(10, s.getSegments().get(0).length);
+    byte[] data = new byte[10];
+    s.getSegments().get(0).data.duplicate().get(data);
+    assertArrayEquals(new byte[] {2, 2, 2, 2, 2, 2, 2, 2, 2, 2}, data);
+    assertEquals(Long.valueOf(20L), s.getForwardings().get(10L));
+  }
+
+  @Test
+  public void testCompactResolvesForwardingChains() {
+    SnapshotFile merged = SnapshotCompactor.compact(Arrays.asList(
+        snapshot(1, SnapshotFile.NO_BASE),
+        snapshot(2, 1, 100L, 200L),
+        snapshot(3, 2, 200L, 300L, 110L, 310L)));
+
+    assertFalse(merged.isIncremental());
+    assertEquals(3, merged.getVersion());
+    assertEquals(3, merged.getSegments().size());
+
+    assertEquals(Long.valueOf(300L), merged.getForwardings().get(100L));
+    assertEquals(Long.valueOf(300L), merged.getForwardings().get(200L));
+    assertEquals(Long.valueOf(310L), merged.getForwardings().get(110L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCompactRejectsBrokenChain() {
+    SnapshotCompactor.compact(Arrays.asList(
+        snapshot(1, SnapshotFile.NO_BASE),
+        snapshot(3, 2)));
+  }
+}
@@ -0,0 +1,181 @@
+package tools.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import tools.snapshot.SnapshotFile.Segment;
+import tools.snapshot.deserialization.DeserializationBuffer;
+import tools.snapshot.deserialization.FixupInformation;
+
+
+public class SnapshotRestoreTests {
+
+  private static final short NODE    = 1;
+  private static final short FAR_REF = 2;
+
+  private static final int NODE_SIZE = Short.BYTES + Long.BYTES + 1 + Long.BYTES;
+
+  private static final class Node {
+    final long value;
+    Object     next;
+
+    Node(final long value) {
+      this.value = value;
+    }
+  }
+
+  private static final class FarRef {
+    Object value;
+  }
+
+  /** Writes the objects of one thread and snapshot version. */
+  private static final class SegmentWriter {
+    private final long       threadId;
+    private final int        version;
+    private final ByteBuffer b = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    SegmentWriter(final long threadId, final int version) {
+      this.threadId = threadId;
+      this.version = version;
+    }
+
+    private long reference(final int position) {
+      return (SnapshotBuffer.getSegmentKey(threadId, version) << SnapshotBuffer.VERSION_SHIFT)
+          | position;
+    }
+
+    long node(final long value) {
+      int start = b.position();
+      b.putShort(NODE).putLong(value).put((byte) 0).putLong(0);
+      return reference(start);
+    }
+
+    long farRef(final int actorId, final long reference) {
+      int start = b.position();
+      b.putShort(FAR_REF).putInt(actorId).putLong(reference);
+      return reference(start);
+    }
+
+    void link(final long node, final long next) {
+      int start = (int) (node & SnapshotBuffer.OFFSET_MASK);
+      b.put(start + NODE_SIZE - Long.BYTES - 1, (byte) 1);
+      b.putLong(start + NODE_SIZE - Long.BYTES, next);
+    }
+
+    Segment segment() {
+      return new Segment(threadId, version, ByteBuffer.wrap(b.array(), 0, b.position()));
+    }
+  }
+
+  /** Deserializes the test objects instead of SOM objects. */
+  private static final class TestBuffer extends DeserializationBuffer {
+    private final Map<Integer, DeserializationBuffer> actorBuffers;
+
+    TestBuffer(final SnapshotFile snapshot,
+        final Map<Integer, DeserializationBuffer> actorBuffers) {
+      super(snapshot);
+      this.actorBuffers = actorBuffers;
+    }
+
+    @Override
+    protected Object deserializeObject(final short classId) {
+      if (classId == NODE) {
+        Node n = new Node(getLong());
+        if (get() == 1) {
+          Object next = getReference();
+          if (needsFixup(next)) {
+            installFixup(new FixupInformation() {
+              @Override
+              public void fixUp(final Object o) {
+                n.next = o;
+              }
+            });
+          } else {
+            n.next = next;
+          }
+        }
+        return n;
+      }
+
+      assertEquals(FAR_REF, classId);
+      FarRef r = new FarRef();
+      DeserializationBuffer other = actorBuffers.get(getInt());
+      other.installExternalFixup(getLong(), new FixupInformation() {
+        @Override
+        public void fixUp(final Object o) {
+          r.value = o;
+        }
+      });
+      return r;
+    }
+  }
+
+  @Test
+  public void testRestoreSegmentsOfSeveralThreads() throws IOException {
+    SegmentWriter actor1Old = new SegmentWriter(1, 2);
+    SegmentWriter actor1 = new SegmentWriter(1, 3);
+    SegmentWriter actor2 = new SegmentWriter(2, 3);
+
+    // b is unchanged since version 2, and refers to the old copy of a
+    long oldA = actor1Old.node(1);
+    long b = actor1Old.node(20);
+    actor1Old.link(b, oldA);
+
+    long a = actor1.node(10);
+    actor1.link(a, b);
+
+    long d = actor2.node(30);
+    long e = actor2.node(40);
+    actor2.link(d, e);
+    actor2.link(e, actor2.farRef(1, b));
+
+    long f = actor1.farRef(2, d);
+
+    List<Segment> segments = new ArrayList<>();
+    segments.add(actor1Old.segment());
+    segments.add(actor1.segment());
+    segments.add(actor2.segment());
+    Map<Long, Long> forwardings = new HashMap<>();
+    forwardings.put(oldA, a);
+
+    File file = File.createTempFile("restore", ".snap");
+    file.deleteOnExit();
+    new SnapshotFile(3, SnapshotFile.NO_BASE, segments, forwardings).write(file);
+    SnapshotFile snapshot = SnapshotFile.read(file);
+
+    Map<Integer, DeserializationBuffer> buffers = new HashMap<>();
+    buffers.put(1, new TestBuffer(snapshot, buffers));
+    buffers.put(2, new TestBuffer(snapshot, buffers));
+
+    Map<Integer, long[]> roots = new HashMap<>();
+    roots.put(1, new long[] {a, f});
+    roots.put(2, new long[] {d});
+
+    Map<Integer, Object[]> restored = SnapshotBackend.restore(buffers, roots);
+
+    Node restoredA = (Node) restored.get(1)[0];
+    Node restoredB = (Node) restoredA.next;
+    assertEquals(10, restoredA.value);
+    assertEquals(20, restoredB.value);
+    assertSame(restoredA, restoredB.next);
+
+    Node restoredD = (Node) restored.get(2)[0];
+    Node restoredE = (Node) restoredD.next;
+    assertEquals(30, restoredD.value);
+    assertEquals(40, restoredE.value);
+
+    assertSame(restoredD, ((FarRef) restored.get(1)[1]).value);
+    assertSame(restoredB, ((FarRef) restoredE.next).value);
+  }
+}